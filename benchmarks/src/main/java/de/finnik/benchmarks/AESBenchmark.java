@@ -0,0 +1,88 @@
+package de.finnik.benchmarks;
+
+import de.finnik.AES.AES;
+import de.finnik.AES.AESReader;
+import de.finnik.AES.AESWriter;
+import de.finnik.AES.KeyDerivation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AES#encrypt(String)} and {@link AES#decrypt(String)}, the byte array variants used by the vault formats
+ * and the legacy {@link AESWriter}/{@link AESReader}, for inputs of different lengths
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AESBenchmark {
+    @Param({"16", "1024", "65536"})
+    public int length;
+
+    private AES aes;
+    private String plain, encrypted, written;
+    private byte[] plainBytes, encryptedBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        aes = Vaults.aes();
+        Random random = new Random(length);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) (' ' + random.nextInt(95)));
+        }
+        plain = sb.toString();
+        encrypted = aes.encrypt(plain);
+        plainBytes = new byte[length];
+        random.nextBytes(plainBytes);
+        encryptedBytes = aes.encrypt(plainBytes, KeyDerivation.SHA_256);
+        written = write();
+    }
+
+    @Benchmark
+    public String encryptString() {
+        return aes.encrypt(plain);
+    }
+
+    @Benchmark
+    public String decryptString() {
+        return aes.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public byte[] encryptBytes() {
+        return aes.encrypt(plainBytes, KeyDerivation.SHA_256);
+    }
+
+    @Benchmark
+    public byte[] decryptBytes() {
+        return aes.decrypt(encryptedBytes, KeyDerivation.SHA_256);
+    }
+
+    @Benchmark
+    public String writer() throws IOException {
+        return write();
+    }
+
+    @Benchmark
+    public String reader() throws IOException {
+        try (AESReader reader = new AESReader(new StringReader(written), aes)) {
+            return reader.readLine();
+        }
+    }
+
+    private String write() throws IOException {
+        StringWriter out = new StringWriter();
+        try (AESWriter writer = new AESWriter(out, aes)) {
+            writer.write(plain);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package de.finnik.benchmarks;
+
+import de.finnik.drive.CompareVaults;
+import de.finnik.passvault.passwords.Password;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CompareVaults#compare(List[])} and {@link CompareVaults#changeLog(List, List)} for a local and a remote vault
+ * of different sizes, where every tenth password of the remote vault was changed and a tenth of its passwords are new.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CompareVaultsBenchmark {
+    // Both methods sort the passwords by id once and binary search them afterwards, so even large vaults are measured in every run
+    @Param({"100", "1000", "10000", "100000"})
+    public int size;
+
+    private List<Password> local, remote;
+
+    @Setup
+    public void setup() {
+        local = Vaults.synthetic(size);
+        remote = new ArrayList<>(size + size / 10);
+        for (int i = 0; i < local.size(); i++) {
+            Password password = new Password(local.get(i));
+            if (i % 10 == 0) {
+                password.setSite(password.getSite() + "/login");
+            }
+            remote.add(password);
+        }
+        remote.addAll(Vaults.synthetic(size / 10 + 1));
+    }
+
+    @Benchmark
+    public List<Password> compare() {
+        return CompareVaults.compare(local, remote);
+    }
+
+    @Benchmark
+    public String[] changeLog() {
+        return CompareVaults.changeLog(local, remote);
+    }
+}
@@ -0,0 +1,30 @@
+package de.finnik.benchmarks;
+
+import de.finnik.passvault.passwords.PasswordGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PasswordGenerator#generatePassword(int, int, PasswordGenerator.PassChars...)} with the default lengths
+ * and all kinds of characters
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordGeneratorBenchmark {
+    private PasswordGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = new PasswordGenerator(42);
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.generatePassword(12, 18, PasswordGenerator.PassChars.values());
+    }
+}
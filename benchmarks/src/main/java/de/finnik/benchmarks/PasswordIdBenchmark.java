@@ -0,0 +1,30 @@
+package de.finnik.benchmarks;
+
+import de.finnik.passvault.passwords.PasswordId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast several threads create the ids of new passwords via {@link PasswordId#generate()}
+ * compared to the random UUIDs that were used before, which all share one {@link java.security.SecureRandom}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class PasswordIdBenchmark {
+    @Benchmark
+    public PasswordId generate() {
+        return PasswordId.generate();
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,83 @@
+package de.finnik.benchmarks;
+
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.search.RankedSearch;
+import de.finnik.passvault.search.SearchSession;
+import de.finnik.passvault.search.TrigramIndex;
+import de.finnik.passvault.utils.PassUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PassUtils#getAllMatchingPasswords(String, List)} against {@link TrigramIndex#search(String)}
+ * for vaults of different sizes with a rare, a common and an empty query
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"42.github", "gmail", ""})
+    public String query;
+
+    private List<Password> passwords;
+    private TrigramIndex index;
+    private RankedSearch ranked;
+
+    @Setup
+    public void setup() {
+        passwords = Vaults.synthetic(size);
+        index = new TrigramIndex(passwords);
+        ranked = new RankedSearch(index, null);
+    }
+
+    @Benchmark
+    public List<Password> search() {
+        return PassUtils.getAllMatchingPasswords(query, passwords);
+    }
+
+    @Benchmark
+    public List<Password> searchIndex() {
+        return index.search(query);
+    }
+
+    /**
+     * Ranks the matches and keeps the 100 best ones
+     */
+    @Benchmark
+    public List<Password> searchRanked() {
+        return ranked.search(query, 100);
+    }
+
+    /**
+     * Searches every prefix of the query that is long enough to be searched, as it happens while the query is typed
+     */
+    @Benchmark
+    public List<Password> typeIndex() {
+        List<Password> result = null;
+        for (int length = TrigramIndex.N; length <= query.length(); length++) {
+            result = index.search(query.substring(0, length));
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link SearchBenchmark#typeIndex()}, but the query is refined via a {@link SearchSession}
+     */
+    @Benchmark
+    public List<Password> typeSession() {
+        SearchSession session = new SearchSession(index);
+        List<Password> result = null;
+        for (int length = TrigramIndex.N; length <= query.length(); length++) {
+            result = session.search(query.substring(0, length));
+        }
+        return result;
+    }
+}
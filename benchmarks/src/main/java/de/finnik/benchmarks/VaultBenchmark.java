@@ -0,0 +1,61 @@
+package de.finnik.benchmarks;
+
+import de.finnik.AES.AES;
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.VaultFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Password#savePasswords(List, File, AES, VaultFormat.Mode)} and {@link Password#readPasswords(File, AES)}
+ * for vaults of different sizes in each {@link VaultFormat.Mode}.
+ * <p>
+ * As after loading a vault, the passwords that are saved have already been sealed once, so in {@link VaultFormat.Mode#ENTRY}
+ * saving measures the steady state of writing already sealed secrets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VaultBenchmark {
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"STREAM", "ENTRY"})
+    public VaultFormat.Mode mode;
+
+    private AES aes;
+    private List<Password> passwords;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        aes = Vaults.aes();
+        passwords = Vaults.synthetic(size);
+        file = File.createTempFile("passvault", "bin");
+        file.deleteOnExit();
+        Password.savePasswords(passwords, file, aes, mode);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public File save() {
+        Password.savePasswords(passwords, file, aes, mode);
+        return file;
+    }
+
+    @Benchmark
+    public List<Password> read() {
+        return Password.readPasswords(file, aes);
+    }
+}
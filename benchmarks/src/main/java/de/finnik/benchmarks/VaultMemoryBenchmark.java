@@ -0,0 +1,109 @@
+package de.finnik.benchmarks;
+
+import de.finnik.AES.AES;
+import de.finnik.passvault.passwords.ColumnarVault;
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.VaultFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how much heap a read vault keeps as a {@code List<Password>} and as a {@link ColumnarVault}.
+ * The retained bytes per password are reported as the secondary result {@code bytesPerPassword}. They're the difference of the used heap
+ * after a full garbage collection before and after reading, so the time of the primary result includes the collections.
+ * JMH sums such counters over the iterations, that's why there's only one measured iteration.
+ * <p>
+ * The vault is saved in {@link VaultFormat.Mode#ENTRY}, so the secret parameters are kept sealed like after loading a real vault.
+ * With {@code sites} greater than 0, the passwords share that many sites, otherwise every password has its own site.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VaultMemoryBenchmark {
+    @Param({"10000", "100000", "500000"})
+    public int size;
+
+    @Param({"0", "1000"})
+    public int sites;
+
+    private AES aes;
+    private File file;
+    /**
+     * Keeps the read vault reachable until the heap was measured
+     */
+    private Object vault;
+
+    /**
+     * The bytes the read vault keeps per password
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerPassword;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        aes = Vaults.aes();
+        List<Password> passwords = Vaults.synthetic(size);
+        if (sites > 0) {
+            for (int i = 0; i < passwords.size(); i++) {
+                passwords.get(i).setSite("https://" + i % sites + ".example.com");
+            }
+        }
+        file = File.createTempFile("passvault", "bin");
+        file.deleteOnExit();
+        Password.savePasswords(passwords, file, aes, VaultFormat.Mode.ENTRY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public Object list(Footprint footprint) throws IOException {
+        return measure(footprint, () -> VaultFormat.read(file, aes));
+    }
+
+    @Benchmark
+    public Object columnar(Footprint footprint) throws IOException {
+        return measure(footprint, () -> ColumnarVault.read(file, aes));
+    }
+
+    private Object measure(Footprint footprint, Reader reader) throws IOException {
+        vault = null;
+        long before = usedHeap();
+        vault = reader.read();
+        footprint.bytesPerPassword = (usedHeap() - before) / size;
+        return vault;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // Collects until the heap doesn't shrink anymore
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    private interface Reader {
+        Object read() throws IOException;
+    }
+}
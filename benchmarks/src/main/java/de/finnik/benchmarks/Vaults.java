@@ -0,0 +1,53 @@
+package de.finnik.benchmarks;
+
+import de.finnik.AES.AES;
+import de.finnik.AES.KeyDerivation;
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.PasswordGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The fixtures shared by the benchmarks
+ */
+final class Vaults {
+    private static final String[] DOMAINS = {"google.com", "amazon.de", "github.com", "netflix.com", "paypal.com", "ebay.de", "twitter.com", "web.de"};
+    private static final String[] MAILS = {"gmail.com", "outlook.com", "web.de", "gmx.de"};
+
+    private Vaults() {
+    }
+
+    /**
+     * Creates passwords that look like the ones of a real vault. The same size always results in the same passwords.
+     *
+     * @param size The amount of passwords
+     * @return The passwords
+     */
+    static List<Password> synthetic(int size) {
+        Random random = new Random(size);
+        PasswordGenerator generator = new PasswordGenerator(size);
+        List<Password> passwords = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String domain = DOMAINS[random.nextInt(DOMAINS.length)];
+            passwords.add(new Password(generator.generatePassword(12, 18, PasswordGenerator.PassChars.values()),
+                    "https://" + (random.nextBoolean() ? "www." : "") + i + "." + domain,
+                    "user" + random.nextInt(size) + "@" + MAILS[random.nextInt(MAILS.length)],
+                    random.nextInt(4) == 0 ? "Security question: " + random.nextInt(1000) : ""));
+        }
+        return passwords;
+    }
+
+    /**
+     * Creates an {@link AES} object with the cheapest key derivation that can be read back, as the benchmarks measure the formats
+     * and not the derivation. The key is derived once and cached by the object.
+     *
+     * @return The {@link AES} object
+     */
+    static AES aes() {
+        AES aes = new AES("benchmark");
+        aes.adoptKeyDerivation(KeyDerivation.pbkdf2(new byte[16], KeyDerivation.MIN_ITERATIONS));
+        return aes;
+    }
+}
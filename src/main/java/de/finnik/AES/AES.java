@@ -1,34 +1,81 @@
 package de.finnik.AES;
 
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
-import java.util.Base64;
-import java.util.HashMap;
-import java.util.Map;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class that allows you to encrypt and decrypt {@link String} objects via AES by choosing the hashing algorithm
  */
 public class AES {
 
-    private final Map<HashAlgorithm, SecretKeySpec> secretKeySpec;
-    private final String pass;
+    /**
+     * The transformation of all created {@link Cipher}s
+     */
+    public static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    /**
+     * The transformation of {@link AES#seal(byte[], byte[], KeySource)} and {@link AES#open(byte[], byte[], KeySource)}
+     */
+    public static final String AEAD_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int BLOCK_SIZE = 16;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The keys of all used {@link KeySource}s, so that each key is derived at most once per object
+     */
+    private final Map<KeySource, SecretKeySpec> secretKeySpec;
+    /**
+     * The initialized {@link Cipher}s of each thread, see {@link AES#cipher(int, KeySource)}
+     */
+    private final ThreadLocal<Map<KeySource, Cipher[]>> ciphers = ThreadLocal.withInitial(HashMap::new);
+    /**
+     * The {@link Cipher} of each thread for {@link AES#AEAD_TRANSFORMATION}, it has to be initialized with a new nonce each time
+     */
+    private final ThreadLocal<Cipher> aeadCipher = new ThreadLocal<>();
+    /**
+     * The password, kept outside of the heap
+     */
+    private final Secret pass;
+    /**
+     * The {@link KeyDerivation} that is used to write vault files, see {@link AES#getKeyDerivation()}
+     */
+    private KeyDerivation keyDerivation;
+    /**
+     * The {@link DataKey} that is used to write vault files, see {@link AES#getDataKey()}
+     */
+    private DataKey dataKey;
 
     /**
-     * Initializes a new object via saving a given password to en-/decrypt and generating {@link SecretKeySpec} objects for all {@link HashAlgorithm}s
+     * Initializes a new object via saving a given password to en-/decrypt.
+     * The {@link SecretKeySpec} objects for the {@link KeySource}s are generated as soon as they are needed.
      *
      * @param pass The password to be used for en/decrypting
      */
     public AES(String pass) {
-        this.pass = pass;
-        secretKeySpec = new HashMap<>();
-        for (HashAlgorithm hashAlgorithm : HashAlgorithm.values()) {
-            secretKeySpec.put(hashAlgorithm, getSecretKey(pass, hashAlgorithm));
-        }
+        this.pass = Secret.of(pass);
+        secretKeySpec = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Initializes a new object via copying a given password to en-/decrypt, e.g. from {@link javax.swing.JPasswordField#getPassword()}.
+     * The given array can be wiped afterwards.
+     *
+     * @param pass The password to be used for en/decrypting
+     */
+    public AES(char[] pass) {
+        this.pass = Secret.of(pass);
+        secretKeySpec = new ConcurrentHashMap<>();
     }
 
     /**
@@ -39,13 +86,18 @@ public class AES {
      * @param hashAlgorithm The hashing algorithm
      * @return The generated SecretKeySpec
      */
-    private static SecretKeySpec getSecretKey(String myKey, HashAlgorithm hashAlgorithm) {
+    static SecretKeySpec getSecretKey(CharSequence myKey, HashAlgorithm hashAlgorithm) {
         MessageDigest sha;
         byte[] key;
         try {
-            key = myKey.getBytes(StandardCharsets.UTF_8);
+            // Encoded without creating a String, the same way as String#getBytes
+            ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(myKey));
             sha = hashAlgorithm.getDigestInstance();
-            key = sha.digest(key);
+            sha.update(encoded.duplicate());
+            for (int i = 0; i < encoded.limit(); i++) {
+                encoded.put(i, (byte) 0);
+            }
+            key = sha.digest();
             key = Arrays.copyOf(key, 16);
             return new SecretKeySpec(key, "AES");
         } catch (NoSuchAlgorithmException e) {
@@ -53,15 +105,109 @@ public class AES {
         }
     }
 
-    public String getPass() {
+    /**
+     * Returns the {@link SecretKeySpec} for a given {@link KeySource} and derives it if it doesn't exist yet
+     *
+     * @param key The source of the key
+     * @return The matching SecretKeySpec
+     */
+    private SecretKeySpec secretKey(KeySource key) {
+        return secretKeySpec.computeIfAbsent(key, source -> source.key(pass));
+    }
+
+    /**
+     * Returns the {@link KeyDerivation} that is used to write vault files with this object.
+     * It is either the one of the last vault file that was read with this object (see {@link AES#adoptKeyDerivation(KeyDerivation)})
+     * or a new one with a random salt ({@link KeyDerivation#create()}), so the key only has to be derived once per session.
+     *
+     * @return The key derivation
+     */
+    public synchronized KeyDerivation getKeyDerivation() {
+        if (keyDerivation == null) {
+            keyDerivation = KeyDerivation.create();
+        }
+        return keyDerivation;
+    }
+
+    /**
+     * Takes over the {@link KeyDerivation} of a read vault file for writing files, if there is none yet
+     * and the given one is salted. The key of the given derivation must have been verified before.
+     *
+     * @param keyDerivation The key derivation of the read file
+     */
+    public synchronized void adoptKeyDerivation(KeyDerivation keyDerivation) {
+        if (this.keyDerivation == null && keyDerivation.isSalted()) {
+            this.keyDerivation = keyDerivation;
+        }
+    }
+
+    /**
+     * Returns the {@link DataKey} that is used to write vault files with this object.
+     * It is either the one of the first vault file that was read with this object (see {@link AES#adoptDataKey(DataKey)})
+     * or a newly generated one.
+     *
+     * @return The data key
+     */
+    public synchronized DataKey getDataKey() {
+        if (dataKey == null) {
+            dataKey = DataKey.generate();
+        }
+        return dataKey;
+    }
+
+    /**
+     * Takes over the {@link DataKey} of a read vault file for writing files, if there is none yet
+     *
+     * @param dataKey The data key of the read file
+     */
+    public synchronized void adoptDataKey(DataKey dataKey) {
+        if (this.dataKey == null) {
+            this.dataKey = dataKey;
+        }
+    }
+
+    /**
+     * Returns the {@link DataKey} of this object if it has a given id, so that files encrypted with it can be read without unwrapping
+     *
+     * @param id The id of the wanted data key
+     * @return The data key or {@code null} if this object has none or another one
+     */
+    public synchronized DataKey findDataKey(byte[] id) {
+        return dataKey != null && dataKey.hasId(id) ? dataKey : null;
+    }
+
+    /**
+     * @return The password of this object
+     */
+    public Secret getPass() {
         return pass;
     }
 
     /**
-     * @return True when {@link AES#pass} is empty
+     * Wipes the password and forgets all derived keys, e.g. after the main password was changed. The object can't be used afterwards.
+     */
+    public void wipe() {
+        pass.wipe();
+        secretKeySpec.clear();
+        ciphers.remove();
+        aeadCipher.remove();
+    }
+
+    /**
+     * Checks whether this object has a given password, see {@link Secret#contentEquals(CharSequence)}
+     *
+     * @param pass The password to check
+     * @return The same password or not
+     */
+    public boolean passMatches(CharSequence pass) {
+        return this.pass.contentEquals(pass);
+    }
+
+    /**
+     * @return False when {@link AES#pass} is empty or was wiped via {@link AES#wipe()}
      */
     public boolean passIsSet() {
-        return !pass.isEmpty();
+        return !pass.isWiped() && pass.length() > 0;
     }
 
     /**
@@ -71,47 +217,319 @@ public class AES {
      * @return Encrypted key
      */
     public String encrypt(String strToEncrypt) {
-        try {
-            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec.get(HashAlgorithm.SHA_256));
-            return Base64.getEncoder().encodeToString(cipher.doFinal(strToEncrypt.getBytes(StandardCharsets.UTF_8)));
-        } catch (Exception e) {
-            throw new RuntimeException("Error while encrypting: " + e.toString());
-        }
+        return Base64.getEncoder().encodeToString(encrypt(strToEncrypt.getBytes(StandardCharsets.UTF_8), KeyDerivation.SHA_256));
     }
 
     /**
      * Decrypts a string with a given key via Advanced Encryption Standard (AES).
+     * As the string doesn't tell which {@link HashAlgorithm} was used to encrypt it, {@link HashAlgorithm#SHA_1} is tried
+     * when decrypting with {@link HashAlgorithm#SHA_256} fails.
      *
      * @param strToDecrypt String to decrypt
      * @return Decrypted key
      * @throws WrongPasswordException Wrong password!
      */
     public String decrypt(String strToDecrypt) throws WrongPasswordException {
+        byte[] encrypted;
         try {
-            return decrypt(strToDecrypt, HashAlgorithm.SHA_256);
+            encrypted = Base64.getDecoder().decode(strToDecrypt);
         } catch (Exception e) {
-            return decrypt(strToDecrypt, HashAlgorithm.SHA_1);
+            throw new WrongPasswordException();
+        }
+        try {
+            return new String(decrypt(encrypted, KeyDerivation.SHA_256), StandardCharsets.UTF_8);
+        } catch (WrongPasswordException e) {
+            return new String(decrypt(encrypted, KeyDerivation.SHA_1), StandardCharsets.UTF_8);
         }
     }
 
     /**
-     * Decrypts a string with a given key via Advanced Encryption Standard (AES).
+     * Encrypts a byte array with the key of a given {@link KeySource}
      *
-     * @param strToDecrypt String to decrypt
-     * @return Decrypted key
+     * @param input The bytes to encrypt
+     * @param key   The source of the key to use
+     * @return The encrypted bytes
+     */
+    public byte[] encrypt(byte[] input, KeySource key) {
+        return encrypt(input, 0, input.length, key);
+    }
+
+    /**
+     * Encrypts a part of a byte array with the key of a given {@link KeySource}
+     *
+     * @param input  The array containing the bytes to encrypt
+     * @param offset The index of the first byte to encrypt
+     * @param length The amount of bytes to encrypt
+     * @param key    The source of the key to use
+     * @return The encrypted bytes
+     */
+    public byte[] encrypt(byte[] input, int offset, int length, KeySource key) {
+        try {
+            return cipher(Cipher.ENCRYPT_MODE, key).doFinal(input, offset, length);
+        } catch (GeneralSecurityException e) {
+            discardCipher(Cipher.ENCRYPT_MODE, key);
+            throw new RuntimeException("Error while encrypting: " + e.toString());
+        }
+    }
+
+    /**
+     * Encrypts the remaining bytes of a buffer into another buffer with the key of a given {@link KeySource}.
+     * The output buffer needs space for {@link AES#encryptedSize(int)} bytes.
+     *
+     * @param input  The buffer containing the bytes to encrypt
+     * @param output The buffer to write the encrypted bytes into
+     * @param key    The source of the key to use
+     * @return The amount of bytes written into the output buffer
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output, KeySource key) {
+        try {
+            return cipher(Cipher.ENCRYPT_MODE, key).doFinal(input, output);
+        } catch (GeneralSecurityException e) {
+            discardCipher(Cipher.ENCRYPT_MODE, key);
+            throw new RuntimeException("Error while encrypting: " + e.toString());
+        }
+    }
+
+    /**
+     * Decrypts a byte array with the key of a given {@link KeySource}
+     *
+     * @param input The bytes to decrypt
+     * @param key   The source of the key to use
+     * @return The decrypted bytes
+     * @throws WrongPasswordException Wrong password!
+     */
+    public byte[] decrypt(byte[] input, KeySource key) throws WrongPasswordException {
+        return decrypt(input, 0, input.length, key);
+    }
+
+    /**
+     * Decrypts a part of a byte array with the key of a given {@link KeySource}
+     *
+     * @param input  The array containing the bytes to decrypt
+     * @param offset The index of the first byte to decrypt
+     * @param length The amount of bytes to decrypt
+     * @param key    The source of the key to use
+     * @return The decrypted bytes
      * @throws WrongPasswordException Wrong password!
      */
-    private String decrypt(String strToDecrypt, HashAlgorithm hashAlgorithm) throws WrongPasswordException {
+    public byte[] decrypt(byte[] input, int offset, int length, KeySource key) throws WrongPasswordException {
         try {
-            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5PADDING");
-            cipher.init(Cipher.DECRYPT_MODE, secretKeySpec.get(hashAlgorithm));
-            return new String(cipher.doFinal(Base64.getDecoder().decode(strToDecrypt.getBytes(StandardCharsets.UTF_8))));
-        } catch (Exception e) {
+            return cipher(Cipher.DECRYPT_MODE, key).doFinal(input, offset, length);
+        } catch (GeneralSecurityException e) {
+            discardCipher(Cipher.DECRYPT_MODE, key);
+            throw new WrongPasswordException();
+        }
+    }
+
+    /**
+     * Decrypts a part of a byte array into another array with the key of a given {@link KeySource}.
+     * The output array needs space for {@code length} bytes.
+     *
+     * @param input        The array containing the bytes to decrypt
+     * @param offset       The index of the first byte to decrypt
+     * @param length       The amount of bytes to decrypt
+     * @param output       The array to write the decrypted bytes into
+     * @param outputOffset The index in the output array where the decrypted bytes start
+     * @param key          The source of the key to use
+     * @return The amount of decrypted bytes
+     * @throws WrongPasswordException Wrong password!
+     */
+    public int decrypt(byte[] input, int offset, int length, byte[] output, int outputOffset, KeySource key) throws WrongPasswordException {
+        try {
+            return cipher(Cipher.DECRYPT_MODE, key).doFinal(input, offset, length, output, outputOffset);
+        } catch (GeneralSecurityException e) {
+            discardCipher(Cipher.DECRYPT_MODE, key);
+            throw new WrongPasswordException();
+        }
+    }
+
+    /**
+     * Decrypts the remaining bytes of a buffer into another buffer with the key of a given {@link KeySource}.
+     * The output buffer needs space for as many bytes as there are remaining in the input buffer.
+     *
+     * @param input  The buffer containing the bytes to decrypt
+     * @param output The buffer to write the decrypted bytes into
+     * @param key    The source of the key to use
+     * @return The amount of bytes written into the output buffer
+     * @throws WrongPasswordException Wrong password!
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output, KeySource key) throws WrongPasswordException {
+        try {
+            return cipher(Cipher.DECRYPT_MODE, key).doFinal(input, output);
+        } catch (GeneralSecurityException e) {
+            discardCipher(Cipher.DECRYPT_MODE, key);
+            throw new WrongPasswordException();
+        }
+    }
+
+    /**
+     * Encrypts and authenticates a byte array via {@link AES#AEAD_TRANSFORMATION} with the key of a given {@link KeySource}.
+     * The returned bytes start with the random nonce, followed by the encrypted bytes and the authentication tag.
+     *
+     * @param input          The bytes to encrypt
+     * @param associatedData Bytes that aren't encrypted, but have to be the same when opening or {@code null}
+     * @param key            The source of the key to use
+     * @return The sealed bytes
+     */
+    public byte[] seal(byte[] input, byte[] associatedData, KeySource key) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        try {
+            Cipher cipher = aeadCipher(Cipher.ENCRYPT_MODE, nonce, associatedData, key);
+            byte[] sealed = Arrays.copyOf(nonce, NONCE_LENGTH + cipher.getOutputSize(input.length));
+            cipher.doFinal(input, 0, input.length, sealed, NONCE_LENGTH);
+            return sealed;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error while sealing: " + e.toString());
+        }
+    }
+
+    /**
+     * Checks and decrypts bytes that were created via {@link AES#seal(byte[], byte[], KeySource)}
+     *
+     * @param input          The sealed bytes
+     * @param associatedData The same associated data that was used for sealing or {@code null}
+     * @param key            The source of the key to use
+     * @return The decrypted bytes
+     * @throws WrongPasswordException Wrong password or the bytes were modified
+     */
+    public byte[] open(byte[] input, byte[] associatedData, KeySource key) throws WrongPasswordException {
+        if (input.length < NONCE_LENGTH + TAG_LENGTH / 8) {
+            throw new WrongPasswordException();
+        }
+        try {
+            return aeadCipher(Cipher.DECRYPT_MODE, Arrays.copyOf(input, NONCE_LENGTH), associatedData, key)
+                    .doFinal(input, NONCE_LENGTH, input.length - NONCE_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new WrongPasswordException();
+        }
+    }
+
+    /**
+     * Encrypts and authenticates the remaining bytes of a buffer into another buffer like {@link AES#seal(byte[], byte[], KeySource)}.
+     * The output buffer needs space for {@link AES#sealedSize(int)} bytes.
+     *
+     * @param input          The buffer containing the bytes to encrypt
+     * @param output         The buffer to write the sealed bytes into
+     * @param associatedData Bytes that aren't encrypted, but have to be the same when opening or {@code null}
+     * @param key            The source of the key to use
+     * @return The amount of bytes written into the output buffer
+     */
+    public int seal(ByteBuffer input, ByteBuffer output, byte[] associatedData, KeySource key) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        try {
+            Cipher cipher = aeadCipher(Cipher.ENCRYPT_MODE, nonce, associatedData, key);
+            output.put(nonce);
+            return NONCE_LENGTH + cipher.doFinal(input, output);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error while sealing: " + e.toString());
+        }
+    }
+
+    /**
+     * Checks and decrypts the remaining bytes of a buffer that were created via {@link AES#seal(ByteBuffer, ByteBuffer, byte[], KeySource)}
+     * into another buffer. The output buffer needs space for as many bytes as there are remaining in the input buffer.
+     *
+     * @param input          The buffer containing the sealed bytes
+     * @param output         The buffer to write the decrypted bytes into
+     * @param associatedData The same associated data that was used for sealing or {@code null}
+     * @param key            The source of the key to use
+     * @return The amount of bytes written into the output buffer
+     * @throws WrongPasswordException Wrong password or the bytes were modified
+     */
+    public int open(ByteBuffer input, ByteBuffer output, byte[] associatedData, KeySource key) throws WrongPasswordException {
+        if (input.remaining() < NONCE_LENGTH + TAG_LENGTH / 8) {
+            throw new WrongPasswordException();
+        }
+        byte[] nonce = new byte[NONCE_LENGTH];
+        input.get(nonce);
+        try {
+            return aeadCipher(Cipher.DECRYPT_MODE, nonce, associatedData, key).doFinal(input, output);
+        } catch (GeneralSecurityException e) {
             throw new WrongPasswordException();
         }
     }
 
+    /**
+     * Calculates how many bytes the sealed form of a given amount of bytes will take
+     *
+     * @param length The amount of plain bytes
+     * @return The amount of sealed bytes
+     */
+    public static int sealedSize(int length) {
+        return NONCE_LENGTH + length + TAG_LENGTH / 8;
+    }
+
+    /**
+     * Calculates how many bytes the encrypted form of a given amount of bytes will take
+     *
+     * @param length The amount of plain bytes
+     * @return The amount of encrypted bytes
+     */
+    public static int encryptedSize(int length) {
+        return (length / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    }
+
+    /**
+     * Returns the {@link Cipher} of the current thread that is initialized with the key of a given {@link KeySource}.
+     * As ECB doesn't need an initialization vector, the cipher is created and initialized once per thread and then reused,
+     * because {@link Cipher#doFinal()} resets it to its initialized state.
+     *
+     * @param mode {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}
+     * @param key  The source of the key to use
+     * @return The initialized cipher
+     * @throws GeneralSecurityException Error while creating the cipher
+     */
+    private Cipher cipher(int mode, KeySource key) throws GeneralSecurityException {
+        Cipher[] cached = ciphers.get().computeIfAbsent(key, derivation -> new Cipher[2]);
+        int index = mode == Cipher.ENCRYPT_MODE ? 0 : 1;
+        if (cached[index] == null) {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(mode, secretKey(key));
+            cached[index] = cipher;
+        }
+        return cached[index];
+    }
+
+    /**
+     * Removes the {@link Cipher} of the current thread after it failed, so that the next call of {@link AES#cipher(int, KeySource)}
+     * doesn't get a cipher in an undefined state
+     *
+     * @param mode {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}
+     * @param key  The source of the key that was used
+     */
+    private void discardCipher(int mode, KeySource key) {
+        Cipher[] cached = ciphers.get().get(key);
+        if (cached != null) {
+            cached[mode == Cipher.ENCRYPT_MODE ? 0 : 1] = null;
+        }
+    }
+
+    /**
+     * Returns the {@link Cipher} of the current thread for {@link AES#AEAD_TRANSFORMATION} initialized with a given nonce.
+     * Only the instance is reused, as every operation needs a new initialization.
+     *
+     * @param mode           {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}
+     * @param nonce          The nonce
+     * @param associatedData The associated data or {@code null}
+     * @param key            The source of the key to use
+     * @return The initialized cipher
+     * @throws GeneralSecurityException Error while creating the cipher
+     */
+    private Cipher aeadCipher(int mode, byte[] nonce, byte[] associatedData, KeySource key) throws GeneralSecurityException {
+        Cipher cipher = aeadCipher.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(AEAD_TRANSFORMATION);
+            aeadCipher.set(cipher);
+        }
+        cipher.init(mode, secretKey(key), new GCMParameterSpec(TAG_LENGTH, nonce));
+        if (associatedData != null) {
+            cipher.updateAAD(associatedData);
+        }
+        return cipher;
+    }
+
     /**
      * All available hashing algorithms
      */
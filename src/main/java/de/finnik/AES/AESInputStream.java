@@ -0,0 +1,171 @@
+package de.finnik.AES;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Creates an input stream that decrypts content written by {@link AESOutputStream} one chunk at a time.
+ * The chunks are either read from another {@link InputStream} or decrypted straight out of a {@link ByteBuffer}, e.g. a mapped file.
+ * Each chunk is checked before its bytes are handed over, a modified, missing or foreign chunk throws {@link AES.WrongPasswordException}
+ * and a stream that ends before its last chunk throws an {@link IOException}.
+ */
+public class AESInputStream extends InputStream {
+    private final AES aes;
+    private final KeySource key;
+    private final byte[] streamData;
+    private final DataInputStream in;
+    private final ByteBuffer source;
+    /**
+     * The associated data of the chunks, see {@link AESOutputStream#associatedData(byte[], byte[])}, or {@code null} before the first chunk
+     */
+    private byte[] associatedData;
+    private long index;
+    private byte[] encrypted = new byte[0];
+    private byte[] chunk = new byte[0];
+    private int pos, limit;
+    private boolean finished;
+
+    /**
+     * Initializes the stream with another {@link InputStream} and an {@link AES} object to be used for decrypting
+     *
+     * @param in             The {@link InputStream} to read the encrypted chunks from
+     * @param aes            The {@link AES} object to be used for decrypting
+     * @param key            The {@link KeySource} of the key to use
+     * @param associatedData The same bytes the chunks were bound to when writing
+     */
+    public AESInputStream(InputStream in, AES aes, KeySource key, byte[] associatedData) {
+        this.in = new DataInputStream(in);
+        this.source = null;
+        this.aes = aes;
+        this.key = key;
+        this.streamData = associatedData;
+    }
+
+    /**
+     * Initializes the stream with a {@link ByteBuffer} whose remaining bytes are the encrypted chunks.
+     * The chunks are decrypted directly from the buffer without copying them, the buffer's position is moved behind each read chunk.
+     *
+     * @param source         The buffer to read the encrypted chunks from
+     * @param aes            The {@link AES} object to be used for decrypting
+     * @param key            The {@link KeySource} of the key to use
+     * @param associatedData The same bytes the chunks were bound to when writing
+     */
+    public AESInputStream(ByteBuffer source, AES aes, KeySource key, byte[] associatedData) {
+        this.in = null;
+        this.source = source;
+        this.aes = aes;
+        this.key = key;
+        this.streamData = associatedData;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill())
+            return -1;
+        return chunk[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!fill())
+            return -1;
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(chunk, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - pos;
+    }
+
+    /**
+     * Makes sure that there are decrypted bytes left by reading and decrypting the next chunk if necessary
+     *
+     * @return {@code false} if the last chunk was read completely
+     * @throws IOException                Error while reading or the stream was truncated
+     * @throws AES.WrongPasswordException The chunk couldn't be decrypted or doesn't belong to this position of the stream
+     */
+    private boolean fill() throws IOException {
+        while (pos == limit) {
+            if (finished)
+                return false;
+            if (associatedData == null) {
+                byte[] id = new byte[AESOutputStream.ID_LENGTH];
+                readFully(id);
+                associatedData = AESOutputStream.associatedData(streamData, id);
+            }
+            byte[] flagAndLength = new byte[1 + Integer.BYTES];
+            readFully(flagAndLength);
+            boolean last = flagAndLength[0] != 0;
+            int length = ByteBuffer.wrap(flagAndLength, 1, Integer.BYTES).getInt();
+            if (length < AES.sealedSize(0) || length > AES.sealedSize(AESOutputStream.MAX_CHUNK_SIZE)) {
+                throw new IOException("Invalid chunk length " + length);
+            }
+            if (chunk.length < length) {
+                // The buffers only grow, so they are allocated once for streams with chunks of the same size
+                chunk = new byte[length];
+            }
+            AESOutputStream.nextChunk(associatedData, index++, last);
+            if (source != null) {
+                if (source.remaining() < length) {
+                    throw new IOException("Encrypted stream ended without its last chunk");
+                }
+                ByteBuffer encryptedChunk = source.duplicate();
+                // Cast, so that the methods of Java 8 are called (they return ByteBuffer since Java 9)
+                ((Buffer) encryptedChunk).limit(source.position() + length);
+                ((Buffer) source).position(source.position() + length);
+                limit = aes.open(encryptedChunk, ByteBuffer.wrap(chunk), associatedData, key);
+            } else {
+                if (encrypted.length < length) {
+                    encrypted = new byte[length];
+                }
+                readFully(encrypted, length);
+                limit = aes.open(ByteBuffer.wrap(encrypted, 0, length), ByteBuffer.wrap(chunk), associatedData, key);
+            }
+            pos = 0;
+            finished = last;
+        }
+        return true;
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+        readFully(bytes, bytes.length);
+    }
+
+    /**
+     * Reads the next bytes of the encrypted stream
+     *
+     * @param bytes  The array to read into
+     * @param length The amount of bytes to read
+     * @throws IOException The stream ended before its last chunk
+     */
+    private void readFully(byte[] bytes, int length) throws IOException {
+        if (source != null) {
+            if (source.remaining() < length) {
+                throw new IOException("Encrypted stream ended without its last chunk");
+            }
+            source.get(bytes, 0, length);
+            return;
+        }
+        try {
+            in.readFully(bytes, 0, length);
+        } catch (EOFException e) {
+            throw new IOException("Encrypted stream ended without its last chunk", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package de.finnik.AES;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Creates an output stream that encrypts everything written to it in chunks of a fixed size.
+ * Thus the memory used while encrypting never exceeds a single chunk regardless of how much content is written.
+ * <p>
+ * The stream starts with a random id, followed by the chunks. Each chunk is written as a flag whether it's the last one,
+ * its sealed length and the bytes sealed via {@link AES#seal(ByteBuffer, ByteBuffer, byte[], KeySource)}. The associated data of a chunk
+ * consists of the associated data of the stream, the stream's id, the index of the chunk and the flag, so chunks can't be dropped, reordered
+ * or taken from another stream without {@link AESInputStream} noticing. The last chunk is always written, even if it's empty.
+ */
+public class AESOutputStream extends FilterOutputStream {
+    /**
+     * The default amount of plain bytes that are encrypted at once
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+    /**
+     * The maximum amount of plain bytes that are encrypted at once, larger chunks are rejected by {@link AESInputStream}
+     */
+    public static final int MAX_CHUNK_SIZE = 16 * CHUNK_SIZE;
+    /**
+     * The length of the random id at the beginning of the stream
+     */
+    static final int ID_LENGTH = 16;
+    /**
+     * The bytes behind the associated data of the stream inside the associated data of a chunk: the id, the index and the flag
+     */
+    private static final int SUFFIX_LENGTH = ID_LENGTH + Long.BYTES + 1;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final AES aes;
+    private final KeySource key;
+    private final DataOutputStream data;
+    private final byte[] associatedData;
+    private final byte[] chunk;
+    private final byte[] sealed;
+    private long index;
+    private int count;
+    private boolean started, closed;
+
+    /**
+     * Initializes the stream with another {@link OutputStream} and an {@link AES} object to be used for encrypting
+     *
+     * @param out            The {@link OutputStream} the encrypted chunks are written to
+     * @param aes            The {@link AES} object to be used for encrypting
+     * @param key            The {@link KeySource} of the key to use
+     * @param associatedData Bytes that every chunk is bound to, e.g. a header in front of the stream, they have to be the same when reading
+     * @param chunkSize      The amount of plain bytes that are encrypted at once, at most {@link AESOutputStream#MAX_CHUNK_SIZE}
+     */
+    public AESOutputStream(OutputStream out, AES aes, KeySource key, byte[] associatedData, int chunkSize) {
+        super(out);
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Unsupported chunk size " + chunkSize);
+        }
+        this.aes = aes;
+        this.key = key;
+        this.data = new DataOutputStream(out);
+        byte[] id = new byte[ID_LENGTH];
+        RANDOM.nextBytes(id);
+        this.associatedData = associatedData(associatedData, id);
+        this.chunk = new byte[chunkSize];
+        this.sealed = new byte[AES.sealedSize(chunkSize)];
+    }
+
+    /**
+     * Calls {@link AESOutputStream#AESOutputStream(OutputStream, AES, KeySource, byte[], int)} with {@link AESOutputStream#CHUNK_SIZE}
+     *
+     * @param out            The {@link OutputStream} the encrypted chunks are written to
+     * @param aes            The {@link AES} object to be used for encrypting
+     * @param key            The {@link KeySource} of the key to use
+     * @param associatedData Bytes that every chunk is bound to, they have to be the same when reading
+     */
+    public AESOutputStream(OutputStream out, AES aes, KeySource key, byte[] associatedData) {
+        this(out, aes, key, associatedData, CHUNK_SIZE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == chunk.length) {
+            writeChunk(false);
+        }
+        chunk[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == chunk.length) {
+                writeChunk(false);
+            }
+            int n = Math.min(len, chunk.length - count);
+            System.arraycopy(b, off, chunk, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Seals the buffered chunk and writes it to the underlying stream, the id of the stream is written in front of the first chunk
+     *
+     * @param last Whether it's the last chunk of the stream
+     * @throws IOException Error while writing
+     */
+    private void writeChunk(boolean last) throws IOException {
+        if (!started) {
+            data.write(associatedData, associatedData.length - SUFFIX_LENGTH, ID_LENGTH);
+            started = true;
+        }
+        nextChunk(associatedData, index++, last);
+        int length = aes.seal(ByteBuffer.wrap(chunk, 0, count), ByteBuffer.wrap(sealed), associatedData, key);
+        data.writeBoolean(last);
+        data.writeInt(length);
+        data.write(sealed, 0, length);
+        count = 0;
+    }
+
+    /**
+     * Creates the associated data of the chunks of a stream, {@link AESOutputStream#nextChunk(byte[], long, boolean)} fills in each chunk
+     *
+     * @param associatedData The associated data of the stream
+     * @param id             The id of the stream
+     * @return The associated data of the chunks
+     */
+    static byte[] associatedData(byte[] associatedData, byte[] id) {
+        byte[] chunkData = Arrays.copyOf(associatedData, associatedData.length + SUFFIX_LENGTH);
+        System.arraycopy(id, 0, chunkData, associatedData.length, ID_LENGTH);
+        return chunkData;
+    }
+
+    /**
+     * Writes the index of a chunk and whether it's the last one to the end of the associated data of the chunks
+     *
+     * @param chunkData The associated data created via {@link AESOutputStream#associatedData(byte[], byte[])}
+     * @param index     The index of the chunk
+     * @param last      Whether it's the last chunk
+     */
+    static void nextChunk(byte[] chunkData, long index, boolean last) {
+        ByteBuffer.wrap(chunkData, chunkData.length - Long.BYTES - 1, Long.BYTES + 1).putLong(index).put((byte) (last ? 1 : 0));
+    }
+
+    /**
+     * Seals and writes the last chunk and closes the underlying stream
+     *
+     * @throws IOException Error while writing
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            writeChunk(true);
+            data.flush();
+        } finally {
+            out.close();
+        }
+    }
+}
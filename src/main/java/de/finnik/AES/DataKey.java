@@ -0,0 +1,93 @@
+package de.finnik.AES;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * A random key that doesn't depend on any password.
+ * <p>
+ * Vault files are encrypted with a data key, which is itself stored encrypted with the key derived from the password (wrapped).
+ * Thus changing the password only means wrapping the same data key again, and files encrypted with the same data key
+ * can be read by everyone who knows it, whatever password they were wrapped with.
+ */
+public final class DataKey implements KeySource {
+    private static final int ID_LENGTH = 8;
+    private static final int KEY_LENGTH = 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final byte[] id;
+    private final SecretKeySpec key;
+
+    private DataKey(byte[] id, byte[] key) {
+        this.id = id;
+        this.key = new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * Generates a new data key with a random id
+     *
+     * @return The generated data key
+     */
+    public static DataKey generate() {
+        byte[] id = new byte[ID_LENGTH], key = new byte[KEY_LENGTH];
+        RANDOM.nextBytes(id);
+        RANDOM.nextBytes(key);
+        return new DataKey(id, key);
+    }
+
+    /**
+     * Creates a data key from an id and the bytes of an unwrapped key
+     *
+     * @param id  The id of the key
+     * @param key The bytes of the key
+     * @return The data key
+     */
+    public static DataKey of(byte[] id, byte[] key) {
+        return new DataKey(id.clone(), key);
+    }
+
+    /**
+     * The id tells which data key a file was encrypted with without having to unwrap the key
+     *
+     * @return The random id of this key
+     */
+    public byte[] getId() {
+        return id.clone();
+    }
+
+    /**
+     * @return The bytes of the key to wrap them
+     */
+    public byte[] getEncoded() {
+        return key.getEncoded();
+    }
+
+    /**
+     * Tells whether this key has a given id
+     *
+     * @param id The id
+     * @return Matching id or not
+     */
+    public boolean hasId(byte[] id) {
+        return Arrays.equals(this.id, id);
+    }
+
+    @Override
+    public SecretKeySpec key(CharSequence pass) {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DataKey dataKey = (DataKey) o;
+        return Arrays.equals(id, dataKey.id) && key.equals(dataKey.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(id);
+    }
+}
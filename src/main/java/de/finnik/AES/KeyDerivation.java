@@ -0,0 +1,228 @@
+package de.finnik.AES;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Describes how the key for en-/decrypting is derived from a password.
+ * <p>
+ * Besides the unsalted {@link AES.HashAlgorithm}s of older versions, there's a salted {@link KeyDerivation#PBKDF2} derivation
+ * whose cost (the amount of iterations) is calibrated on the current machine to take about {@link KeyDerivation#TARGET_MILLIS}.
+ * The parameters are stored inside the header of every vault file, the derived keys are cached by each {@link AES} object.
+ */
+public final class KeyDerivation implements KeySource {
+    /**
+     * The algorithm of the salted key derivation
+     */
+    public static final String PBKDF2 = "PBKDF2WithHmacSHA256";
+    /**
+     * The unsalted key derivations of older versions
+     */
+    public static final KeyDerivation SHA_256 = new KeyDerivation(AES.HashAlgorithm.SHA_256.name(), null, 0);
+    public static final KeyDerivation SHA_1 = new KeyDerivation(AES.HashAlgorithm.SHA_1.name(), null, 0);
+    /**
+     * The time a {@link KeyDerivation#PBKDF2} derivation should take on the current machine
+     */
+    public static final long TARGET_MILLIS = 300;
+    /**
+     * The least amount of iterations, no matter how fast the current machine is
+     */
+    public static final int MIN_ITERATIONS = 100_000;
+    /**
+     * The most iterations, no matter how slow the current machine is. Files asking for more are rejected, so a corrupt or crafted
+     * file can't keep the unlock busy for hours.
+     */
+    public static final int MAX_ITERATIONS = 10_000_000;
+
+    private static final int SALT_LENGTH = 16;
+    private static final int KEY_LENGTH = 128;
+    private static final int CALIBRATION_ITERATIONS = 20_000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The calibrated amount of iterations, see {@link KeyDerivation#calibratedIterations()}
+     */
+    private static int calibratedIterations;
+
+    private final String algorithm;
+    private final byte[] salt;
+    private final int iterations;
+
+    private KeyDerivation(String algorithm, byte[] salt, int iterations) {
+        this.algorithm = algorithm;
+        this.salt = salt;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Creates a {@link KeyDerivation#PBKDF2} derivation with given parameters
+     *
+     * @param salt       The salt
+     * @param iterations The amount of iterations
+     * @return The key derivation
+     */
+    public static KeyDerivation pbkdf2(byte[] salt, int iterations) {
+        return new KeyDerivation(PBKDF2, salt.clone(), iterations);
+    }
+
+    /**
+     * Creates a {@link KeyDerivation#PBKDF2} derivation with a random salt and the amount of iterations from {@link KeyDerivation#calibratedIterations()}
+     *
+     * @return The key derivation
+     */
+    public static KeyDerivation create() {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        return new KeyDerivation(PBKDF2, salt, calibratedIterations());
+    }
+
+    /**
+     * Returns the unsalted key derivation of a given {@link AES.HashAlgorithm}
+     *
+     * @param hashAlgorithm The hashing algorithm
+     * @return The key derivation
+     */
+    public static KeyDerivation legacy(AES.HashAlgorithm hashAlgorithm) {
+        return hashAlgorithm == AES.HashAlgorithm.SHA_1 ? SHA_1 : SHA_256;
+    }
+
+    /**
+     * Reads a key derivation that was written via {@link KeyDerivation#write(DataOutputStream)}
+     *
+     * @param in The stream to read from
+     * @return The read key derivation
+     * @throws IOException Error while reading, unknown algorithm or parameters outside of the supported range
+     */
+    public static KeyDerivation read(DataInputStream in) throws IOException {
+        String algorithm = in.readUTF();
+        if (algorithm.equals(PBKDF2)) {
+            byte[] salt = new byte[in.readUnsignedByte()];
+            in.readFully(salt);
+            if (salt.length < SALT_LENGTH) {
+                throw new IOException("The salt is too short: " + salt.length + " bytes");
+            }
+            int iterations = in.readInt();
+            if (iterations < MIN_ITERATIONS || iterations > MAX_ITERATIONS) {
+                throw new IOException("Unsupported amount of iterations " + iterations);
+            }
+            return new KeyDerivation(PBKDF2, salt, iterations);
+        }
+        try {
+            return legacy(AES.HashAlgorithm.valueOf(algorithm));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported key derivation " + algorithm, e);
+        }
+    }
+
+    /**
+     * Measures how many iterations of {@link KeyDerivation#PBKDF2} take about {@link KeyDerivation#TARGET_MILLIS} on the current machine.
+     * The calibration runs once on the first call and its result is kept for all following calls.
+     *
+     * @return The calibrated amount of iterations, between {@link KeyDerivation#MIN_ITERATIONS} and {@link KeyDerivation#MAX_ITERATIONS}
+     */
+    public static synchronized int calibratedIterations() {
+        if (calibratedIterations == 0) {
+            // The cost is doubled until a derivation takes long enough to be measured reliably, the first runs warm up the implementation
+            int measured = CALIBRATION_ITERATIONS;
+            long nanos;
+            while ((nanos = measure(measured)) < TARGET_MILLIS * 1_000_000L / 4 && measured < MIN_ITERATIONS * 100) {
+                measured *= 2;
+            }
+            long iterations = measured * TARGET_MILLIS * 1_000_000L / nanos;
+            calibratedIterations = (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations / 1000 * 1000));
+        }
+        return calibratedIterations;
+    }
+
+    /**
+     * Measures how long a {@link KeyDerivation#PBKDF2} derivation with a given amount of iterations takes
+     *
+     * @param iterations The amount of iterations
+     * @return The time in nanoseconds
+     */
+    public static long measure(int iterations) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        KeyDerivation derivation = pbkdf2(salt, iterations);
+        long start = System.nanoTime();
+        derivation.key("PassVault calibration");
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Derives the key from a given password
+     *
+     * @param pass The password
+     * @return The derived key
+     */
+    @Override
+    public SecretKeySpec key(CharSequence pass) {
+        if (!isSalted()) {
+            return AES.getSecretKey(pass, AES.HashAlgorithm.valueOf(algorithm));
+        }
+        char[] chars = new char[pass.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = pass.charAt(i);
+        }
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, KEY_LENGTH);
+        Arrays.fill(chars, '\0');
+        try {
+            return new SecretKeySpec(SecretKeyFactory.getInstance(PBKDF2).generateSecret(spec).getEncoded(), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error while deriving key: " + e.getMessage());
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Writes this key derivation with all of its parameters to a given stream
+     *
+     * @param out The stream to write to
+     * @throws IOException Error while writing
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeUTF(algorithm);
+        if (isSalted()) {
+            out.writeByte(salt.length);
+            out.write(salt);
+            out.writeInt(iterations);
+        }
+    }
+
+    /**
+     * @return Whether this is a {@link KeyDerivation#PBKDF2} derivation or one of the unsalted ones of older versions
+     */
+    public boolean isSalted() {
+        return salt != null;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        KeyDerivation that = (KeyDerivation) o;
+        return iterations == that.iterations && algorithm.equals(that.algorithm) && Arrays.equals(salt, that.salt);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hash(algorithm, iterations) + Arrays.hashCode(salt);
+    }
+}
@@ -0,0 +1,20 @@
+package de.finnik.AES;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Supplies the key an {@link AES} object en-/decrypts with.
+ * As {@link AES} objects cache the keys by their source, implementations have to override {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ *
+ * @see KeyDerivation
+ * @see DataKey
+ */
+public interface KeySource {
+    /**
+     * Returns the key for the password of an {@link AES} object
+     *
+     * @param pass The password
+     * @return The key
+     */
+    SecretKeySpec key(CharSequence pass);
+}
@@ -0,0 +1,163 @@
+package de.finnik.AES;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * A sequence of characters, e.g. a password, that is kept outside of the heap and can be wiped deterministically.
+ * <p>
+ * Unlike a {@link String}, a secret isn't copied around by the garbage collector and its characters are overwritten with zeros
+ * as soon as {@link Secret#wipe()} is called, either directly or by the {@link SecretArena} that allocated it.
+ * Accessing a wiped secret throws an {@link IllegalStateException}.
+ * <p>
+ * The characters should be read via {@link Secret#charAt(int)}, {@link Secret#subSequence(int, int)} or {@link Secret#toCharArray()}.
+ * {@link Secret#toString()} creates a {@link String} that can't be wiped, so it should only be used where an API requires one.
+ */
+public final class Secret implements CharSequence, AutoCloseable {
+    private final CharBuffer chars;
+    private final SecretArena arena;
+    private final int generation;
+    private boolean wiped;
+
+    /**
+     * @param chars      The buffer containing exactly the characters of the secret
+     * @param arena      The arena that allocated the secret or {@code null}
+     * @param generation The generation of the arena at allocation, see {@link SecretArena#isWiped(int)}
+     */
+    Secret(CharBuffer chars, SecretArena arena, int generation) {
+        // Absolute reads start at the beginning, no matter how the buffer was filled
+        ((Buffer) chars).clear();
+        this.chars = chars;
+        this.arena = arena;
+        this.generation = generation;
+    }
+
+    /**
+     * Copies characters into a new secret that isn't part of any {@link SecretArena}.
+     * The given array should be wiped by the caller afterwards.
+     *
+     * @param chars The characters
+     * @return The secret
+     */
+    public static Secret of(char[] chars) {
+        CharBuffer buffer = ByteBuffer.allocateDirect(chars.length * Character.BYTES).asCharBuffer();
+        buffer.put(chars);
+        return new Secret(buffer, null, 0);
+    }
+
+    /**
+     * Copies characters into a new secret that isn't part of any {@link SecretArena}
+     *
+     * @param chars The characters
+     * @return The secret
+     */
+    public static Secret of(CharSequence chars) {
+        CharBuffer buffer = ByteBuffer.allocateDirect(chars.length() * Character.BYTES).asCharBuffer();
+        buffer.append(chars);
+        return new Secret(buffer, null, 0);
+    }
+
+    @Override
+    public int length() {
+        check();
+        return chars.capacity();
+    }
+
+    @Override
+    public char charAt(int index) {
+        check();
+        return chars.get(index);
+    }
+
+    /**
+     * Returns a read-only view of a part of this secret, which doesn't copy the characters
+     *
+     * @param start The index of the first character
+     * @param end   The index after the last character
+     * @return The view
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        check();
+        CharBuffer view = chars.duplicate();
+        ((Buffer) view).limit(end);
+        ((Buffer) view).position(start);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Copies the characters into a new array, which should be wiped by the caller as soon as it isn't needed anymore
+     *
+     * @return The characters
+     */
+    public char[] toCharArray() {
+        check();
+        char[] copy = new char[chars.capacity()];
+        chars.duplicate().get(copy);
+        return copy;
+    }
+
+    /**
+     * Compares the characters with another sequence in a time that only depends on the length,
+     * so that a password can be checked without telling how much of it was right
+     *
+     * @param other The sequence to compare with
+     * @return Equal characters or not
+     */
+    public boolean contentEquals(CharSequence other) {
+        check();
+        if (other == null || other.length() != chars.capacity()) {
+            return false;
+        }
+        int difference = 0;
+        for (int i = 0; i < chars.capacity(); i++) {
+            difference |= chars.get(i) ^ other.charAt(i);
+        }
+        return difference == 0;
+    }
+
+    /**
+     * @return Whether the characters were overwritten via {@link Secret#wipe()} or {@link SecretArena#wipe()}
+     */
+    public boolean isWiped() {
+        return wiped || (arena != null && arena.isWiped(generation));
+    }
+
+    /**
+     * Overwrites the characters with zeros, the secret can't be used afterwards
+     */
+    public void wipe() {
+        if (!isWiped()) {
+            for (int i = 0; i < chars.capacity(); i++) {
+                chars.put(i, '\0');
+            }
+        }
+        wiped = true;
+    }
+
+    /**
+     * Calls {@link Secret#wipe()}
+     */
+    @Override
+    public void close() {
+        wipe();
+    }
+
+    /**
+     * Copies the characters into a {@link String}, which can't be wiped anymore
+     *
+     * @return The characters as a {@link String}
+     */
+    @Override
+    public String toString() {
+        check();
+        return chars.duplicate().toString();
+    }
+
+    private void check() {
+        if (isWiped()) {
+            throw new IllegalStateException("The secret has been wiped");
+        }
+    }
+}
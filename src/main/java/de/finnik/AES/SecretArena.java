@@ -0,0 +1,91 @@
+package de.finnik.AES;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocates {@link Secret}s in blocks of direct memory and wipes all of them at once, e.g. when PassVault is locked.
+ * <p>
+ * Secrets are taken one after another from blocks of {@link SecretArena#BLOCK_CHARS} characters, so revealing many small secrets
+ * doesn't need a direct buffer for each one. {@link SecretArena#wipe()} overwrites all blocks and invalidates every secret
+ * allocated so far, after which new secrets are allocated from fresh memory.
+ */
+public class SecretArena {
+    /**
+     * The amount of characters of each block, larger secrets get a block of their own
+     */
+    public static final int BLOCK_CHARS = 4096;
+
+    private final List<CharBuffer> blocks = new ArrayList<>();
+    private CharBuffer current;
+    private int generation;
+
+    /**
+     * Copies characters into a new secret of this arena
+     *
+     * @param chars The characters
+     * @return The secret
+     */
+    public synchronized Secret allocate(CharSequence chars) {
+        CharBuffer buffer = reserve(chars.length());
+        buffer.append(chars);
+        return new Secret(buffer, this, generation);
+    }
+
+    /**
+     * Copies a part of an array into a new secret of this arena. The array should be wiped by the caller afterwards.
+     *
+     * @param chars  The array
+     * @param offset The index of the first character
+     * @param length The amount of characters
+     * @return The secret
+     */
+    public synchronized Secret allocate(char[] chars, int offset, int length) {
+        CharBuffer buffer = reserve(length);
+        buffer.put(chars, offset, length);
+        return new Secret(buffer, this, generation);
+    }
+
+    /**
+     * Overwrites all secrets of this arena with zeros and releases their memory
+     */
+    public synchronized void wipe() {
+        for (CharBuffer block : blocks) {
+            for (int i = 0; i < block.capacity(); i++) {
+                block.put(i, '\0');
+            }
+        }
+        blocks.clear();
+        current = null;
+        generation++;
+    }
+
+    synchronized boolean isWiped(int generation) {
+        return this.generation != generation;
+    }
+
+    /**
+     * Takes the memory for a secret from the current block or a new one
+     *
+     * @param length The amount of characters
+     * @return A buffer with exactly the requested capacity
+     */
+    private CharBuffer reserve(int length) {
+        if (current == null || current.remaining() < length) {
+            CharBuffer block = ByteBuffer.allocateDirect(Math.max(BLOCK_CHARS, length) * Character.BYTES).asCharBuffer();
+            blocks.add(block);
+            if (length >= BLOCK_CHARS) {
+                // Doesn't replace the current block, as the rest of it may still be used
+                return block;
+            }
+            current = block;
+        }
+        CharBuffer reserved = current.slice();
+        ((Buffer) reserved).limit(length);
+        ((Buffer) current).position(current.position() + length);
+        return reserved.slice();
+    }
+}
@@ -0,0 +1,179 @@
+package de.finnik.api;
+
+import com.google.gson.*;
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.utils.PassUtils;
+
+import java.util.*;
+
+/**
+ * A batch of operations on the passwords, given as one json object per line:
+ * <ul>
+ *     <li>{@code {"op":"add","password":{"pass":"...","site":"...","user":"...","other":"..."}}}</li>
+ *     <li>{@code {"op":"update","id":"...","password":{"user":"..."}}}, only the given parameters are changed</li>
+ *     <li>{@code {"op":"delete","id":"..."}}</li>
+ * </ul>
+ * Every operation is checked when it's read ({@link Batch#read(int, String)}), but none is applied before {@link Batch#apply()},
+ * so the passwords are changed either by all operations or by none.
+ */
+class Batch {
+    private static final Gson GSON = new Gson();
+
+    private final List<Password> passwords;
+    /**
+     * All passwords by their id, including the ones added by this batch
+     */
+    private final Map<String, Password> byId = new HashMap<>();
+    private final Set<String> deleted = new HashSet<>();
+    private final List<Runnable> operations = new ArrayList<>();
+    private int added, updated, removed, failed;
+
+    /**
+     * @param passwords The passwords the operations are applied to
+     */
+    Batch(List<Password> passwords) {
+        this.passwords = passwords;
+        passwords.forEach(password -> byId.put(password.id(), password));
+    }
+
+    /**
+     * Reads and checks a single operation
+     *
+     * @param line The number of the line
+     * @param json The line
+     * @return The result of the check as json object or {@code null} if the line is empty
+     */
+    JsonObject read(int line, String json) {
+        if (json.trim().isEmpty()) {
+            return null;
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("line", line);
+        JsonElement element;
+        try {
+            element = JsonParser.parseString(json);
+        } catch (JsonParseException e) {
+            element = null;
+        }
+        if (element == null || !element.isJsonObject()) {
+            return fail(result, 50, "Line isn't a json object");
+        }
+        JsonObject operation = element.getAsJsonObject();
+        String op = string(operation, "op");
+        String id = string(operation, "id");
+        if (op == null) {
+            return fail(result, 51, "Line contains no op");
+        }
+        result.addProperty("op", op);
+        switch (op) {
+            case "add":
+                Password password;
+                try {
+                    password = operation.has("password") ? GSON.fromJson(operation.get("password"), Password.class) : null;
+                } catch (JsonParseException e) {
+                    return fail(result, 51, "Password isn't adequate to the json format");
+                }
+                if (password == null || password.isEmpty()) {
+                    return fail(result, 51, "Password has no valid parameters");
+                }
+                if (byId.containsKey(password.id())) {
+                    return fail(result, 52, "A password with id " + password.id() + " already exists");
+                }
+                byId.put(password.id(), password);
+                operations.add(() -> passwords.add(password));
+                added++;
+                id = password.id();
+                break;
+            case "update":
+                if (!exists(result, id)) {
+                    return result;
+                }
+                JsonObject parameters = operation.has("password") && operation.get("password").isJsonObject() ? operation.getAsJsonObject("password") : null;
+                if (parameters == null) {
+                    return fail(result, 51, "Update contains no password");
+                }
+                String pass = string(parameters, "pass"), site = string(parameters, "site"), user = string(parameters, "user"), other = string(parameters, "other");
+                if (pass == null && site == null && user == null && other == null) {
+                    return fail(result, 51, "Update contains no parameter");
+                }
+                Password target = byId.get(id);
+                operations.add(() -> {
+                    if (pass != null) target.setPass(pass);
+                    if (site != null) target.setSite(site);
+                    if (user != null) target.setUser(user);
+                    if (other != null) target.setOther(other);
+                });
+                updated++;
+                break;
+            case "delete":
+                if (!exists(result, id)) {
+                    return result;
+                }
+                deleted.add(id);
+                Password toDelete = byId.get(id);
+                // Deleted passwords stay as empty passwords, so the deletion is synchronized with Drive
+                operations.add(() -> PassUtils.deletePassword(toDelete));
+                removed++;
+                break;
+            default:
+                return fail(result, 51, "Unknown op " + op);
+        }
+        result.addProperty("id", id);
+        result.addProperty("ok", true);
+        return result;
+    }
+
+    /**
+     * Applies all operations, it mustn't be called if any operation failed
+     */
+    void apply() {
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " operations failed");
+        }
+        operations.forEach(Runnable::run);
+    }
+
+    private boolean exists(JsonObject result, String id) {
+        if (id == null) {
+            fail(result, 51, "Line contains no id");
+            return false;
+        }
+        if (!byId.containsKey(id) || deleted.contains(id)) {
+            fail(result, 52, "No password with id " + id + " exists");
+            return false;
+        }
+        return true;
+    }
+
+    private JsonObject fail(JsonObject result, int code, String message) {
+        failed++;
+        result.addProperty("ok", false);
+        result.addProperty("code", code);
+        result.addProperty("message", message);
+        return result;
+    }
+
+    /**
+     * @return The value of a member if it is a string, otherwise {@code null}
+     */
+    private static String string(JsonObject object, String member) {
+        JsonElement element = object.get(member);
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString() ? element.getAsString() : null;
+    }
+
+    int getAdded() {
+        return added;
+    }
+
+    int getUpdated() {
+        return updated;
+    }
+
+    int getDeleted() {
+        return removed;
+    }
+
+    int getFailed() {
+        return failed;
+    }
+}
@@ -1,23 +1,36 @@
 package de.finnik.api;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
+import de.finnik.AES.AES;
 import de.finnik.gui.PassVault;
+import de.finnik.passvault.ConfigStore;
+import de.finnik.passvault.Launcher;
+import de.finnik.passvault.PassProperty;
 import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.VaultFormat;
+import de.finnik.passvault.search.Frecency;
+import de.finnik.passvault.search.Ranking;
+import de.finnik.passvault.search.SortedView;
+import de.finnik.passvault.search.TopK;
 import de.finnik.passvault.utils.PassUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.*;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static de.finnik.gui.Var.*;
@@ -25,18 +38,249 @@ import static de.finnik.gui.Var.*;
 /**
  * Allows you to kind of manage your passwords out of the command line.
  * If you append arguments to the execution this constructor will be fired.
+ * <p>
+ * The api either asks for the main password via {@link PassVault.CheckFrame} or, if it runs headless ({@link PassAPI#headless(String[])}),
+ * reads it from the terminal, the standard input or a file without loading the AWT at all.
  *
  * @see PassAPI#PassAPI(String[])
  */
 public class PassAPI {
+    /**
+     * Forces the headless mode, even if a display is available
+     */
+    public static final String HEADLESS = "--headless";
+    /**
+     * Reads the main password from the first line of the standard input
+     */
+    public static final String PASSWORD_STDIN = "--password-stdin";
+    /**
+     * Reads the main password from the first line of the following file, e.g. {@code /dev/fd/3}
+     */
+    public static final String PASSWORD_FILE = "--password-file";
+    /**
+     * Doesn't send the command to a running {@link PassAgent}
+     */
+    public static final String NO_AGENT = "--no-agent";
+
+    /**
+     * The commands a running {@link PassAgent} answers instead of the headless api
+     */
+    private static final List<String> AGENT_COMMANDS = Arrays.asList("add", "get", "list", "agent");
+
+    private final Logger log;
+    private final File appDir;
+    private final File passwords;
+    private final Properties appInfo;
+    private final ResourceBundle lang;
+    private final ConfigStore config;
+    private final Unlock unlock;
+    /**
+     * The input of the commands
+     */
+    private final BufferedReader in;
+    /**
+     * The output of the commands
+     */
+    private final PrintStream out;
+    /**
+     * Ends the command with a given status after an error
+     */
+    private final IntConsumer exit;
 
     /**
-     * Takes the arguments that are given to the main application
+     * Takes the arguments that are given to the main application and asks for the main password via {@link PassVault.CheckFrame}
      *
      * @param args The arguments
      * @see PassVault#main(String[])
      */
     public PassAPI(String[] args) {
+        this(LOG, APP_DIR, PASSWORDS, APP_INFO, LANG, PassProperty.CONFIG,
+                (message, read, after) -> new PassVault.CheckFrame(after, message).setVisible(true), stdin(), System.out, System::exit);
+        run(args);
+    }
+
+    private PassAPI(Logger log, File appDir, File passwords, Properties appInfo, ResourceBundle lang, ConfigStore config, Unlock unlock,
+                    BufferedReader in, PrintStream out, IntConsumer exit) {
+        this.log = log;
+        this.appDir = appDir;
+        this.passwords = passwords;
+        this.appInfo = appInfo;
+        this.lang = lang;
+        this.config = config;
+        this.unlock = unlock;
+        this.in = in;
+        this.out = out;
+        this.exit = exit;
+    }
+
+    /**
+     * Tells whether the api should run via {@link PassAPI#headless(String[])}: If it's forced via {@link PassAPI#HEADLESS},
+     * the main password is given via an option, the command doesn't need the main password at all or there is no display.
+     *
+     * @param args The arguments that are given to the main application
+     * @return Headless or not
+     */
+    public static boolean isHeadless(String[] args) {
+        List<String> arguments = Arrays.asList(args);
+        if (arguments.contains(HEADLESS) || arguments.contains(PASSWORD_STDIN) || arguments.contains(PASSWORD_FILE) || args[0].equals("version")) {
+            return true;
+        }
+        if (Boolean.getBoolean("java.awt.headless")) {
+            return true;
+        }
+        // Without an X11 or Wayland display, the AWT couldn't open any window on Linux and other Unix systems
+        String os = System.getProperty("os.name").toLowerCase();
+        return !os.contains("win") && !os.contains("mac") && System.getenv("DISPLAY") == null && System.getenv("WAYLAND_DISPLAY") == null;
+    }
+
+    /**
+     * Runs the api without any graphical interface. Nothing of {@link de.finnik.gui.Var} is initialized,
+     * so that neither fonts nor images are loaded and the AWT isn't touched.
+     * The main password is read from the first line of the standard input ({@link PassAPI#PASSWORD_STDIN}),
+     * of a file ({@link PassAPI#PASSWORD_FILE}) or from the terminal without echoing.
+     * If a {@link PassAgent} is running, it answers the command instead and no main password is needed.
+     *
+     * @param args The arguments that are given to the main application
+     */
+    public static void headless(String[] args) {
+        Logger log = LoggerFactory.getLogger("API");
+
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        arguments.remove(HEADLESS);
+        boolean noAgent = arguments.remove(NO_AGENT);
+        boolean stdin = arguments.remove(PASSWORD_STDIN);
+        File passwordFile = null;
+        int index = arguments.indexOf(PASSWORD_FILE);
+        if (index >= 0) {
+            if (index + 1 == arguments.size()) {
+                abort(30, "No file to read the main password from was given");
+            }
+            passwordFile = new File(arguments.remove(index + 1));
+            arguments.remove(index);
+        }
+        if (arguments.isEmpty()) {
+            abort(30, "No command was given");
+        }
+
+        File appDir = Launcher.appDir();
+        if (!noAgent && AGENT_COMMANDS.contains(arguments.get(0))) {
+            PassAgent.Response response = PassAgent.request(appDir, arguments.toArray(new String[0]));
+            if (response != null) {
+                System.out.print(response.getOutput());
+                System.out.flush();
+                System.exit(response.getStatus());
+            }
+        }
+
+        Properties appInfo = new Properties();
+        try {
+            appInfo = Launcher.loadAppInfo();
+        } catch (IOException e) {
+            log.error("Error while reading application.properties!", e);
+        }
+
+        // Only the plain section of the configuration is needed for the language
+        ConfigStore config = new ConfigStore(new File(appDir, "config"), new File(appDir, "hints"));
+        String language = Locale.getDefault().getLanguage();
+        try {
+            config.load();
+            language = config.getProperties().getOrDefault(PassProperty.LANG.name(), language);
+        } catch (IOException e) {
+            log.error("Error while reading the configuration!", e);
+        }
+        ResourceBundle lang = ResourceBundle.getBundle("passvault", new Locale(language));
+
+        File passwords = new File(appDir, "pass");
+        File finalPasswordFile = passwordFile;
+        BufferedReader input = stdin();
+        new PassAPI(log, appDir, passwords, appInfo, lang, config, (message, read, after) -> {
+            if (passwords.length() == 0) {
+                System.out.println(404);
+                return;
+            }
+            if (message != null) {
+                // The standard output only contains the result
+                System.err.println(message);
+            }
+
+            char[] pass = null;
+            try {
+                if (stdin) {
+                    // The following lines of the standard input may be read by the command
+                    pass = readLine(input);
+                } else if (finalPasswordFile != null) {
+                    try (Reader reader = new InputStreamReader(new FileInputStream(finalPasswordFile), StandardCharsets.UTF_8)) {
+                        pass = readLine(reader);
+                    }
+                } else if (System.console() != null) {
+                    pass = System.console().readPassword("%s ", lang.getString("check.lbl.pass"));
+                }
+            } catch (IOException e) {
+                log.error("Error while reading the main password!", e);
+            }
+            if (pass == null) {
+                abort(30, String.format("The main password couldn't be read, use %s or %s <file>", PASSWORD_STDIN, PASSWORD_FILE));
+            }
+
+            AES aes = new AES(pass);
+            Arrays.fill(pass, '\0');
+            if (!read) {
+                after.accept(aes, null);
+                return;
+            }
+            List<Password> passwordList = null;
+            try {
+                passwordList = VaultFormat.read(passwords, aes);
+            } catch (AES.WrongPasswordException e) {
+                abort(31, lang.getString("jop.wrongPass"));
+            } catch (IOException e) {
+                log.error("Error while reading passwords from {}!", passwords.getAbsolutePath(), e);
+                abort(32, "The passwords couldn't be read");
+            }
+            after.accept(aes, passwordList);
+        }, input, System.out, System::exit).run(arguments.toArray(new String[0]));
+    }
+
+    /**
+     * @return A reader of the standard input
+     */
+    private static BufferedReader stdin() {
+        return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a single line into a char array, so that the main password never becomes a {@link String}.
+     * The copies the line passes through are overwritten.
+     *
+     * @param reader The reader to read from
+     * @return The line without its line break
+     * @throws IOException Error while reading
+     */
+    private static char[] readLine(Reader reader) throws IOException {
+        char[] line = new char[64];
+        int length = 0, c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            if (length == line.length) {
+                char[] grown = Arrays.copyOf(line, length * 2);
+                Arrays.fill(line, '\0');
+                line = grown;
+            }
+            line[length++] = (char) c;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        char[] pass = Arrays.copyOf(line, length);
+        Arrays.fill(line, '\0');
+        return pass;
+    }
+
+    /**
+     * Runs the command given by the arguments
+     *
+     * @param args The command followed by its arguments
+     */
+    private void run(String[] args) {
         try {
             Method method = PassAPI.class.getDeclaredMethod(args[0], String[].class);
             if (!method.isAnnotationPresent(Command.class))
@@ -44,10 +288,15 @@ public class PassAPI {
             if (Arrays.asList(args).contains("help"))
                 throw new IllegalAccessException();
             method.invoke(
-                    null, (Object) Arrays.copyOfRange(args, 1, args.length));
+                    this, (Object) Arrays.copyOfRange(args, 1, args.length));
         } catch (NoSuchMethodException e) {
             printCommands(args[0]);
-        } catch (IllegalAccessException | InvocationTargetException e) {
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Failure) {
+                throw (Failure) e.getCause();
+            }
+            printHelp(args[0]);
+        } catch (IllegalAccessException e) {
             printHelp(args[0]);
         }
     }
@@ -59,7 +308,7 @@ public class PassAPI {
      * @param args The input json object
      */
     @Command(description = "Add a password to the passwords list")
-    private static void add(String[] args) {
+    private void add(String[] args) {
         Password password = null;
 
         try {
@@ -75,41 +324,366 @@ public class PassAPI {
 
         Password finalPassword = password;
 
-        PassVault.CheckFrame checkFrame = new PassVault.CheckFrame((pass, passwords) -> {
-            passwords.add(finalPassword);
-            Password.savePasswords(passwords, PASSWORDS, pass);
-            LOG.info(Password.log(finalPassword, "User added password"));
+        unlock.unlock(null, true, (pass, passwordList) -> {
+            passwordList.add(finalPassword);
+            save(pass, passwordList);
+            log.info(Password.log(finalPassword, "User added password"));
         });
-        checkFrame.setVisible(true);
+    }
+
+    /**
+     * Allows you to add, update and delete many passwords at once.
+     * Expects one json object per line of the standard input, see {@link Batch}. All operations are checked first and then
+     * applied together, the passwords are saved only once. If any operation fails, nothing is changed.
+     * A json object with the result is printed for every line, followed by a summary.
+     *
+     * @param args Empty
+     */
+    @Command(description = "Add, update and delete passwords given as json lines via the standard input")
+    private void batch(String[] args) {
+        unlock.unlock(null, true, (pass, passwordList) -> {
+            long start = System.nanoTime();
+            Batch batch = new Batch(passwordList);
+            int lines = 0;
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    JsonObject result = batch.read(++lines, line);
+                    if (result != null) {
+                        out.println(result);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Error while reading batch!", e);
+                error(54, "The operations couldn't be read");
+            }
+            boolean apply = batch.getFailed() == 0;
+            if (apply) {
+                batch.apply();
+                save(pass, passwordList);
+            }
+            long nanos = System.nanoTime() - start;
+            int operations = batch.getAdded() + batch.getUpdated() + batch.getDeleted();
+
+            JsonObject summary = new JsonObject();
+            summary.addProperty("lines", lines);
+            summary.addProperty("added", batch.getAdded());
+            summary.addProperty("updated", batch.getUpdated());
+            summary.addProperty("deleted", batch.getDeleted());
+            summary.addProperty("failed", batch.getFailed());
+            summary.addProperty("applied", apply);
+            summary.addProperty("millis", nanos / 1_000_000);
+            summary.addProperty("operationsPerSecond", nanos == 0 ? 0 : Math.round(operations * 1e9 / nanos));
+            JsonObject result = new JsonObject();
+            result.add("summary", summary);
+            out.println(result);
+
+            log.info("User added {}, updated {} and deleted {} passwords via batch!", batch.getAdded(), batch.getUpdated(), batch.getDeleted());
+            if (!apply) {
+                error(53, batch.getFailed() + " operations failed, nothing was changed");
+            }
+        });
+    }
+
+    /**
+     * Saves the passwords to {@link PassAPI#passwords}
+     *
+     * @param aes          The {@link AES} object to encrypt
+     * @param passwordList The passwords
+     */
+    private void save(AES aes, List<Password> passwordList) {
+        try {
+            VaultFormat.write(passwordList, new BufferedOutputStream(new FileOutputStream(passwords)), aes, VaultFormat.Mode.ENTRY);
+        } catch (IOException e) {
+            log.error("Error while saving passwords to {}!", passwords.getAbsolutePath(), e);
+            error(22, "The passwords couldn't be saved");
+        }
     }
 
     /**
      * Allows you to get all passwords matching to a keyword.
-     * Expects a keyword as input and optionally -p as argument to enable pretty printing for the output json objects.
+     * Expects a keyword as input and optionally the output options ({@link PassAPI#options(String[], List)}).
+     * The matching passwords are written one by one, so the output never has to exist as a whole in memory.
+     * With {@code --top <n>}, only the n best matching passwords are printed, the best first ({@link Ranking}).
      *
-     * @param args The key word and if necessary -p option
+     * @param args The key word and if necessary the output options
      */
     @Command(description = "Search a password matching with a given keyword")
-    private static void get(String[] args) {
-        if (args[0].length() < 3) {
+    private void get(String[] args) {
+        OutputOptions options = options(args, PasswordOutput.FIELDS);
+        String key = options.arguments.get(0);
+        if (key.length() < 3) {
             error(11, "The input must be at least three characters long");
         }
-        PassVault.CheckFrame checkFrame = new PassVault.CheckFrame((pass, passwords) -> {
-            List<Password> matching = PassUtils.getAllMatchingPasswords(args[0], passwords);
-            if (matching.size() == 0) {
+        unlock.unlock(String.format(lang.getString("api.get.warning"), key), false, (pass, passwordList) -> {
+            PasswordOutput output;
+            if (options.top > 0) {
+                Ranking ranking = new Ranking(key, Frecency.parse(properties(pass).get(PassProperty.FRECENCY.name())), System.currentTimeMillis());
+                TopK<Password> best = new TopK<>(options.top);
+                forEach(pass, passwordList, password -> {
+                    int score = ranking.score(password);
+                    if (score > 0) {
+                        best.offer(password, score);
+                    }
+                });
+                output = print(pass, best.result(), options, password -> true);
+            } else {
+                output = print(pass, passwordList, options, password -> PassUtils.matches(password, key));
+            }
+            if (output.getCount() == 0) {
                 error(10, "No matching passwords were found");
             }
+            close(output);
+
+            log.info("User got information about passwords containing {}!", key);
+        });
+    }
+
+    /**
+     * Allows you to get the site and user of all passwords, the secret parameters aren't printed.
+     * Expects optionally the output options ({@link PassAPI#options(String[], List)}), only the fields that aren't secret can be chosen.
+     * The passwords are printed in the order of the vault, with {@code --sort <order>} they're collected in a {@link SortedView} first.
+     *
+     * @param args If necessary the output options
+     */
+    @Command(description = "List the site and user of all passwords")
+    private void list(String[] args) {
+        OutputOptions options = options(args, PasswordOutput.METADATA);
+        unlock.unlock(null, false, (pass, passwordList) -> {
+            if (options.sort != null) {
+                SortedView sortedView = new SortedView(options.sort);
+                forEach(pass, passwordList, sortedView::add);
+                close(print(pass, sortedView.passwords(), options, password -> true));
+            } else {
+                close(print(pass, passwordList, options, password -> !password.isDeleted()));
+            }
+
+            log.info("User got a list of all passwords!");
+        });
+    }
+
+    /**
+     * Allows you to export all passwords including their secret parameters.
+     * Expects optionally the output options ({@link PassAPI#options(String[], List)}).
+     * The passwords are read from the file and written one by one, so even a large vault is exported with constant memory.
+     * That's why a running {@link PassAgent} never answers this command.
+     *
+     * @param args If necessary the output options
+     */
+    @Command(description = "Export all passwords")
+    private void export(String[] args) {
+        OutputOptions options = options(args, PasswordOutput.FIELDS);
+        unlock.unlock(null, false, (pass, passwordList) -> {
+            PasswordOutput output = print(pass, passwordList, options, password -> !password.isDeleted());
+            close(output);
+
+            log.info("User exported {} passwords!", output.getCount());
+        });
+    }
+
+    /**
+     * Parses the options of the commands that print passwords:
+     * <ul>
+     *     <li>{@code -p} enables pretty printing for the json format</li>
+     *     <li>{@code --format json|ndjson|tsv} chooses the {@link PasswordOutput.Format}</li>
+     *     <li>{@code --fields <field>,<field>} chooses the printed fields out of the given ones</li>
+     *     <li>{@code --limit <n>} prints at most n passwords</li>
+     *     <li>{@code --top <n>} ranks the passwords and keeps the n best ones, only used by {@link PassAPI#get(String[])}</li>
+     *     <li>{@code --sort site|user|modified} sorts the passwords ({@link SortedView.Order}), only used by {@link PassAPI#list(String[])}</li>
+     * </ul>
+     *
+     * @param args   The arguments of the command
+     * @param fields The fields that may be chosen, all of them are printed by default
+     * @return The options, all other arguments are kept in {@link OutputOptions#arguments}
+     */
+    private OutputOptions options(String[] args, List<String> fields) {
+        OutputOptions options = new OutputOptions(fields);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-p":
+                    options.pretty = true;
+                    break;
+                case "--format":
+                    String format = args[++i];
+                    try {
+                        options.format = PasswordOutput.Format.valueOf(format.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        error(12, "Unknown format " + format);
+                    }
+                    break;
+                case "--fields":
+                    options.fields = Arrays.asList(args[++i].split(","));
+                    for (String field : options.fields) {
+                        if (!fields.contains(field)) {
+                            error(12, String.format("Unknown field %s, use some of %s", field, String.join(",", fields)));
+                        }
+                    }
+                    break;
+                case "--limit":
+                    try {
+                        options.limit = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        options.limit = -1;
+                    }
+                    if (options.limit < 0) {
+                        error(13, "The limit must be a number that isn't negative");
+                    }
+                    break;
+                case "--top":
+                    try {
+                        options.top = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        options.top = 0;
+                    }
+                    if (options.top < 1) {
+                        error(13, "Top must be a positive number");
+                    }
+                    break;
+                case "--sort":
+                    String order = args[++i];
+                    try {
+                        options.sort = SortedView.Order.of(order);
+                    } catch (IllegalArgumentException e) {
+                        error(12, "Unknown order " + order);
+                    }
+                    break;
+                default:
+                    options.arguments.add(args[i]);
+            }
+        }
+        return options;
+    }
 
-            GsonBuilder builder = new GsonBuilder();
-            if (Arrays.asList(args).contains("-p")) {
-                builder.setPrettyPrinting();
+    /**
+     * Writes all passwords that pass a filter, up to the limit of the options. If the passwords weren't read yet,
+     * they're read from {@link PassAPI#passwords} one by one without keeping them.
+     *
+     * @param aes          The {@link AES} object to decrypt
+     * @param passwordList The passwords or {@code null} to read them from the file
+     * @param options      The output options
+     * @param filter       Chooses the passwords to write
+     * @return The output, which still has to be closed
+     */
+    private PasswordOutput print(AES aes, List<Password> passwordList, OutputOptions options, Predicate<Password> filter) {
+        PasswordOutput output = new PasswordOutput(out, options.format, options.fields, options.pretty);
+        try {
+            forEach(aes, passwordList, password -> {
+                if (output.getCount() == options.limit) {
+                    throw new LimitReached();
+                }
+                if (filter.test(password)) {
+                    try {
+                        output.write(password);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.error("Error while printing passwords!", e);
+            error(14, "The passwords couldn't be printed");
+        }
+        return output;
+    }
+
+    /**
+     * Hands all passwords to an action. If the passwords weren't read yet, they're read from {@link PassAPI#passwords} one by one
+     * without keeping them. The action may throw {@link LimitReached} to skip the remaining passwords.
+     *
+     * @param aes          The {@link AES} object to decrypt
+     * @param passwordList The passwords or {@code null} to read them from the file
+     * @param action       The action
+     */
+    private void forEach(AES aes, List<Password> passwordList, Consumer<Password> action) {
+        try {
+            if (passwordList != null) {
+                passwordList.forEach(action);
+            } else {
+                VaultFormat.read(passwords, aes, action);
+            }
+        } catch (LimitReached ignored) {
+            // Nothing more is needed, so the remaining passwords aren't read
+        } catch (AES.WrongPasswordException e) {
+            error(31, lang.getString("jop.wrongPass"));
+        } catch (IOException e) {
+            log.error("Error while reading passwords from {}!", passwords.getAbsolutePath(), e);
+            error(32, "The passwords couldn't be read");
+        }
+    }
+
+    private void close(PasswordOutput output) {
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.error("Error while printing passwords!", e);
+            error(14, "The passwords couldn't be printed");
+        }
+    }
+
+    /**
+     * Starts a {@link PassAgent}, which keeps the passwords in memory and answers the commands of following calls of the api.
+     * Expects optionally the action (start, stop or status) and the seconds the agent may be unused before it exits.
+     * Without these seconds, the agent exits like the main application after {@link PassProperty#INACTIVITY_TIME}.
+     * Stop and status are answered by the running agent itself.
+     *
+     * @param args The action and if necessary the seconds
+     */
+    @Command(description = "Keep the passwords in memory and answer the commands of following calls")
+    private void agent(String[] args) {
+        String action = args.length > 0 ? args[0] : "start";
+        if (!action.equals("start")) {
+            if (!action.equals("stop") && !action.equals("status")) {
+                throw new IllegalArgumentException(action);
+            }
+            error(40, "No agent is running");
+            return;
+        }
+        Integer seconds = args.length > 1 ? Integer.parseInt(args[1]) : null;
+        unlock.unlock(null, true, (pass, passwordList) -> {
+            int inactivity = seconds != null ? seconds : inactivity(pass);
+            PassAgent agent = new PassAgent(appDir, passwords, pass, passwordList, inactivity, (arguments, agentPass, agentPasswords, agentOut) ->
+                    new PassAPI(log, appDir, passwords, appInfo, lang, config, (message, read, after) -> after.accept(agentPass, agentPasswords),
+                            new BufferedReader(new StringReader("")), agentOut, status -> {
+                        throw new Failure(status);
+                    }).run(arguments), log);
+            try {
+                out.printf("Agent is listening on port %d\n", agent.start());
+            } catch (IOException e) {
+                log.error("Error while starting agent!", e);
+                error(41, "The agent couldn't be started");
             }
+        });
+    }
 
-            System.out.println(builder.create().toJson(matching));
+    /**
+     * Reads the time the user configured for the inactivity lock of the main application
+     *
+     * @param aes The {@link AES} object to decrypt the configuration
+     * @return The time in seconds, 0 if the lock is disabled
+     */
+    private int inactivity(AES aes) {
+        Map<String, String> properties = properties(aes);
+        if ("false".equals(properties.get(PassProperty.INACTIVITY_LOCK.name()))) {
+            return 0;
+        }
+        return Integer.parseInt(properties.getOrDefault(PassProperty.INACTIVITY_TIME.name(), "30"));
+    }
 
-            LOG.info("User got information about passwords containing {}!", args[0]);
-        }, String.format(LANG.getString("api.get.warning"), args[0]));
-        checkFrame.setVisible(true);
+    /**
+     * Reads the properties the user configured in the main application
+     *
+     * @param aes The {@link AES} object to decrypt the configuration
+     * @return The properties, empty if they couldn't be read or decrypted
+     */
+    private Map<String, String> properties(AES aes) {
+        try {
+            if (config.unlock(aes)) {
+                return config.getProperties();
+            }
+        } catch (IOException e) {
+            log.error("Error while reading the configuration!", e);
+        }
+        return Collections.emptyMap();
     }
 
     /**
@@ -119,9 +693,20 @@ public class PassAPI {
      * @param args Empty
      */
     @Command(description = "Get information about the installed version of PassVault")
-    private static void version(String[] args) {
-        System.out.printf("%s %s by %s\n", APP_INFO.getProperty("app.name"), APP_INFO.getProperty("app.version"), APP_INFO.getProperty("app.author"));
-        LOG.info("User got information about the installed version of PassVault!");
+    private void version(String[] args) {
+        out.printf("%s %s by %s\n", appInfo.getProperty("app.name"), appInfo.getProperty("app.version"), appInfo.getProperty("app.author"));
+        log.info("User got information about the installed version of PassVault!");
+    }
+
+    /**
+     * Will warn the user that the command wasn't successful and end it via {@link PassAPI#exit}
+     *
+     * @param code    The error code
+     * @param message The error message to display
+     */
+    private void error(int code, String message) {
+        out.printf("!%d %s\n", code, message);
+        exit.accept(1);
     }
 
     /**
@@ -130,7 +715,7 @@ public class PassAPI {
      * @param code    The error code
      * @param message The error message to display
      */
-    private static void error(int code, String message) {
+    private static void abort(int code, String message) {
         System.out.printf("!%d %s\n", code, message);
         System.exit(1);
     }
@@ -141,13 +726,13 @@ public class PassAPI {
      * @param command The command to get more information from
      */
     private void printHelp(String command) {
-        InputStream inputStream = PassVault.class.getResourceAsStream("/help/api_help/" + command + ".help");
+        InputStream inputStream = PassAPI.class.getResourceAsStream("/help/api_help/" + command + ".help");
         if (inputStream == null)
             return;
         Arrays.stream(PassAPI.class.getDeclaredMethods())
                 .filter(method -> method.isAnnotationPresent(Command.class) && method.getName().equals(command))
                 .map(method -> method.getDeclaredAnnotation(Command.class).description())
-                .forEach(description -> System.out.printf(new BufferedReader(new InputStreamReader(inputStream)).lines().collect(Collectors.joining(System.lineSeparator())) + "\n", description));
+                .forEach(description -> out.printf(new BufferedReader(new InputStreamReader(inputStream)).lines().collect(Collectors.joining(System.lineSeparator())) + "\n", description));
     }
 
     /**
@@ -157,12 +742,82 @@ public class PassAPI {
      * @param command The invalid command entered by the user
      */
     private void printCommands(String command) {
-        System.out.printf("%s is not a valid command! You should probably use one of the following commands:\n\n", command);
+        out.printf("%s is not a valid command! You should probably use one of the following commands:\n\n", command);
         Arrays.stream(PassAPI.class.getDeclaredMethods())
                 .filter(method -> method.isAnnotationPresent(Command.class))
-                .forEach(method -> System.out.printf("\t%s\n\t\t\t%s\n", method.getName(), method.getDeclaredAnnotation(Command.class).description()));
+                .forEach(method -> out.printf("\t%s\n\t\t\t%s\n", method.getName(), method.getDeclaredAnnotation(Command.class).description()));
+
+        out.println("\t<command> help\n\t\t\tGet help for the command <command>\n");
+        out.printf("\t%s\n\t\t\tRun without any window, even if a display is available\n", HEADLESS);
+        out.printf("\t%s\n\t\t\tRead the main password from the first line of the standard input\n", PASSWORD_STDIN);
+        out.printf("\t%s <file>\n\t\t\tRead the main password from the first line of <file>, e.g. /dev/fd/3\n", PASSWORD_FILE);
+        out.printf("\t%s\n\t\t\tDon't send the command to a running agent\n\n", NO_AGENT);
+    }
 
-        System.out.println("\t<command> help\n\t\t\tGet help for the command <command>\n");
+    /**
+     * Asks for the main password, reads the passwords with it and hands them over
+     */
+    @FunctionalInterface
+    private interface Unlock {
+        /**
+         * @param message An additional message that is displayed while asking, may be {@code null}
+         * @param read    Whether the passwords have to be read. If not, they may be handed over as {@code null},
+         *                so that the command reads them from {@link PassAPI#passwords} itself
+         * @param after   Handles the {@link AES} object and the read passwords
+         */
+        void unlock(String message, boolean read, BiConsumer<AES, List<Password>> after);
+    }
+
+    /**
+     * The options of the commands that print passwords, see {@link PassAPI#options(String[], List)}
+     */
+    private static class OutputOptions {
+        final List<String> arguments = new ArrayList<>();
+        PasswordOutput.Format format = PasswordOutput.Format.JSON;
+        List<String> fields;
+        boolean pretty;
+        int limit = Integer.MAX_VALUE;
+        /**
+         * The amount of best matching passwords to keep, 0 if the passwords aren't ranked
+         */
+        int top;
+        /**
+         * The order of the passwords, {@code null} if they keep the order of the vault
+         */
+        SortedView.Order sort;
+
+        OutputOptions(List<String> fields) {
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Stops reading the passwords as soon as the limit of printed passwords is reached
+     */
+    private static class LimitReached extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LimitReached() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Ends a command that runs inside a {@link PassAgent} after an error, instead of stopping the program
+     */
+    static class Failure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        Failure(int status) {
+            super(null, null, false, false);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
     }
 
     /**
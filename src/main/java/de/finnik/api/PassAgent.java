@@ -0,0 +1,534 @@
+package de.finnik.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import de.finnik.AES.AES;
+import de.finnik.passvault.InactivityListener;
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.VaultFormat;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.*;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A resident process that keeps the unlocked passwords in memory and answers the commands of the api ({@link PassAPI})
+ * of other processes, so that they neither have to ask for the main password nor decrypt the passwords again.
+ * <p>
+ * The agent listens on a random port of the loopback interface. The port and a random token are written to
+ * {@link PassAgent#FILE} inside the directory of PassVault, which only the user may read, and every request has to contain the token.
+ * Each connection is served by one of a few worker threads. It has to send its first request at once, and it's closed as soon as a
+ * request doesn't contain the token, so a stalled or foreign connection can't keep the agent from answering the api.
+ * Requests and responses are json objects, sent as frames consisting of their length followed by their UTF-8 encoded json.
+ * <p>
+ * Like the main application with {@link InactivityListener}, the agent forgets the main password and exits after it didn't receive
+ * any request for a given time, or when it's stopped via {@code agent stop}.
+ */
+public class PassAgent {
+    /**
+     * The name of the file containing the port and the token of the running agent
+     */
+    public static final String FILE = "agent";
+
+    private static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    /**
+     * The time a new connection may take to send its first request, the api sends it right after connecting
+     */
+    private static final int FIRST_FRAME_TIMEOUT_MILLIS = 500;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+    /**
+     * The amount of connections that are served at the same time, further ones are closed at once
+     */
+    private static final int MAX_CONNECTIONS = 4;
+    private static final Gson GSON = new Gson();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final File file;
+    private final File passwordsFile;
+    private final AES aes;
+    private final Handler handler;
+    private final Logger log;
+    private final InactivityListener inactivityListener;
+    private final String token;
+    private final Map<String, Counter> counters = new TreeMap<>();
+    private final long started = System.currentTimeMillis();
+    private final ThreadPoolExecutor workers = new ThreadPoolExecutor(0, MAX_CONNECTIONS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "PassVault agent connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private List<Password> passwords;
+    /**
+     * The last modification and length of {@link PassAgent#passwordsFile} the passwords in memory belong to
+     */
+    private long modified, length;
+    /**
+     * The amount of requests without the token, guarded by the agent like the other counters
+     */
+    private long rejected;
+    private ServerSocket server;
+
+    /**
+     * Creates the agent, it starts listening via {@link PassAgent#start()}
+     *
+     * @param appDir        The directory of PassVault, where {@link PassAgent#FILE} is written to
+     * @param passwordsFile The file the passwords are read from and saved to
+     * @param aes           The {@link AES} object containing the main password
+     * @param passwords     The read passwords
+     * @param inactivity    The time in seconds the agent may be unused before it exits, 0 for no limit
+     * @param handler       Runs the commands with the passwords in memory
+     * @param log           The logger
+     */
+    public PassAgent(File appDir, File passwordsFile, AES aes, List<Password> passwords, int inactivity, Handler handler, Logger log) {
+        this.file = new File(appDir, FILE);
+        this.passwordsFile = passwordsFile;
+        this.aes = aes;
+        this.passwords = passwords;
+        this.handler = handler;
+        this.log = log;
+        this.inactivityListener = inactivity > 0 ? new InactivityListener(inactivity, () -> {
+            log.info("Agent was unused for {} seconds!", inactivity);
+            stop();
+        }) : null;
+
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        this.token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        this.modified = passwordsFile.lastModified();
+        this.length = passwordsFile.length();
+    }
+
+    /**
+     * Binds the socket, writes {@link PassAgent#FILE} and answers requests on a new thread until the agent is stopped
+     *
+     * @return The port the agent listens on
+     * @throws IOException Error while binding or writing the file
+     */
+    public synchronized int start() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        writeFile();
+        if (inactivityListener != null) {
+            inactivityListener.start(false);
+        }
+        Thread thread = new Thread(this::serve, "PassVault agent");
+        thread.start();
+        log.info("Agent is listening on port {}!", server.getLocalPort());
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stops answering requests, deletes {@link PassAgent#FILE} and forgets the main password together with all keys derived from it
+     */
+    public synchronized void stop() {
+        if (server == null || server.isClosed()) {
+            return;
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            log.error("Error while closing agent socket!", e);
+        }
+        workers.shutdown();
+        if (inactivityListener != null) {
+            inactivityListener.stop();
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+        passwords = Collections.emptyList();
+        aes.wipe();
+        log.info("Agent stopped!");
+    }
+
+    /**
+     * Accepts connections and hands each of them to {@link PassAgent#workers}, connections beyond {@link PassAgent#MAX_CONNECTIONS} are closed
+     */
+    private void serve() {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                // The socket was closed by stop()
+                if (!server.isClosed()) {
+                    log.warn("Agent couldn't accept a connection: {}", e.getMessage());
+                }
+                continue;
+            }
+            try {
+                workers.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                log.warn("Agent is busy, closed a connection!");
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of a single connection, it may send any amount of them.
+     * The token is checked before anything else is done with a request and the connection is closed if it's missing.
+     *
+     * @param socket The socket of the connection
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            s.setSoTimeout(FIRST_FRAME_TIMEOUT_MILLIS);
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            byte[] frame;
+            while ((frame = readFrame(in)) != null) {
+                Request request = GSON.fromJson(new String(frame, StandardCharsets.UTF_8), Request.class);
+                if (!authorized(request)) {
+                    writeFrame(out, GSON.toJson(new Response(1, "!43 The agent rejected the request\n")).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                s.setSoTimeout(READ_TIMEOUT_MILLIS);
+                writeFrame(out, GSON.toJson(handle(request)).getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (SocketException e) {
+            // The socket was closed by stop()
+            if (!server.isClosed()) {
+                log.warn("Agent connection failed: {}", e.getMessage());
+            }
+        } catch (IOException | JsonParseException e) {
+            log.warn("Agent received an invalid request: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether a request contains the token, requests without it are counted as rejected
+     *
+     * @param request The request
+     * @return Whether the request may be answered
+     */
+    private boolean authorized(Request request) {
+        if (request == null || request.token == null || request.args == null
+                || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), request.token.getBytes(StandardCharsets.UTF_8))) {
+            synchronized (this) {
+                rejected++;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Answers a single request that was {@link PassAgent#authorized(Request)}, one request after another
+     *
+     * @param request The request
+     * @return The response
+     */
+    private synchronized Response handle(Request request) {
+        long start = System.nanoTime();
+        if (server.isClosed()) {
+            return new Response(1, "!40 No agent is running\n");
+        }
+        if (inactivityListener != null) {
+            inactivityListener.active();
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(output, true);
+        String command = request.args.length > 0 ? request.args[0] : "";
+        int status = 0;
+        try {
+            if (command.equals("agent")) {
+                status = agent(request.args, out);
+            } else {
+                if (reloadIfModified()) {
+                    handler.handle(request.args, aes, passwords, out);
+                    modified = passwordsFile.lastModified();
+                    length = passwordsFile.length();
+                } else {
+                    out.printf("!%d %s\n", 45, "The agent couldn't read the changed passwords and stopped");
+                    status = 1;
+                }
+            }
+        } catch (PassAPI.Failure f) {
+            status = f.getStatus();
+        } catch (RuntimeException e) {
+            log.error("Error while answering agent request!", e);
+            out.printf("!%d %s\n", 44, "The agent couldn't answer the request");
+            status = 1;
+        }
+        counters.computeIfAbsent(command, c -> new Counter()).add(status, System.nanoTime() - start);
+        return new Response(status, new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Answers the requests concerning the agent itself
+     *
+     * @param args The arguments of the request, starting with "agent"
+     * @param out  The output of the request
+     * @return The status
+     */
+    private int agent(String[] args, PrintStream out) {
+        String action = args.length > 1 ? args[1] : "start";
+        switch (action) {
+            case "status":
+                out.println(new GsonBuilder().setPrettyPrinting().create().toJson(status()));
+                return 0;
+            case "stop":
+                // Answers first, the socket is closed afterwards
+                new Thread(this::stop, "PassVault agent stop").start();
+                out.println("Agent stopped");
+                return 0;
+            case "start":
+                out.printf("!%d %s\n", 41, "An agent is already running on port " + server.getLocalPort());
+                return 1;
+            default:
+                out.printf("!%d %s\n", 42, "Unknown agent action " + action);
+                return 1;
+        }
+    }
+
+    /**
+     * @return The counters of all requests since the agent was started
+     */
+    private Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("port", server.getLocalPort());
+        status.put("uptimeSeconds", (System.currentTimeMillis() - started) / 1000);
+        status.put("passwords", passwords.size());
+        status.put("requests", counters.values().stream().mapToLong(counter -> counter.requests).sum());
+        status.put("rejected", rejected);
+        status.put("commands", counters);
+        return status;
+    }
+
+    /**
+     * Reads the passwords again if the file was changed by another process, e.g. the main application.
+     * If they can't be read, e.g. because the main password was changed, the agent stops instead of answering with outdated passwords.
+     *
+     * @return Whether the passwords in memory are up to date
+     */
+    private boolean reloadIfModified() {
+        if (passwordsFile.lastModified() == modified && passwordsFile.length() == length) {
+            return true;
+        }
+        try {
+            passwords = VaultFormat.read(passwordsFile, aes);
+            modified = passwordsFile.lastModified();
+            length = passwordsFile.length();
+            log.info("Agent read the changed passwords from {}!", passwordsFile.getAbsolutePath());
+            return true;
+        } catch (IOException | AES.WrongPasswordException e) {
+            log.error("Agent couldn't read the changed passwords!", e);
+            stop();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the port and the token to {@link PassAgent#FILE}. They're written to a temporary file that is readable for the user only
+     * ({@link PassAgent#createPrivateFile(Path)}), which then replaces the file, so the token is never readable for anyone else.
+     *
+     * @throws IOException Error while writing
+     */
+    private void writeFile() throws IOException {
+        Path temp = createPrivateFile(file.getAbsoluteFile().getParentFile().toPath());
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("port", String.valueOf(server.getLocalPort()));
+            properties.setProperty("token", token);
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(temp), StandardCharsets.UTF_8)) {
+                properties.store(writer, "PassVault agent");
+            }
+            try {
+                Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file that only the user may read and write. It's created with these permissions where the file system
+     * supports POSIX permissions or ACLs (Windows), otherwise the permissions are narrowed before anything is written to it.
+     *
+     * @param dir The directory of the file
+     * @return The file
+     * @throws IOException Error while creating the file or changing its permissions
+     */
+    private static Path createPrivateFile(Path dir) throws IOException {
+        Set<String> views = dir.getFileSystem().supportedFileAttributeViews();
+        if (views.contains("posix")) {
+            return Files.createTempFile(dir, FILE, ".tmp", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        if (views.contains("acl")) {
+            UserPrincipal user = dir.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+            List<AclEntry> acl = Collections.singletonList(AclEntry.newBuilder()
+                    .setType(AclEntryType.ALLOW)
+                    .setPrincipal(user)
+                    .setPermissions(EnumSet.allOf(AclEntryPermission.class))
+                    .build());
+            Path temp = Files.createTempFile(dir, FILE, ".tmp", new FileAttribute<List<AclEntry>>() {
+                @Override
+                public String name() {
+                    return "acl:acl";
+                }
+
+                @Override
+                public List<AclEntry> value() {
+                    return acl;
+                }
+            });
+            // Replaces the entries that were inherited from the directory
+            Files.getFileAttributeView(temp, AclFileAttributeView.class).setAcl(acl);
+            return temp;
+        }
+        Path temp = Files.createTempFile(dir, FILE, ".tmp");
+        File file = temp.toFile();
+        if (!(file.setReadable(false, false) && file.setReadable(true, true) && file.setWritable(false, false) && file.setWritable(true, true))) {
+            Files.delete(temp);
+            throw new IOException("Couldn't restrict the permissions of " + temp);
+        }
+        return temp;
+    }
+
+    /**
+     * Sends a request to the running agent
+     *
+     * @param appDir The directory of PassVault containing {@link PassAgent#FILE}
+     * @param args   The arguments of the api
+     * @return The response or {@code null} if there is no agent running
+     */
+    public static Response request(File appDir, String[] args) {
+        File file = new File(appDir, FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            return null;
+        }
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(properties.getProperty("port"))), CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeFrame(out, GSON.toJson(new Request(properties.getProperty("token"), args)).getBytes(StandardCharsets.UTF_8));
+            byte[] frame = readFrame(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+            return frame == null ? null : GSON.fromJson(new String(frame, StandardCharsets.UTF_8), Response.class);
+        } catch (IOException | NumberFormatException | JsonParseException e) {
+            // The agent isn't running anymore, e.g. because it was killed
+            return null;
+        }
+    }
+
+    /**
+     * Reads a frame consisting of its length and its bytes
+     *
+     * @param in The stream to read from
+     * @return The bytes of the frame or {@code null} if the stream ended before a new frame
+     * @throws IOException Error while reading or the frame is too long
+     */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    private static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+    }
+
+    /**
+     * Runs a command of the api with the passwords in memory of the agent
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @param args      The arguments of the api
+         * @param aes       The {@link AES} object containing the main password
+         * @param passwords The passwords
+         * @param out       The output of the command
+         * @throws PassAPI.Failure The command failed
+         */
+        void handle(String[] args, AES aes, List<Password> passwords, PrintStream out);
+    }
+
+    private static class Request {
+        String token;
+        String[] args;
+
+        Request(String token, String[] args) {
+            this.token = token;
+            this.args = args;
+        }
+    }
+
+    /**
+     * The answer of the agent: The status the process should exit with and the output of the command
+     */
+    public static class Response {
+        private final int status;
+        private final String output;
+
+        Response(int status, String output) {
+            this.status = status;
+            this.output = output;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+    }
+
+    /**
+     * Counts the requests of a single command
+     */
+    private static class Counter {
+        long requests, errors;
+        double meanMicros, maxMicros;
+        private transient long nanos;
+
+        void add(int status, long duration) {
+            requests++;
+            if (status != 0) {
+                errors++;
+            }
+            nanos += duration;
+            meanMicros = nanos / 1000.0 / requests;
+            maxMicros = Math.max(maxMicros, duration / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package de.finnik.api;
+
+import com.google.gson.stream.JsonWriter;
+import de.finnik.passvault.passwords.Password;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes passwords one at a time in one of the {@link Format}s, so that the output never has to exist as a whole in memory.
+ * Only the chosen fields are written, the secret parameters of sealed passwords are only decrypted if they're chosen.
+ * Nothing is written before the first password or {@link PasswordOutput#close()}.
+ */
+class PasswordOutput implements Closeable {
+    /**
+     * All fields of a password in their default order
+     */
+    static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList("ID", "pass", "site", "user", "other", "lastModified"));
+    /**
+     * The fields that aren't secret
+     */
+    static final List<String> METADATA = Collections.unmodifiableList(Arrays.asList("ID", "site", "user", "lastModified"));
+
+    private final Writer writer;
+    private final Format format;
+    private final List<String> fields;
+    private final boolean pretty;
+    private JsonWriter json;
+    private int count;
+
+    /**
+     * @param out    The stream to write to, it isn't closed
+     * @param format The format
+     * @param fields The fields to write, see {@link PasswordOutput#FIELDS}
+     * @param pretty Whether {@link Format#JSON} is pretty printed
+     */
+    PasswordOutput(OutputStream out, Format format, List<String> fields, boolean pretty) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.format = format;
+        this.fields = fields;
+        this.pretty = pretty;
+    }
+
+    /**
+     * Writes a single password
+     *
+     * @param password The password
+     * @throws IOException Error while writing
+     */
+    void write(Password password) throws IOException {
+        if (count++ == 0) {
+            begin();
+        }
+        switch (format) {
+            case JSON:
+                writeObject(json, password);
+                break;
+            case NDJSON:
+                writeObject(new JsonWriter(writer), password);
+                writer.write('\n');
+                break;
+            case TSV:
+                for (int i = 0; i < fields.size(); i++) {
+                    if (i > 0) {
+                        writer.write('\t');
+                    }
+                    writer.write(escape(String.valueOf(value(password, fields.get(i)))));
+                }
+                writer.write('\n');
+                break;
+        }
+    }
+
+    private void begin() throws IOException {
+        if (format == Format.JSON) {
+            json = new JsonWriter(writer);
+            if (pretty) {
+                json.setIndent("  ");
+            }
+            json.beginArray();
+        } else if (format == Format.TSV) {
+            writer.write(String.join("\t", fields));
+            writer.write('\n');
+        }
+    }
+
+    private void writeObject(JsonWriter json, Password password) throws IOException {
+        json.beginObject();
+        for (String field : fields) {
+            Object value = value(password, field);
+            json.name(field);
+            if (value instanceof Long) {
+                json.value((long) value);
+            } else {
+                json.value((String) value);
+            }
+        }
+        json.endObject();
+    }
+
+    /**
+     * Ends the output, a {@link Format#JSON} array is closed and everything is flushed
+     *
+     * @throws IOException Error while writing
+     */
+    @Override
+    public void close() throws IOException {
+        if (count == 0) {
+            begin();
+        }
+        if (format == Format.JSON) {
+            json.endArray();
+            json.flush();
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return The amount of written passwords
+     */
+    int getCount() {
+        return count;
+    }
+
+    private static Object value(Password password, String field) {
+        switch (field) {
+            case "ID":
+                return password.id();
+            case "pass":
+                return password.getPass();
+            case "site":
+                return password.getSite();
+            case "user":
+                return password.getUser();
+            case "other":
+                return password.getOther();
+            case "lastModified":
+                return password.lastModified();
+            default:
+                throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    /**
+     * Escapes the characters that would break a line of {@link Format#TSV}
+     */
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * The formats of the output
+     */
+    enum Format {
+        /**
+         * A single json array of objects
+         */
+        JSON,
+        /**
+         * One json object per line
+         */
+        NDJSON,
+        /**
+         * A line with the names of the fields, followed by one line of tab separated values per password
+         */
+        TSV
+    }
+}
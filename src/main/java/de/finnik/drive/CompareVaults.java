@@ -1,12 +1,11 @@
 package de.finnik.drive;
 
+import de.finnik.passvault.passwords.IdIndex;
 import de.finnik.passvault.passwords.Password;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class CompareVaults {
     /**
@@ -20,23 +19,29 @@ public class CompareVaults {
     public static List<Password> compare(List<Password>... passwords) {
         List<Password> allPasswords = new ArrayList<>();
         Arrays.stream(passwords).forEach(allPasswords::addAll);
+        IdIndex index = new IdIndex(allPasswords);
+        // Every id is added once, at its first occurrence, which is found by its position in the index
+        boolean[] added = new boolean[index.size()];
         List<Password> compared = new ArrayList<>();
-        List<String> IDs = allPasswords.stream().map(Password::id).distinct().collect(Collectors.toList());
-        for (String id : IDs) {
-            allPasswords.stream().filter(password -> password.id().equals(id)).max(Comparator.comparing(Password::lastModified)).ifPresent(compared::add);
+        for (Password password : allPasswords) {
+            int position = index.position(password.passwordId());
+            if (!added[position]) {
+                added[position] = true;
+                compared.add(index.newest(password.passwordId()));
+            }
         }
         return compared;
     }
 
     public static String[] changeLog(List<Password> pre, List<Password> post) {
         List<String> changeLog = new ArrayList<>();
+        IdIndex preIndex = new IdIndex(pre);
         for (Password postPass : post) {
-            if (pre.stream().map(Password::id).anyMatch(p -> p.equals(postPass.id()))) {
+            Password prePass = preIndex.get(postPass.passwordId());
+            if (prePass != null) {
                 // Exists
-                if (!pre.contains(postPass)) {
+                if (!prePass.equals(postPass)) {
                     // Changed
-                    Password prePass = pre.stream().filter(p -> p.id().equals(postPass.id())).findFirst().orElse(null);
-                    assert prePass != null;
                     // Deleted
                     if (postPass.isEmpty()) {
                         changeLog.add(Password.log(prePass, "%s -> %s: Deleted password"));
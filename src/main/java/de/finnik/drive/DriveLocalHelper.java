@@ -25,6 +25,11 @@ public class DriveLocalHelper {
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
     boolean stopAnimation = false;
     private DriveServiceHelper driveServiceHelper;
+    /**
+     * The {@link AES} object of the last synchronisation, it's reused as long as the drive password doesn't change
+     * so that the key is only derived once
+     */
+    private AES driveAES;
 
     /**
      * Generates a secure password for the connection to Google Drive.
@@ -76,10 +81,10 @@ public class DriveLocalHelper {
                 if (drivePass == null) return;
                 try {
                     // The actual sync
-                    PassFrame.passwordList = compareToDriveAndSync(PassFrame.passwordList, drivePass);
+                    PassFrame.setPasswordList(compareToDriveAndSync(PassFrame.passwordList, drivePass));
                     // When this code is executed, the drive pass was correct -> it'll be stored inside PassProperty
-                    if (!PassProperty.DRIVE_PASSWORD.getValue().equals(drivePass.getPass())) {
-                        PassProperty.DRIVE_PASSWORD.setValue(drivePass.getPass(), PassFrame.aes);
+                    if (!drivePass.passMatches(PassProperty.DRIVE_PASSWORD.getValue())) {
+                        PassProperty.DRIVE_PASSWORD.setValue(drivePass.getPass().toString(), PassFrame.aes);
                     }
                     LOG.info("Synchronized with Drive");
                 } catch (AES.WrongPasswordException e) {
@@ -131,10 +136,13 @@ public class DriveLocalHelper {
             if (inputPass == null) {
                 return null;
             }
-            drivePass = new AES(inputPass);
+            if (driveAES == null || !driveAES.passMatches(inputPass)) {
+                driveAES = new AES(inputPass);
+            }
+            drivePass = driveAES;
         } else {
             // Pass file doesn't exist -> pass will be generated
-            drivePass = new AES(generateDrivePass(Boolean.parseBoolean(PassProperty.REAL_RANDOM.getValue()) ? RealRandom.seedWithUserInput(FRAME, LANG.getString("generate.jop.realRandom")) : -1));
+            drivePass = driveAES = new AES(generateDrivePass(Boolean.parseBoolean(PassProperty.REAL_RANDOM.getValue()) ? RealRandom.seedWithUserInput(FRAME, LANG.getString("generate.jop.realRandom")) : -1));
             DIALOG.message(FRAME, String.format(LANG.getString("drive.jop.createdDrivePass"), drivePass.getPass()));
         }
         return drivePass;
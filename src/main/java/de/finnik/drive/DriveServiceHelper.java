@@ -88,12 +88,12 @@ public class DriveServiceHelper {
     public void savePasswords(List<Password> passwords, AES aes) throws IOException {
         java.io.File tempFile = java.io.File.createTempFile("pass", "vault");
         Password.savePasswords(passwords, tempFile, aes);
-        FileContent content = new FileContent("text/plain", tempFile);
+        FileContent content = new FileContent("application/octet-stream", tempFile);
         if (passFileExists()) {
             File old = mDrive.files().get(passFileId()).execute();
             File result = new File();
             result.setName(old.getName());
-            result.setMimeType("text/plain");
+            result.setMimeType("application/octet-stream");
             mDrive.files()
                     .update(old.getId(), result, content)
                     .execute();
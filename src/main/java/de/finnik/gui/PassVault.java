@@ -6,7 +6,9 @@ import de.finnik.drive.DriveLocalHelper;
 import de.finnik.gui.dialogs.PassDialog;
 import de.finnik.gui.hints.Hints;
 import de.finnik.gui.mainFrame.PassFrame;
+import de.finnik.passvault.ConfigStore;
 import de.finnik.passvault.InactivityListener;
+import de.finnik.passvault.Launcher;
 import de.finnik.passvault.LogErrorStream;
 import de.finnik.passvault.PassProperty;
 import de.finnik.passvault.passwords.Password;
@@ -52,9 +54,8 @@ public class PassVault {
         if (args.length > 0) {
             init();
             EventQueue.invokeLater(() -> {
-                try (BufferedReader br = new BufferedReader(new FileReader(PASSWORDS))) {
-                    String file = br.readLine();
-                    if (file != null) {
+                try {
+                    if (PASSWORDS.length() > 0) {
                         new PassAPI(args);
                     } else {
                         System.out.println(404);
@@ -76,7 +77,7 @@ public class PassVault {
      * creates necessary objects for variables in {@link Var} and starts the application.
      */
     private static void init() {
-        APP_DIR = new File(System.getProperty("user.home") + "/.passvault");
+        APP_DIR = Launcher.appDir();
         if (APP_DIR.mkdirs()) {
             LOG.info("Created main directory {}", APP_DIR.getAbsolutePath());
         }
@@ -90,21 +91,15 @@ public class PassVault {
             LOG.error("Error while creating pass file in {}!", APP_DIR.getAbsolutePath(), e);
         }
 
-        APP_INFO = new Properties();
         try {
-            APP_INFO.load(new InputStreamReader(PassVault.class.getResourceAsStream("/application.properties"), StandardCharsets.UTF_8));
+            APP_INFO = Launcher.loadAppInfo();
         } catch (Exception e) {
+            APP_INFO = new Properties();
             LOG.error("Error while reading application.properties!", e);
         }
 
-        PassProperty.PROPERTIES = new File(APP_DIR, "config.properties");
-        try {
-            if (PassProperty.PROPERTIES.createNewFile()) {
-                LOG.info("Created config.properties in main directory ({})!", PassProperty.PROPERTIES.getAbsolutePath());
-            }
-        } catch (Exception e) {
-            LOG.error("Error while creating config.properties");
-        }
+        PassProperty.CONFIG = new ConfigStore(new File(APP_DIR, "config"), new File(APP_DIR, "hints"));
+        PassProperty.LEGACY_PROPERTIES = new File(APP_DIR, "config.properties");
 
         // Loads non-encrypted properties
         PassProperty.load(null);
@@ -117,11 +112,7 @@ public class PassVault {
             LOG.error("Error while loading Raleway font!", e);
         }
 
-        try {
-            HINTS = new Hints(new File(APP_DIR, "hints"));
-        } catch (IOException e) {
-            LOG.error("Error while loading hints!", e);
-        }
+        HINTS = new Hints(PassProperty.CONFIG);
 
         loadImages(Arrays.stream(Var.class.getFields()).filter(field -> field.getType() == BufferedImage.class).toArray(Field[]::new));
 
@@ -168,9 +159,8 @@ public class PassVault {
             Reads the {@link Var#PASSWORDS} file, checks whether passwords are already saved and creates either the login dialog
             or the main frame with an empty string as the main password
              */
-            try (BufferedReader br = new BufferedReader(new FileReader(PASSWORDS))) {
-                String file = br.readLine();
-                if (file != null && !file.isEmpty()) {
+            try {
+                if (PASSWORDS.length() > 0) {
                     FRAME = new CheckFrame((pass, passList) -> {
                         PassProperty.load(pass);
                         INACTIVITY_LISTENER = new InactivityListener(Integer.parseInt(PassProperty.INACTIVITY_TIME.getValue()), () -> ((PassFrame) FRAME).inactive());
@@ -310,8 +300,12 @@ public class PassVault {
             btnLogin.addActionListener(action -> {
                 // The login
                 List<Password> passwordList;
+                // The same object is used for the whole session, so the key is only derived once
+                char[] input = passwordField.getPassword();
+                AES aes = new AES(input);
+                Arrays.fill(input, '\0');
                 try {
-                    passwordList = Password.readPasswords(PASSWORDS, new AES(new String(passwordField.getPassword())));
+                    passwordList = Password.readPasswords(PASSWORDS, aes);
                 } catch (AES.WrongPasswordException e) {
                     // Exception -> Wrong password
                     LOG.info("User tried to log in with wrong password!");
@@ -320,7 +314,7 @@ public class PassVault {
                     return;
                 }
                 LOG.info("User logged in!");
-                todo.accept(new AES(new String(passwordField.getPassword())), passwordList);
+                todo.accept(aes, passwordList);
                 dispose();
             });
             add(btnLogin, "check.btn.login");
@@ -1,6 +1,8 @@
 package de.finnik.gui.dialogs;
 
+import de.finnik.passvault.passwords.IdIndex;
 import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.PasswordId;
 import de.finnik.passvault.utils.PassUtils;
 
 import javax.swing.*;
@@ -94,16 +96,18 @@ public class CompareDialog extends JDialog {
      * @param backup The other source
      */
     private void findDuplicates(List<Password> local, List<Password> backup) {
-        List<String> duplicateIDs = Utils.findDuplicateIDs(local, backup);
+        List<PasswordId> duplicateIDs = Utils.findDuplicateIDs(local, backup);
 
+        IdIndex localIndex = new IdIndex(local);
         Utils.convertDuplicatesToPassComp(duplicateIDs
                 .stream()
-                .map(id -> Utils.getPasswordForID(id, local))
+                .map(localIndex::get)
                 .collect(Collectors.toList()), elements, panelLocalElements);
 
+        IdIndex backupIndex = new IdIndex(backup);
         Utils.convertDuplicatesToPassComp(duplicateIDs
                 .stream()
-                .map(id -> Utils.getPasswordForID(id, backup))
+                .map(backupIndex::get)
                 .collect(Collectors.toList()), elements, panelBackupElements);
 
         // Highlight newest version of each password
@@ -200,18 +204,6 @@ public class CompareDialog extends JDialog {
      * Contains essentials for this class
      */
     private static class Utils {
-        /**
-         * Finds a {@link Password} with a given id within a list of  {@link Password}s
-         * If no passwords is found, you'll get {@code null}
-         *
-         * @param id        The id that should be found
-         * @param passwords The list of {@link Password}s
-         * @return The first password with the matching id or {@code null}
-         */
-        public static Password getPasswordForID(String id, List<Password> passwords) {
-            return passwords.stream().filter(p -> p.id().equals(id)).findFirst().orElse(null);
-        }
-
         /**
          * Returns a list of ids whose passwords have different versions within the two given lists
          *
@@ -219,19 +211,18 @@ public class CompareDialog extends JDialog {
          * @param two Another list of {@link Password} objects
          * @return A list of duplicate password ids
          */
-        public static List<String> findDuplicateIDs(List<Password> one, List<Password> two) {
-            List<Password> allPasswords = new ArrayList<>();
-            allPasswords.addAll(one);
-            allPasswords.addAll(two);
-
-            List<String> allIDs = allPasswords.stream().map(Password::id).collect(Collectors.toList());
-
-            return allIDs.stream()
-                    .filter(id -> Collections.frequency(allIDs, id) == 2)
-                    // Remove duplicates that have the same content
-                    .filter(id -> !Password.equalsInformation(getPasswordForID(id, one), getPasswordForID(id, two)))
-                    .distinct()
-                    .collect(Collectors.toList());
+        public static List<PasswordId> findDuplicateIDs(List<Password> one, List<Password> two) {
+            IdIndex indexOne = new IdIndex(one), indexTwo = new IdIndex(two);
+            List<PasswordId> duplicateIDs = new ArrayList<>();
+            for (Password password : one) {
+                PasswordId id = password.passwordId();
+                if (indexOne.count(id) == 1 && indexTwo.count(id) == 1
+                        // Remove duplicates that have the same content
+                        && !Password.equalsInformation(password, indexTwo.get(id))) {
+                    duplicateIDs.add(id);
+                }
+            }
+            return duplicateIDs;
         }
 
         /**
@@ -246,13 +237,20 @@ public class CompareDialog extends JDialog {
             all.addAll(one);
             all.addAll(two);
 
-            List<String> duplicateIDs = findDuplicateIDs(one, two);
-            return all.stream()
-                    .map(Password::id)
-                    .filter(id -> !duplicateIDs.contains(id))
-                    .distinct()
-                    .map(id -> getPasswordForID(id, all))
-                    .collect(Collectors.toList());
+            List<PasswordId> duplicateIDs = findDuplicateIDs(one, two);
+            Collections.sort(duplicateIDs);
+            IdIndex index = new IdIndex(all);
+            // Every id is added once, at its first occurrence, which is found by its position in the index
+            boolean[] added = new boolean[index.size()];
+            List<Password> nonDuplicates = new ArrayList<>();
+            for (Password password : all) {
+                int position = index.position(password.passwordId());
+                if (!added[position] && Collections.binarySearch(duplicateIDs, password.passwordId()) < 0) {
+                    added[position] = true;
+                    nonDuplicates.add(password);
+                }
+            }
+            return nonDuplicates;
         }
 
         /**
@@ -318,7 +316,7 @@ public class CompareDialog extends JDialog {
          * @param elements A list of all {@link PassComp} objects
          * @param id       The id to highlight the latest version
          */
-        public static void highlightNewest(List<PassComp> elements, String id) {
+        public static void highlightNewest(List<PassComp> elements, PasswordId id) {
             elements.stream()
                     .filter(comp -> comp.getId().equals(id))
                     .max(Comparator.comparingLong(comp -> comp.getPassword().lastModified()))
@@ -347,7 +345,7 @@ public class CompareDialog extends JDialog {
          * @param comps List of PassComp objects
          * @param id    The id to deselect
          */
-        private static void deselect(List<PassComp> comps, String id) {
+        private static void deselect(List<PassComp> comps, PasswordId id) {
             comps.stream()
                     .filter(comp -> comp.getId().equals(id))
                     .forEach(comp -> comp.setSelected(false));
@@ -388,8 +386,8 @@ public class CompareDialog extends JDialog {
             isSelected = selected;
         }
 
-        public String getId() {
-            return password.id();
+        public PasswordId getId() {
+            return password.passwordId();
         }
 
         public JPanel getPanel() {
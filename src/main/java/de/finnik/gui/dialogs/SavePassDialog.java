@@ -1,5 +1,6 @@
 package de.finnik.gui.dialogs;
 
+import de.finnik.AES.SecretArena;
 import de.finnik.gui.Var;
 import de.finnik.gui.mainFrame.PassFrame;
 import de.finnik.passvault.passwords.Password;
@@ -166,12 +167,14 @@ public class SavePassDialog extends JDialog {
                 }
 
                 PassFrame.passwordList.add(newPass);
+                PassFrame.index.add(newPass);
+                PassFrame.sortedView.add(newPass);
                 LOG.info(Password.log(newPass, "Created password"));
             }
 
             PassFrame.savePasswords();
             try {
-                PassUtils.copyToClipboard(this, newPass.getPass());
+                PassUtils.copyToClipboard(this, newPass.revealPass(new SecretArena()));
             } catch (IOException ioException) {
                 LOG.error("Error while checking for hints!");
             }
@@ -7,6 +7,7 @@ import de.finnik.gui.mainFrame.PassFrame;
 import de.finnik.passvault.InactivityListener;
 import de.finnik.passvault.PassProperty;
 import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.VaultFormat;
 import de.finnik.passvault.utils.PassUtils;
 import de.finnik.passvault.utils.Utils;
 
@@ -91,10 +92,24 @@ public class SettingsDialog extends JDialog {
         if (!mainPass.isEmpty()) {
             String validation = DIALOG.input(owner, LANG.getString("jop.repeatEnteringNewMainPass"), true);
             if (mainPass.equals(validation)) {
-                PassFrame.aes = new AES(mainPass);
+                AES aes = new AES(mainPass), old = PassFrame.aes;
+                // The passwords stay encrypted with the same data key, so only the header of the passwords file has to be rewritten
+                aes.adoptDataKey(old.getDataKey());
+                // The loaded passwords mustn't keep the old object, it's wiped below
+                PassFrame.passwordList.forEach(password -> password.reseal(aes));
+                PassFrame.aes = aes;
                 LOG.info("Changed main password!");
-                PassFrame.savePasswords();
+                boolean rekeyed = false;
+                try {
+                    rekeyed = VaultFormat.rekey(PASSWORDS, aes);
+                } catch (IOException e) {
+                    LOG.error("Error while changing the key of {}!", PASSWORDS.getAbsolutePath(), e);
+                }
+                if (!rekeyed) {
+                    PassFrame.savePasswords();
+                }
                 PassProperty.store(PassFrame.aes);
+                old.wipe();
                 INACTIVITY_LISTENER = new InactivityListener(Integer.parseInt(PassProperty.INACTIVITY_TIME.getValue()), () -> ((PassFrame) FRAME).inactive());
                 INACTIVITY_LISTENER.start();
             } else {
@@ -235,7 +250,7 @@ public class SettingsDialog extends JDialog {
                 if (mainPass == null) {
                     return;
                 }
-                if (mainPass.equals(PassFrame.aes.getPass())) {
+                if (PassFrame.aes.passMatches(mainPass)) {
                     changeMainPass(SettingsDialog.this);
                 } else if (!mainPass.isEmpty()) {
                     DIALOG.message(this, LANG.getString("jop.wrongPass"));
@@ -346,7 +361,7 @@ public class SettingsDialog extends JDialog {
             }
             // Validates main password
             String mainPass = DIALOG.input(this, LANG.getString("check.lbl.pass"), true);
-            if (mainPass.equals(PassFrame.aes.getPass())) {
+            if (PassFrame.aes.passMatches(mainPass)) {
                 btnDrivePassword.setText(PassProperty.DRIVE_PASSWORD.getValue());
             } else if (!mainPass.isEmpty()) {
                 DIALOG.message(this, LANG.getString("jop.wrongPass"));
@@ -1,38 +1,27 @@
 package de.finnik.gui.hints;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import de.finnik.passvault.ConfigStore;
+
 import java.io.IOException;
-import java.util.Properties;
 import java.util.function.Consumer;
 
 /**
  * This class allows you to trigger a {@link Consumer} in your code.
- * Every trigger will be executed just one time and then be stored in a file so that there's no repetition.
+ * Every trigger will be executed just one time and then be stored in the {@link ConfigStore} so that there's no repetition.
  */
 public class Hints {
     /**
-     * The file where triggered hints will be stored
-     */
-    private final File file;
-    /**
-     * Read from {@link Hints#file}
+     * The store where triggered hints are saved
      */
-    private final Properties properties;
+    private final ConfigStore config;
 
     /**
-     * Reads already triggered hints from the given file and keeps them in {@link Hints#properties}
+     * Creates the hints of a {@link ConfigStore}, whose already triggered hints have to be loaded via {@link ConfigStore#load()}
      *
-     * @param file The file where hints are stored
-     * @throws IOException Error while reading properties from input file
+     * @param config The store where hints are saved
      */
-    public Hints(File file) throws IOException {
-        this.file = file;
-        properties = new Properties();
-        if (file.exists()) {
-            properties.load(new FileReader(file));
-        }
+    public Hints(ConfigStore config) {
+        this.config = config;
     }
 
     /**
@@ -41,14 +30,14 @@ public class Hints {
      * @param name    The name of the hint to be triggered
      * @param trigger The {@link Consumer<String>} whose {@link Consumer<String>#accept(String)} will be called when this hint hasn't be called already
      * @return Was the hint called or not?
-     * @throws IOException The hint couldn't be marked as triggered inside {@link Hints#file}
+     * @throws IOException The hint couldn't be marked as triggered inside the {@link ConfigStore}
      */
     public boolean triggerHint(String name, Consumer<String> trigger) throws IOException {
-        boolean triggering = !Boolean.parseBoolean(properties.getProperty(name, "false"));
+        boolean triggering = !config.isHintTriggered(name);
         if (triggering) {
             trigger.accept(name);
-            properties.setProperty(name, "true");
-            properties.store(new FileWriter(file), "");
+            config.addHint(name);
+            config.write();
         }
         return triggering;
     }
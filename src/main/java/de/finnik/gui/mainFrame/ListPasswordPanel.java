@@ -8,24 +8,51 @@ import de.finnik.passvault.utils.PassUtils;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
 
 import static de.finnik.gui.Var.*;
 
 /**
- * This panel displays a list of given passwords
+ * This panel displays a list of given passwords.
+ * The list is virtualized: Only the rows inside the visible part of the list get a {@link PasswordPanel}.
+ * When the list is scrolled, the panels of the rows that left the visible part are moved to the rows that entered it and show their passwords instead,
+ * so the amount of components doesn't depend on the amount of passwords.
+ * The selected passwords are kept inside a {@link PasswordSelection}, independent of the panels.
  */
 public class ListPasswordPanel extends JPanel {
-    JPanel passwords;
+    private static final String SECRET_PLACEHOLDER = "\u2022\u2022\u2022\u2022\u2022\u2022\u2022\u2022";
+    /**
+     * The space between two rows
+     */
+    private static final int GAP = 10;
+
+    /**
+     * The passwords that are displayed
+     */
+    private List<Password> passwordList = new ArrayList<>();
+    private final PasswordSelection selection = new PasswordSelection();
+    /**
+     * Holds the {@link PasswordPanel} objects, it's as high as all rows together
+     */
+    private final JPanel rows;
+    private final JScrollPane scrollPane;
+    /**
+     * The panel for row {@code i} is {@code cells.get(i % cells.size())}, so scrolling by one row moves a single panel
+     */
+    private final List<PasswordPanel> cells = new ArrayList<>();
 
     /**
      * Initializes the panel
@@ -33,37 +60,122 @@ public class ListPasswordPanel extends JPanel {
     public ListPasswordPanel() {
         setLayout(null);
         setBackground(BACKGROUND);
+
+        rows = new JPanel(null) {
+            @Override
+            public Dimension getPreferredSize() {
+                return new Dimension(scrollPane.getViewport().getWidth(), Math.max(0, passwordList.size() * rowHeight() - GAP));
+            }
+        };
+        rows.setBackground(BACKGROUND);
+
+        scrollPane = new JScrollPane(rows, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+        scrollPane.setBorder(null);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        scrollPane.getViewport().addChangeListener(e -> layoutCells(false));
+        add(scrollPane);
+
+        // Moves the selection while any component of the list has the focus
+        bindKey(KeyEvent.VK_UP, () -> -1);
+        bindKey(KeyEvent.VK_DOWN, () -> 1);
+        bindKey(KeyEvent.VK_PAGE_UP, () -> -getPageSize());
+        bindKey(KeyEvent.VK_PAGE_DOWN, () -> getPageSize());
+    }
+
+    /**
+     * Binds a key and the key with shift to {@link ListPasswordPanel#moveSelection(int, boolean)}
+     *
+     * @param keyCode The key
+     * @param rows    Supplies the amount of rows to move
+     */
+    private void bindKey(int keyCode, IntSupplier rows) {
+        for (boolean extend : new boolean[]{false, true}) {
+            String name = "moveSelection" + keyCode + extend;
+            getInputMap(WHEN_ANCESTOR_OF_FOCUSED_COMPONENT).put(KeyStroke.getKeyStroke(keyCode, extend ? InputEvent.SHIFT_DOWN_MASK : 0), name);
+            getActionMap().put(name, new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    moveSelection(rows.getAsInt(), extend);
+                }
+            });
+        }
     }
 
     /**
      * Displays the given list of passwords in the panel
      *
-     * @param passwordList The passwords to display
+     * @param passwordList The passwords to display in the given order, the list isn't changed
      */
     public void display(List<Password> passwordList) {
-        removeAll();
-
-        passwords = new JPanel();
-        passwords.setLayout(new BoxLayout(passwords, BoxLayout.Y_AXIS));
-        passwords.setBackground(BACKGROUND);
+        this.passwordList = passwordList;
+        selection.setRows(passwordList);
 
-        JScrollPane scrollPane = new JScrollPane(passwords, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-        scrollPane.setBorder(null);
-        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         scrollPane.setBounds(0, 0, getWidth(), getHeight());
-        add(scrollPane);
+        scrollPane.getViewport().setViewPosition(new Point());
+        rows.revalidate();
+        scrollPane.validate();
+        if (selection.getLead() >= 0) {
+            scrollToRow(selection.getLead());
+        }
+        // All panels are bound again, so revealed secrets are hidden again
+        layoutCells(true);
+        repaint();
+    }
+
+    /**
+     * @return The height of a {@link PasswordPanel}
+     */
+    private int cellHeight() {
+        return (getHeight() - 20) / 2;
+    }
 
-        passwordList.sort(Comparator.comparing(Password::getSite));
+    /**
+     * @return The height of a {@link PasswordPanel} including the gap below it
+     */
+    private int rowHeight() {
+        return cellHeight() + GAP;
+    }
 
-        for (int i = 0; i < passwordList.size(); i++) {
-            passwords.add(convert(passwordList.get(i)));
-            if (i + 1 < passwordList.size()) {
-                passwords.add(Box.createVerticalStrut(10));
+    /**
+     * Moves the {@link PasswordPanel} objects to the rows inside the visible part of the list.
+     * Panels are only created until there's one for each visible row and bound to another password when they're moved to another row.
+     *
+     * @param rebind Whether all panels are bound to their passwords again, even if they didn't move
+     */
+    private void layoutCells(boolean rebind) {
+        int rowHeight = rowHeight();
+        if (rowHeight <= GAP) {
+            return;
+        }
+        Rectangle view = scrollPane.getViewport().getViewRect();
+        int visible = view.height / rowHeight + 2;
+        while (cells.size() < Math.min(visible, passwordList.size())) {
+            // The row-to-panel mapping changes, so every panel is bound again
+            cells.add(createCell());
+            rebind = true;
+        }
+        if (cells.isEmpty()) {
+            return;
+        }
+        int first = view.y / rowHeight;
+        int last = Math.min(passwordList.size(), first + cells.size()) - 1;
+        for (int i = 0; i < cells.size(); i++) {
+            PasswordPanel cell = cells.get(i);
+            // The row of this panel inside [first, first + cells.size())
+            int row = first + Math.floorMod(i - first, cells.size());
+            if (row > last) {
+                cell.setVisible(false);
+                continue;
             }
+            Password password = passwordList.get(row);
+            if (rebind || cell.getPassword() != password) {
+                cell.bind(password);
+            }
+            cell.row = row;
+            cell.setSelected(selection.isSelected(password));
+            cell.setBounds(0, row * rowHeight, view.width, cellHeight());
+            cell.setVisible(true);
         }
-
-        validate();
-        repaint();
     }
 
     /**
@@ -72,150 +184,178 @@ public class ListPasswordPanel extends JPanel {
      * @return The selected password or {@code null}
      */
     public Password getSelectedPassword() {
-        List<PasswordPanel> passwordPanels = Arrays.stream(passwords.getComponents())
-                .filter(c -> c.getClass() == PasswordPanel.class)
-                .map(c -> ((PasswordPanel) c))
-                .collect(Collectors.toList());
-        return passwordPanels.size() == 1 ? passwordPanels.get(0).getPassword() :
-                passwordPanels.stream().filter(PasswordPanel::isSelected)
-                        .map(PasswordPanel::getPassword)
-                        .findAny().orElse(null);
+        if (passwordList.size() == 1) {
+            return passwordList.get(0);
+        }
+        return selection.getLeadPassword();
     }
 
     /**
-     * De-highlights all displaying panels and then highlights the given panel
+     * Returns all passwords that the user has selected.
      *
-     * @param panel The panel to be highlighted after the process
+     * @return The selected passwords, the only displayed password if there's just one
      */
-    private void highlight(PasswordPanel panel) {
-        Arrays.stream(passwords.getComponents())
-                .filter(c -> c.getClass() == PasswordPanel.class)
-                .forEach(c -> ((PasswordPanel) c).setSelected(false));
-        panel.setSelected(true);
+    public List<Password> getSelectedPasswords() {
+        if (passwordList.size() == 1 && selection.size() == 0) {
+            return Collections.singletonList(passwordList.get(0));
+        }
+        return selection.getSelected();
     }
 
     /**
-     * Converts a {@link Password} object into a {@link PasswordPanel} object
+     * Moves the selection by some rows and scrolls to the selected row
      *
-     * @param password The {@link Password} object to convert
-     * @return The converted {@link PasswordPanel} object
+     * @param rows   The amount of rows, negative to move up
+     * @param extend Whether the rows between the first and the new selected row are selected as well
      */
-    private PasswordPanel convert(Password password) {
-        PasswordPanel outerPanel = new PasswordPanel(new BorderLayout(), password);
+    public void moveSelection(int rows, boolean extend) {
+        int lead = selection.move(rows, extend);
+        if (lead >= 0) {
+            scrollToRow(lead);
+            highlight();
+        }
+    }
+
+    /**
+     * @return The amount of rows that are visible at once
+     */
+    public int getPageSize() {
+        return Math.max(1, scrollPane.getViewport().getHeight() / Math.max(1, rowHeight()));
+    }
+
+    /**
+     * Scrolls the list until a row is visible
+     *
+     * @param row The row
+     */
+    private void scrollToRow(int row) {
+        rows.scrollRectToVisible(new Rectangle(0, row * rowHeight(), 1, cellHeight()));
+    }
+
+    /**
+     * Selects the password of the given panel: A click selects only this password, with control it's added to or removed from the selection
+     * and with shift all passwords up to the last selected one are selected. Right-clicking a selected password keeps the selection.
+     * Then the panels of the selected passwords are highlighted, all other panels are de-highlighted.
+     *
+     * @param panel The clicked panel
+     * @param e     The click
+     */
+    private void select(PasswordPanel panel, MouseEvent e) {
+        if (e.isShiftDown()) {
+            selection.extend(panel.row);
+        } else if (e.isControlDown() || e.isMetaDown() && e.getButton() != MouseEvent.BUTTON3) {
+            selection.toggle(panel.row);
+        } else if (e.getButton() != MouseEvent.BUTTON3 || !selection.isSelected(panel.getPassword())) {
+            selection.select(panel.row);
+        }
+        highlight();
+    }
+
+    /**
+     * Highlights the panels of all selected passwords, all other panels are de-highlighted
+     */
+    private void highlight() {
+        cells.forEach(cell -> cell.setSelected(cell.getPassword() != null && selection.isSelected(cell.getPassword())));
+    }
+
+    /**
+     * Creates a {@link PasswordPanel} that isn't bound to any password yet
+     *
+     * @return The created {@link PasswordPanel} object
+     */
+    private PasswordPanel createCell() {
+        PasswordPanel outerPanel = new PasswordPanel(new BorderLayout());
         outerPanel.setBorder(BorderFactory.createLineBorder(FOREGROUND));
 
         GridLayout gridLayout = new GridLayout(2, 2, 10, 10);
         JPanel innerPanel = new JPanel(gridLayout);
         outerPanel.add(innerPanel, BorderLayout.CENTER);
 
-        MouseAdapter highlight = new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                super.mouseClicked(e);
-                highlight(outerPanel);
-            }
-        };
-
-        innerPanel.addMouseListener(highlight);
         innerPanel.setBackground(BACKGROUND);
         innerPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        Stream.of(parameterToPanel(true, LANG.getString("savePass.lbl.pass"), password.getPass(), password::setPass),
-                parameterToPanel(false, LANG.getString("savePass.lbl.site"), password.getSite(), password::setSite),
-                parameterToPanel(false, LANG.getString("savePass.lbl.user"), password.getUser(), password::setUser),
-                parameterToPanel(false, LANG.getString("savePass.lbl.other"), password.getOther(), password::setOther))
-                .forEach(innerPanel::add);
-
-        outerPanel.setSize(getWidth(), (getHeight() - 20) / 2);
-        outerPanel.setMaximumSize(new Dimension(outerPanel.getMaximumSize().width, outerPanel.getHeight()));
-        outerPanel.setPreferredSize(outerPanel.getSize());
+        outerPanel.parameters = new ParameterPanel[]{
+                new ParameterPanel(outerPanel, true, true, LANG.getString("savePass.lbl.pass"), Password::getPass, Password::setPass),
+                new ParameterPanel(outerPanel, false, false, LANG.getString("savePass.lbl.site"), Password::getSite, (password, site) -> {
+                    password.setSite(site);
+                    PassFrame.index.update(password);
+                    PassFrame.sortedView.update(password);
+                }),
+                new ParameterPanel(outerPanel, false, false, LANG.getString("savePass.lbl.user"), Password::getUser, (password, user) -> {
+                    password.setUser(user);
+                    PassFrame.index.update(password);
+                    PassFrame.sortedView.update(password);
+                }),
+                new ParameterPanel(outerPanel, false, true, LANG.getString("savePass.lbl.other"), Password::getOther, Password::setOther)};
+        for (ParameterPanel parameter : outerPanel.parameters) {
+            innerPanel.add(parameter);
+        }
 
-        PassUtils.GUIUtils.doForAllComponents(outerPanel, c -> c.addMouseListener(highlight));
-        PassUtils.GUIUtils.doForAllComponents(outerPanel, c -> c.addMouseListener(new MouseAdapter() {
+        MouseAdapter mouseAdapter = new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                select(outerPanel, e);
                 if (e.getButton() == MouseEvent.BUTTON3) {
                     new PopUp.PassPopUp(new PopUp.PopUpItem(LANG.getString("passBank.popUp.delete"), a -> deleteSelectedPassword())).show(e.getComponent(), e.getX(), e.getY());
                 }
             }
-        }));
+        };
+        outerPanel.addMouseListener(mouseAdapter);
+        PassUtils.GUIUtils.doForAllComponents(outerPanel, c -> c.addMouseListener(mouseAdapter));
 
+        rows.add(outerPanel);
         return outerPanel;
     }
 
     /**
-     * Creates a {@link JPanel} to be added to a new {@link PasswordPanel} by taking two {@code String} objects to be displayed inside the Panel as a title and a content
-     *
-     * @param pass        {@code false} -> {@link JTextField}; {@code true} -> {@link JPasswordField}
-     * @param title       The string to be displayed as a title inside the top label
-     * @param content     The string to be displayed inside the TextField
-     * @param keyListener A {@link Consumer} that takes a {@link String} and accepts the user input after he made changes to the TextField
-     * @return The created {@link JPanel}
-     */
-    private JPanel parameterToPanel(boolean pass, String title, String content, Consumer<String> keyListener) {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
-        panel.setBackground(BACKGROUND);
-
-        JLabel label = new JLabel(title);
-        label.setFont(raleway(13));
-        label.setForeground(Color.LIGHT_GRAY);
-        panel.add(label);
-
-        JTextField textField;
-        if (pass && Boolean.parseBoolean(PassProperty.SHOW_PASSWORDS_DOTTED.getValue())) {
-            textField = new JPasswordField(content);
-        } else {
-            textField = new JTextField(content);
-        }
-        textField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                super.keyReleased(e);
-                if (e.getKeyCode() == KeyEvent.VK_ENTER) {
-                    keyListener.accept(textField.getText());
-                    PassFrame.savePasswords();
-                }
-            }
-        });
-        textField.setForeground(FOREGROUND);
-        textField.setBackground(BACKGROUND);
-        textField.setFont(raleway(18));
-        textField.setBorder(new BottomBorder(FOREGROUND, 1));
-        panel.add(textField);
-
-        return panel;
-    }
-
-    /**
-     * Deletes the user-selected password when he presses the delete key by asking the user, whether he really wants to delete the password,
-     * then taking the selected password from {@link ListPasswordPanel#getSelectedPassword()} and deleting it via {@link PassUtils#deletePassword(Password)}
+     * Deletes the user-selected passwords when he presses the delete key by asking the user, whether he really wants to delete the passwords,
+     * then taking the selected passwords from {@link ListPasswordPanel#getSelectedPasswords()} and deleting them via {@link PassUtils#deletePassword(Password)}
      */
     private void deleteSelectedPassword() {
         if (DIALOG.confirm(FRAME, LANG.getString("jop.deletePass"))) {
-            PassUtils.deletePassword(getSelectedPassword());
+            for (Password password : getSelectedPasswords()) {
+                PassUtils.deletePassword(password);
+                // The empty password stays inside the list, so the deletion is synchronized with Drive
+                PassFrame.index.update(password);
+                PassFrame.sortedView.update(password);
+            }
             PassFrame.savePasswords();
         }
     }
 
     /**
-     * A custom panel that has a {@link Password} and a {@link boolean} parameter whether it's selected or not
+     * A custom panel that displays a {@link Password} and has a {@link boolean} parameter whether it's selected or not.
+     * It's bound to another password whenever it's moved to another row.
      */
     private static class PasswordPanel extends JPanel {
         Password password;
+        /**
+         * The row the panel is displayed in
+         */
+        int row;
         boolean selected;
+        ParameterPanel[] parameters;
 
-        public PasswordPanel(LayoutManager layout, Password item) {
+        public PasswordPanel(LayoutManager layout) {
             super(layout);
-            this.password = item;
         }
 
         public Password getPassword() {
             return password;
         }
 
-        public void setPassword(Password password) {
+        /**
+         * Displays another password
+         *
+         * @param password The password
+         */
+        public void bind(Password password) {
             this.password = password;
+            boolean dotted = Boolean.parseBoolean(PassProperty.SHOW_PASSWORDS_DOTTED.getValue());
+            for (ParameterPanel parameter : parameters) {
+                parameter.bind(password, dotted);
+            }
         }
 
         public boolean isSelected() {
@@ -223,8 +363,99 @@ public class ListPasswordPanel extends JPanel {
         }
 
         public void setSelected(boolean selected) {
-            this.selected = selected;
-            setBorder(BorderFactory.createLineBorder(selected ? Color.green : Color.white));
+            if (this.selected != selected || getBorder() == null) {
+                this.selected = selected;
+                setBorder(BorderFactory.createLineBorder(selected ? Color.green : Color.white));
+            }
+        }
+    }
+
+    /**
+     * A {@link JPanel} inside a {@link PasswordPanel} that displays one parameter of its password as a title and a content.
+     * If passwords are displayed dotted, the content of secret parameters is only fetched (and decrypted) when the TextField gains the focus.
+     * A {@link JTextField} needs the content as a {@link String} anyway, so it's fetched as one. Revealed contents are hidden again
+     * whenever the list is displayed anew, e.g. when PassVault is locked.
+     */
+    private static class ParameterPanel extends JPanel {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean secret;
+        private final Function<Password, String> content;
+        private final JTextField textField;
+        /**
+         * The echo char of a {@link JPasswordField}, it's turned off if passwords aren't displayed dotted
+         */
+        private final char echoChar;
+        private boolean revealed;
+
+        /**
+         * @param owner       The panel of the password
+         * @param pass        {@code false} -> {@link JTextField}; {@code true} -> {@link JPasswordField}, that is only dotted if passwords are displayed dotted
+         * @param secret      Whether the content is a secret parameter of the password
+         * @param title       The string to be displayed as a title inside the top label
+         * @param content     Gets the text to be displayed inside the TextField from the password
+         * @param keyListener A {@link BiConsumer} that takes the password and a {@link String} and accepts the user input after he made changes to the TextField
+         */
+        ParameterPanel(PasswordPanel owner, boolean pass, boolean secret, String title, Function<Password, String> content, BiConsumer<Password, String> keyListener) {
+            this.secret = secret;
+            this.content = content;
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+            setBackground(BACKGROUND);
+
+            JLabel label = new JLabel(title);
+            label.setFont(raleway(13));
+            label.setForeground(Color.LIGHT_GRAY);
+            add(label);
+
+            textField = pass ? new JPasswordField() : new JTextField();
+            echoChar = pass ? ((JPasswordField) textField).getEchoChar() : 0;
+            if (secret) {
+                textField.addFocusListener(new FocusAdapter() {
+                    @Override
+                    public void focusGained(FocusEvent e) {
+                        if (!revealed && owner.getPassword() != null) {
+                            revealed = true;
+                            textField.setText(content.apply(owner.getPassword()));
+                        }
+                    }
+                });
+            }
+            textField.addKeyListener(new KeyAdapter() {
+                @Override
+                public void keyReleased(KeyEvent e) {
+                    super.keyReleased(e);
+                    if (e.getKeyCode() == KeyEvent.VK_ENTER && owner.getPassword() != null) {
+                        keyListener.accept(owner.getPassword(), textField.getText());
+                        PassFrame.savePasswords();
+                    }
+                }
+            });
+            textField.setForeground(FOREGROUND);
+            textField.setBackground(BACKGROUND);
+            textField.setFont(raleway(18));
+            textField.setBorder(new BottomBorder(FOREGROUND, 1));
+            add(textField);
+        }
+
+        /**
+         * Displays the parameter of another password
+         *
+         * @param password The password
+         * @param dotted   Whether passwords are displayed dotted
+         */
+        void bind(Password password, boolean dotted) {
+            if (textField instanceof JPasswordField) {
+                ((JPasswordField) textField).setEchoChar(dotted ? echoChar : 0);
+            }
+            if (!secret || !dotted) {
+                revealed = true;
+                textField.setText(content.apply(password));
+            } else {
+                // Placeholder until the password is revealed
+                revealed = false;
+                textField.setText(textField instanceof JPasswordField ? SECRET_PLACEHOLDER : "");
+            }
+            textField.setCaretPosition(0);
         }
     }
 }
@@ -1,7 +1,14 @@
 package de.finnik.gui.mainFrame;
 
+import de.finnik.AES.SecretArena;
 import de.finnik.gui.Var;
+import de.finnik.passvault.PassProperty;
 import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.search.Frecency;
+import de.finnik.passvault.search.RankedSearch;
+import de.finnik.passvault.search.SearchScheduler;
+import de.finnik.passvault.search.SortedView;
+import de.finnik.passvault.search.TrigramIndex;
 import de.finnik.passvault.utils.PassUtils;
 
 import javax.swing.*;
@@ -14,7 +21,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static de.finnik.gui.Var.*;
 
@@ -22,11 +30,43 @@ import static de.finnik.gui.Var.*;
  * Manage your passwords via inserting a parameter
  */
 public class PassBankPanel extends JPanel {
+    /**
+     * The most search results that are displayed
+     */
+    public static final int TOP = 100;
+    /**
+     * How long the search input has to stay unchanged before it's searched
+     */
+    public static final long SEARCH_DEBOUNCE_MILLIS = 80;
+    /**
+     * After how many displayed search results the statistics of {@link PassBankPanel#scheduler} are logged
+     */
+    private static final int LOG_STATISTICS_EVERY = 100;
+    /**
+     * The keys that move the selection of {@link PassBankPanel#listPasswordPanel}: up, down, page up and page down
+     */
+    private static final List<Integer> NAVIGATION_KEYS = Arrays.asList(KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_PAGE_UP, KeyEvent.VK_PAGE_DOWN);
 
     private JTextField tfSearch;
     private ListPasswordPanel listPasswordPanel;
     private JButton btnShowPass;
     private JLabel lblCopy;
+    /**
+     * Ranks the search results, it's created anew whenever {@link PassFrame#index} is replaced
+     */
+    private RankedSearch search;
+    /**
+     * How often and how recently the passwords were copied, stored inside {@link PassProperty#FRECENCY}
+     */
+    private Frecency frecency;
+    /**
+     * Runs the searches off the event dispatch thread
+     */
+    private final SearchScheduler<List<Password>> scheduler = new SearchScheduler<>(SEARCH_DEBOUNCE_MILLIS, SwingUtilities::invokeLater);
+    /**
+     * The passwords that are currently displayed
+     */
+    private List<Password> displayed = new ArrayList<>();
 
     /**
      * Creates the panel
@@ -65,16 +105,27 @@ public class PassBankPanel extends JPanel {
             @Override
             public void keyReleased(KeyEvent e) {
                 super.keyReleased(e);
-                updateTableModel();
+                if (!isNavigation(e)) {
+                    search(true);
+                }
             }
 
             @Override
             public void keyPressed(KeyEvent e) {
                 super.keyPressed(e);
-                if (e.getKeyCode() == KeyEvent.VK_ENTER && getAllMatchingPasswords().size() > 0) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER && displayed.size() > 0) {
                     lblCopy.getMouseListeners()[0].mouseClicked(null);
+                } else if (isNavigation(e)) {
+                    // The search results are browsed without leaving the search field
+                    int page = listPasswordPanel.getPageSize();
+                    int[] rows = {-1, 1, -page, page};
+                    listPasswordPanel.moveSelection(rows[NAVIGATION_KEYS.indexOf(e.getKeyCode())], e.isShiftDown());
                 }
             }
+
+            private boolean isNavigation(KeyEvent e) {
+                return NAVIGATION_KEYS.contains(e.getKeyCode());
+            }
         });
         add(tfSearch, "passBank.tf.search");
 
@@ -106,8 +157,11 @@ public class PassBankPanel extends JPanel {
             public void mouseClicked(MouseEvent e) {
                 try {
                     Password password = listPasswordPanel.getSelectedPassword();
-                    PassUtils.copyToClipboard(FRAME, password.getPass());
+                    // Revealed for the clipboard only, which wipes it as soon as it's replaced or cleared
+                    PassUtils.copyToClipboard(FRAME, password.revealPass(new SecretArena()));
                     LOG.info(Password.log(password, "Copied password to clipboard"));
+                    getFrecency().record(password.id(), System.currentTimeMillis());
+                    PassProperty.FRECENCY.setValue(getFrecency().toJson(), PassFrame.aes);
                 } catch (NullPointerException ex) {
                     DIALOG.message(FRAME, LANG.getString("passBank.jop.noEntrySelected"));
                 } catch (IOException ioException) {
@@ -131,26 +185,74 @@ public class PassBankPanel extends JPanel {
     }
 
     /**
-     * Checks via {@link PassBankPanel#showAll()} whether {@link PassBankPanel#listPasswordPanel} should display all passwords
-     * or just the ones matching to the input from {@link PassBankPanel#tfSearch}
+     * Finds the passwords to display. It runs off the event dispatch thread, so it mustn't touch any component.
+     * All passwords are read from the {@link SortedView}, so they're never sorted again.
+     * The search results are the {@link PassBankPanel#TOP} best matching passwords, ranked via {@link RankedSearch}.
      *
+     * @param query      The input from {@link PassBankPanel#tfSearch}
+     * @param showAll    Whether all passwords are displayed, see {@link PassBankPanel#showAll()}
+     * @param sortedView The current {@link PassFrame#sortedView}
+     * @param index      The current {@link PassFrame#index}
      * @return All passwords to be currently displayed in {@link PassBankPanel#listPasswordPanel}
      */
-    private List<Password> getAllMatchingPasswords() {
-        if (showAll()) {
-            return PassFrame.passwordList.stream().filter(p -> !p.isEmpty()).collect(Collectors.toList());
-        } else if (tfSearch.getText().length() >= 3) {
-            return PassUtils.getAllMatchingPasswords(tfSearch.getText(), PassFrame.passwordList);
+    private List<Password> getAllMatchingPasswords(String query, boolean showAll, SortedView sortedView, TrigramIndex index) {
+        if (showAll) {
+            return sortedView.passwords();
+        } else if (query.length() >= 3) {
+            if (search == null || search.getIndex() != index) {
+                search = new RankedSearch(index, frecency);
+            }
+            return search.search(query, TOP);
         }
         return new ArrayList<>();
     }
 
+    private Frecency getFrecency() {
+        if (frecency == null) {
+            frecency = Frecency.parse(PassProperty.FRECENCY.getValue());
+        }
+        return frecency;
+    }
+
     /**
-     * Updates {@link PassBankPanel#listPasswordPanel} via adding all passwords from {@link PassBankPanel#getAllMatchingPasswords()} to {@link PassBankPanel#listPasswordPanel}
+     * Updates {@link PassBankPanel#listPasswordPanel} via adding all passwords from {@link PassBankPanel#getAllMatchingPasswords(String, boolean, SortedView, TrigramIndex)}
+     * to {@link PassBankPanel#listPasswordPanel}. All passwords are sorted by their site, search results keep their ranking.
+     * The passwords are found in the background and displayed as soon as they're found.
      */
     public void updateTableModel() {
-        listPasswordPanel.display(getAllMatchingPasswords());
-        tfSearch.requestFocus();
+        if (SwingUtilities.isEventDispatchThread()) {
+            search(false);
+        } else {
+            SwingUtilities.invokeLater(() -> search(false));
+        }
+    }
+
+    /**
+     * Schedules finding the passwords to display via {@link PassBankPanel#scheduler}, only the newest result is displayed
+     *
+     * @param debounce Whether the search waits for further input
+     */
+    private void search(boolean debounce) {
+        String query = tfSearch.getText();
+        boolean showAll = showAll();
+        SortedView sortedView = PassFrame.sortedView;
+        TrigramIndex index = PassFrame.index;
+        getFrecency();
+
+        Supplier<List<Password>> find = () -> getAllMatchingPasswords(query, showAll, sortedView, index);
+        Consumer<List<Password>> display = result -> {
+            displayed = result;
+            listPasswordPanel.display(result);
+            tfSearch.requestFocus();
+            if (scheduler.getPublished() % LOG_STATISTICS_EVERY == 0) {
+                LOG.info("Search: {}", scheduler);
+            }
+        };
+        if (debounce) {
+            scheduler.submit(find, display);
+        } else {
+            scheduler.submitNow(find, display);
+        }
     }
 
     /**
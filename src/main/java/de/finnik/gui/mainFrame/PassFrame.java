@@ -7,6 +7,9 @@ import de.finnik.gui.dialogs.CompareDialog;
 import de.finnik.gui.dialogs.SettingsDialog;
 import de.finnik.passvault.PassProperty;
 import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.VaultFormat;
+import de.finnik.passvault.search.SortedView;
+import de.finnik.passvault.search.TrigramIndex;
 import de.finnik.passvault.utils.Utils;
 
 import javax.swing.*;
@@ -37,6 +40,14 @@ public class PassFrame extends JFrame {
      * The list of saved passwords
      */
     public static List<Password> passwordList;
+    /**
+     * The search index of {@link PassFrame#passwordList}, it has to be updated whenever a password is added or changed
+     */
+    public static TrigramIndex index;
+    /**
+     * {@link PassFrame#passwordList} sorted by site, it has to be updated whenever a password is added or changed like {@link PassFrame#index}
+     */
+    public static SortedView sortedView;
     public PassBankPanel passBankPanel;
 
     public Animation driveAnimation;
@@ -49,7 +60,7 @@ public class PassFrame extends JFrame {
      */
     public PassFrame(AES aes, List<Password> passwordList) {
         PassFrame.aes = aes;
-        PassFrame.passwordList = new ArrayList<>(passwordList);
+        setPasswordList(new ArrayList<>(passwordList));
 
         JPanel contentPane = new JPanel(null);
         contentPane.setBorder(BorderFactory.createLineBorder(FOREGROUND));
@@ -159,13 +170,24 @@ public class PassFrame extends JFrame {
             INACTIVITY_LISTENER.start();
     }
 
+    /**
+     * Replaces {@link PassFrame#passwordList} as a whole and builds its {@link PassFrame#index} and {@link PassFrame#sortedView}
+     *
+     * @param passwordList The new list of {@link Password}s
+     */
+    public static void setPasswordList(List<Password> passwordList) {
+        PassFrame.index = new TrigramIndex(passwordList);
+        PassFrame.sortedView = new SortedView(SortedView.Order.SITE, passwordList);
+        PassFrame.passwordList = passwordList;
+    }
+
     /**
      * Saves the password stored in {@link PassFrame#passwordList} encrypted with {@link PassFrame#aes}
      * to the passwords file {@link Var#PASSWORDS}
      */
     public static void savePasswords() {
         if (aes.passIsSet())
-            Password.savePasswords(passwordList, PASSWORDS, aes);
+            Password.savePasswords(passwordList, PASSWORDS, aes, VaultFormat.Mode.ENTRY);
         if (!PassProperty.DRIVE_PASSWORD.getValue().isEmpty()) {
             try {
                 DRIVE.synchronize(((PassFrame) FRAME).passBankPanel::updateTableModel);
@@ -278,17 +300,21 @@ public class PassFrame extends JFrame {
 
     /**
      * Is called when user is inactive. If property {@link PassProperty#INACTIVITY_LOCK} is true, PassVault will be locked
-     * and can just be reentered by inputting the main password
+     * and can just be reentered by inputting the main password.
+     * A copied password inside the clipboard is wiped when locking.
      */
     public void inactive() {
-        if (!Boolean.parseBoolean(PassProperty.INACTIVITY_LOCK.getValue()) || aes.getPass().length() == 0)
+        if (!Boolean.parseBoolean(PassProperty.INACTIVITY_LOCK.getValue()) || !aes.passIsSet())
             return;
 
         DIALOG.disposeDialogs();
         setVisible(false);
+        Utils.clearClipboard();
+        // Hides the revealed secrets again
+        passBankPanel.updateTableModel();
 
         String pass = DIALOG.input(FRAME, LANG.getString("check.lbl.pass"), true);
-        if (!pass.equals(aes.getPass())) {
+        if (!aes.passMatches(pass)) {
             LOG.info("User tried to log in with wrong password!");
             System.exit(0);
         }
@@ -343,7 +369,7 @@ public class PassFrame extends JFrame {
         List<Password> compared = compareDialog.open();
         if (compared == null || !isVisible())
             return;
-        PassFrame.passwordList = compared;
+        setPasswordList(compared);
         LOG.info("Imported passwords from {}!", file.getAbsolutePath());
         savePasswords();
     }
@@ -0,0 +1,174 @@
+package de.finnik.gui.mainFrame;
+
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.PasswordId;
+
+import java.util.*;
+
+/**
+ * The selection of a list of displayed passwords, independent of the components that display them.
+ * Selected passwords are kept by their id, so checking whether a password is selected costs O(1) and a selection survives
+ * a refresh of the list as long as the passwords are still displayed. The row of a password is found via a map of the ids to their rows,
+ * which is only built when it's needed for the first time after the rows changed.
+ * <p>
+ * The lead is the row that was selected last, it's moved by the keyboard. The anchor is the row a range selection starts at.
+ */
+public class PasswordSelection {
+    private List<Password> rows = Collections.emptyList();
+    /**
+     * The row of each displayed password id, {@code null} if the rows changed since it was built
+     */
+    private Map<PasswordId, Integer> rowOfId;
+    private final Set<PasswordId> selected = new LinkedHashSet<>();
+    private int lead = -1, anchor = -1;
+
+    /**
+     * Replaces the displayed passwords. The passwords that are still displayed stay selected.
+     *
+     * @param rows The displayed passwords in order
+     */
+    public void setRows(List<Password> rows) {
+        PasswordId leadId = lead >= 0 && lead < this.rows.size() ? this.rows.get(lead).passwordId() : null;
+        PasswordId anchorId = anchor >= 0 && anchor < this.rows.size() ? this.rows.get(anchor).passwordId() : null;
+        this.rows = rows;
+        rowOfId = null;
+        if (selected.isEmpty()) {
+            lead = anchor = -1;
+            return;
+        }
+        selected.removeIf(id -> rowOf(id) < 0);
+        lead = leadId == null ? -1 : rowOf(leadId);
+        anchor = anchorId == null ? lead : rowOf(anchorId);
+    }
+
+    /**
+     * @param id The id of a password
+     * @return The row of the password or -1 if it isn't displayed
+     */
+    public int rowOf(PasswordId id) {
+        if (rowOfId == null) {
+            rowOfId = new HashMap<>(rows.size() * 2);
+            for (int row = rows.size() - 1; row >= 0; row--) {
+                rowOfId.put(rows.get(row).passwordId(), row);
+            }
+        }
+        return rowOfId.getOrDefault(id, -1);
+    }
+
+    /**
+     * Selects a single row, all other rows are deselected
+     *
+     * @param row The row
+     */
+    public void select(int row) {
+        selected.clear();
+        if (row >= 0 && row < rows.size()) {
+            selected.add(rows.get(row).passwordId());
+            lead = anchor = row;
+        } else {
+            lead = anchor = -1;
+        }
+    }
+
+    /**
+     * Selects a row if it isn't selected and deselects it otherwise, the other rows keep their selection
+     *
+     * @param row The row
+     */
+    public void toggle(int row) {
+        if (row < 0 || row >= rows.size()) {
+            return;
+        }
+        PasswordId id = rows.get(row).passwordId();
+        if (!selected.remove(id)) {
+            selected.add(id);
+        }
+        lead = anchor = row;
+    }
+
+    /**
+     * Selects all rows between the anchor and the given row, all other rows are deselected
+     *
+     * @param row The row
+     */
+    public void extend(int row) {
+        if (anchor < 0) {
+            select(row);
+            return;
+        }
+        row = Math.max(0, Math.min(rows.size() - 1, row));
+        selected.clear();
+        for (int i = Math.min(anchor, row); i <= Math.max(anchor, row); i++) {
+            selected.add(rows.get(i).passwordId());
+        }
+        lead = row;
+    }
+
+    /**
+     * Moves the lead by some rows, e.g. via the arrow keys. Without a lead, it starts at the first row.
+     *
+     * @param delta  The amount of rows, negative to move up
+     * @param extend Whether the rows between the anchor and the new lead are selected (shift) or only the new lead
+     * @return The new lead or -1 if there are no rows
+     */
+    public int move(int delta, boolean extend) {
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        int row = lead < 0 ? 0 : Math.max(0, Math.min(rows.size() - 1, lead + delta));
+        if (extend) {
+            extend(row);
+        } else {
+            select(row);
+        }
+        return lead;
+    }
+
+    /**
+     * Deselects all rows
+     */
+    public void clear() {
+        selected.clear();
+        lead = anchor = -1;
+    }
+
+    /**
+     * @param password A password
+     * @return Whether the password is selected
+     */
+    public boolean isSelected(Password password) {
+        return selected.contains(password.passwordId());
+    }
+
+    /**
+     * @return The row that was selected last or -1
+     */
+    public int getLead() {
+        return lead;
+    }
+
+    /**
+     * @return The password of the lead if it's selected, otherwise {@code null}
+     */
+    public Password getLeadPassword() {
+        return lead >= 0 && selected.contains(rows.get(lead).passwordId()) ? rows.get(lead) : null;
+    }
+
+    /**
+     * @return The selected passwords in the order they were selected
+     */
+    public List<Password> getSelected() {
+        List<Password> passwords = new ArrayList<>(selected.size());
+        for (PasswordId id : selected) {
+            passwords.add(rows.get(rowOf(id)));
+        }
+        return passwords;
+    }
+
+    /**
+     * @return The amount of selected passwords
+     */
+    public int size() {
+        return selected.size();
+    }
+}
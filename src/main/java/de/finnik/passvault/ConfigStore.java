@@ -0,0 +1,289 @@
+package de.finnik.passvault;
+
+import com.google.gson.Gson;
+import de.finnik.AES.AES;
+import de.finnik.AES.KeyDerivation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Stores the configuration of PassVault, the values of the {@link PassProperty}s and the triggered hints, inside a single file.
+ * <p>
+ * The file starts with the magic bytes and the format version, followed by two sections:
+ * <ul>
+ *     <li>A plain section as json, containing everything that is needed before the main password is known:
+ *     the properties that aren't encrypted and the triggered hints.</li>
+ *     <li>An encrypted section containing all other properties as json, sealed ({@link AES#seal(byte[], byte[], de.finnik.AES.KeySource)})
+ *     with the key of the {@link KeyDerivation} written in front of it. It's opened with a single decryption, usually with the
+ *     already derived key of the vault file.</li>
+ * </ul>
+ * The file is always replaced as a whole (written to a temporary file, which is renamed), so it's never left half written.
+ */
+public class ConfigStore {
+    /**
+     * The current version of the format
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'P', 'V', 'C', 'F'};
+    private static final byte[] ASSOCIATED_DATA = "PassVault config".getBytes(StandardCharsets.UTF_8);
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The file of the configuration
+     */
+    private final File file;
+    /**
+     * The file where older versions stored the triggered hints, they're taken over if {@link ConfigStore#file} doesn't exist yet
+     */
+    private final File legacyHints;
+
+    private final Map<String, String> plain = new HashMap<>();
+    private final Set<String> hints = new HashSet<>();
+    /**
+     * The encrypted properties or {@code null} if they weren't unlocked or set yet
+     */
+    private Map<String, String> secret;
+    /**
+     * The encrypted section as it was read, it's written again as it is as long as it can't be encrypted anew
+     */
+    private KeyDerivation sealedWith;
+    private byte[] sealed;
+    /**
+     * Whether the encrypted section was read but couldn't be decrypted yet, it mustn't be replaced then
+     */
+    private boolean locked;
+    /**
+     * The {@link AES} object the configuration was last unlocked or written with
+     */
+    private AES aes;
+    private boolean loaded, exists;
+
+    /**
+     * Creates a store for a given file, which is read via {@link ConfigStore#load()}
+     *
+     * @param file        The file of the configuration
+     * @param legacyHints The file where older versions stored the triggered hints
+     */
+    public ConfigStore(File file, File legacyHints) {
+        this.file = file;
+        this.legacyHints = legacyHints;
+    }
+
+    /**
+     * Reads the plain section of the file. The encrypted section is kept until {@link ConfigStore#unlock(AES)} is called.
+     *
+     * @throws IOException Error while reading or unknown format version
+     */
+    public synchronized void load() throws IOException {
+        plain.clear();
+        hints.clear();
+        secret = null;
+        sealed = null;
+        sealedWith = null;
+        locked = false;
+        loaded = true;
+        exists = file.exists() && file.length() > 0;
+        if (!exists) {
+            loadLegacyHints();
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a PassVault configuration");
+            }
+            int version = in.readUnsignedByte();
+            if (version > VERSION) {
+                throw new IOException("Unsupported configuration version " + version);
+            }
+            Section section = GSON.fromJson(new String(readBytes(in), StandardCharsets.UTF_8), Section.class);
+            if (section.properties != null) {
+                plain.putAll(section.properties);
+            }
+            if (section.hints != null) {
+                hints.addAll(section.hints);
+            }
+            if (in.readBoolean()) {
+                sealedWith = KeyDerivation.read(in);
+                sealed = readBytes(in);
+                locked = true;
+            }
+        }
+    }
+
+    /**
+     * Decrypts the encrypted section of the file with a given {@link AES} object, the file is read first if it wasn't yet
+     *
+     * @param aes The {@link AES} object containing the main password
+     * @return Whether the section could be decrypted (or there was none)
+     * @throws IOException Error while reading
+     */
+    public synchronized boolean unlock(AES aes) throws IOException {
+        if (!loaded) {
+            load();
+        }
+        if (sealed == null) {
+            this.aes = aes;
+            return true;
+        }
+        try {
+            Section section = GSON.fromJson(new String(aes.open(sealed, ASSOCIATED_DATA, sealedWith), StandardCharsets.UTF_8), Section.class);
+            secret = section.properties != null ? section.properties : new HashMap<>();
+            locked = false;
+            this.aes = aes;
+            return true;
+        } catch (AES.WrongPasswordException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Whether the file existed when it was loaded, otherwise the configuration may still be stored in the files of older versions
+     */
+    public synchronized boolean exists() {
+        return exists;
+    }
+
+    /**
+     * @return The values of all properties that were read, the encrypted ones only after {@link ConfigStore#unlock(AES)}
+     */
+    public synchronized Map<String, String> getProperties() {
+        Map<String, String> properties = new HashMap<>(plain);
+        if (secret != null) {
+            properties.putAll(secret);
+        }
+        return properties;
+    }
+
+    /**
+     * Replaces the values of all properties, they're written with the next call of {@link ConfigStore#write(AES)}.
+     * The encrypted values are ignored as long as the encrypted section of the file couldn't be decrypted,
+     * otherwise they would replace the values that were stored with another password.
+     *
+     * @param plain  The values that are needed before the main password is known
+     * @param secret The values that are encrypted
+     */
+    public synchronized void setProperties(Map<String, String> plain, Map<String, String> secret) {
+        this.plain.clear();
+        this.plain.putAll(plain);
+        if (!locked) {
+            this.secret = new HashMap<>(secret);
+        }
+    }
+
+    public synchronized boolean isHintTriggered(String name) {
+        return hints.contains(name);
+    }
+
+    /**
+     * Marks a hint as triggered, it's written with the next call of {@link ConfigStore#write()}
+     *
+     * @param name The name of the hint
+     */
+    public synchronized void addHint(String name) {
+        hints.add(name);
+    }
+
+    /**
+     * Writes the configuration with the {@link AES} object it was last unlocked or written with
+     *
+     * @throws IOException Error while writing
+     */
+    public synchronized void write() throws IOException {
+        write(aes);
+    }
+
+    /**
+     * Writes the configuration to the file by replacing it atomically.
+     * The encrypted properties are encrypted anew if the given {@link AES} object contains a password,
+     * otherwise or if it couldn't be decrypted, the encrypted section is written as it was read.
+     *
+     * @param aes The {@link AES} object to encrypt with, may be {@code null}
+     * @throws IOException Error while writing
+     */
+    public synchronized void write(AES aes) throws IOException {
+        if (!locked && aes != null && aes.passIsSet() && secret != null) {
+            this.aes = aes;
+            sealedWith = aes.getKeyDerivation();
+            sealed = aes.seal(GSON.toJson(new Section(secret, null)).getBytes(StandardCharsets.UTF_8), ASSOCIATED_DATA, sealedWith);
+        }
+
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (FileOutputStream fos = new FileOutputStream(temp)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+                out.write(MAGIC);
+                out.writeByte(VERSION);
+                writeBytes(out, GSON.toJson(new Section(plain, hints)).getBytes(StandardCharsets.UTF_8));
+                out.writeBoolean(sealed != null);
+                if (sealed != null) {
+                    sealedWith.write(out);
+                    writeBytes(out, sealed);
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        exists = true;
+        if (legacyHints.exists() && !legacyHints.delete()) {
+            legacyHints.deleteOnExit();
+        }
+    }
+
+    /**
+     * Takes over the hints that were stored inside {@link ConfigStore#legacyHints} by older versions
+     *
+     * @throws IOException Error while reading
+     */
+    private void loadLegacyHints() throws IOException {
+        if (!legacyHints.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(legacyHints)) {
+            properties.load(reader);
+        }
+        properties.stringPropertyNames().stream()
+                .filter(name -> Boolean.parseBoolean(properties.getProperty(name)))
+                .forEach(hints::add);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * The json content of a section
+     */
+    private static class Section {
+        Map<String, String> properties;
+        Set<String> hints;
+
+        Section(Map<String, String> properties, Set<String> hints) {
+            this.properties = properties;
+            this.hints = hints;
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class InactivityListener {
     /**
      * Last time where the user was active
      */
-    private long time;
+    private volatile long time;
 
     private AWTEventListener listener;
 
@@ -46,12 +46,26 @@ public class InactivityListener {
      * of {@link InactivityListener#toDo}
      */
     public void start() {
+        start(true);
+    }
+
+    /**
+     * Starts the listener
+     * <p>
+     * Will wait {@link InactivityListener#inactivity} seconds after the users last input or the last call of {@link InactivityListener#active()}
+     * and then execute the {@link Inactivity#inactive()} method of {@link InactivityListener#toDo}
+     *
+     * @param awtEvents Whether the input events of the AWT count as activity, otherwise the AWT isn't touched at all
+     */
+    public void start(boolean awtEvents) {
         if (executor != null && !executor.isShutdown())
             stop();
 
         time = System.currentTimeMillis();
-        listener = (event -> time = System.currentTimeMillis());
-        Toolkit.getDefaultToolkit().addAWTEventListener(listener, AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_WHEEL_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK | AWTEvent.ACTION_EVENT_MASK);
+        if (awtEvents) {
+            listener = (event -> time = System.currentTimeMillis());
+            Toolkit.getDefaultToolkit().addAWTEventListener(listener, AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_WHEEL_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK | AWTEvent.ACTION_EVENT_MASK);
+        }
 
         executor = Executors.newSingleThreadScheduledExecutor();
         // Checks every second whether the user was inactive for too long
@@ -68,7 +82,17 @@ public class InactivityListener {
      */
     public void stop() {
         executor.shutdown();
-        Toolkit.getDefaultToolkit().removeAWTEventListener(listener);
+        if (listener != null) {
+            Toolkit.getDefaultToolkit().removeAWTEventListener(listener);
+            listener = null;
+        }
+    }
+
+    /**
+     * Tells the listener that the user is active right now
+     */
+    public void active() {
+        time = System.currentTimeMillis();
     }
 
     /**
@@ -79,7 +103,7 @@ public class InactivityListener {
     public void setInactivity(int inactivity) {
         this.inactivity = inactivity;
         if (executor != null && !executor.isShutdown())
-            start();
+            start(listener != null);
     }
 
     /**
@@ -0,0 +1,47 @@
+package de.finnik.passvault;
+
+import de.finnik.api.PassAPI;
+import de.finnik.gui.PassVault;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * The entry point of the application. It doesn't reference any class of the AWT itself, so that the api can run
+ * headless ({@link PassAPI#headless(String[])}) without even loading it. Everything else is handed over to {@link PassVault#main(String[])}.
+ */
+public class Launcher {
+
+    public static void main(String[] args) {
+        if (args.length > 0 && PassAPI.isHeadless(args)) {
+            PassAPI.headless(args);
+            return;
+        }
+        PassVault.main(args);
+    }
+
+    /**
+     * @return The directory containing all files of PassVault
+     */
+    public static File appDir() {
+        return new File(System.getProperty("user.home") + "/.passvault");
+    }
+
+    /**
+     * Loads the name, version and author of the application
+     *
+     * @return The application properties
+     * @throws IOException Error while reading
+     */
+    public static Properties loadAppInfo() throws IOException {
+        Properties appInfo = new Properties();
+        try (InputStream is = Launcher.class.getResourceAsStream("/application.properties")) {
+            appInfo.load(new InputStreamReader(is, StandardCharsets.UTF_8));
+        }
+        return appInfo;
+    }
+}
@@ -5,6 +5,10 @@ import de.finnik.passvault.utils.PassUtils;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static de.finnik.gui.Var.LOG;
 
@@ -16,69 +20,186 @@ public enum PassProperty {
      * PassVault's properties
      */
     LANG, INACTIVITY_LOCK, INACTIVITY_TIME, DRIVE_PASSWORD, SHOW_PASSWORDS_DOTTED, SHOW_MAIN_PASSWORD,
-    GEN_LOW_LENGTH, GEN_UP_LENGTH, GEN_BIG, GEN_SMALL, GEN_NUM, GEN_SPE, REAL_RANDOM;
+    GEN_LOW_LENGTH, GEN_UP_LENGTH, GEN_BIG, GEN_SMALL, GEN_NUM, GEN_SPE, REAL_RANDOM, FRECENCY;
 
     /**
-     * The file where the properties are saved
+     * The store where the properties are saved
      */
-    public static File PROPERTIES;
+    public static ConfigStore CONFIG;
+    /**
+     * The file where older versions saved the properties line by line, it's migrated into {@link PassProperty#CONFIG}
+     */
+    public static File LEGACY_PROPERTIES;
 
     /**
-     * The value of the property
+     * How long changes are collected before they're stored together, see {@link PassProperty#setValue(Object, AES)}
      */
-    private String value;
+    public static final long STORE_DELAY_MILLIS = 500;
 
     /**
-     * Loads the properties from {@link PassProperty#PROPERTIES}
+     * Stores the properties off the UI thread
+     */
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PassProperty writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Guards {@link PassProperty#pendingStore}, {@link PassProperty#pendingAES} and the file itself
+     */
+    private static final Object LOCK = new Object();
+    /**
+     * The scheduled store of changed properties or {@code null} if there are no unsaved changes
+     */
+    private static ScheduledFuture<?> pendingStore;
+    /**
+     * The {@link AES} object of the latest change
+     */
+    private static AES pendingAES;
+    private static boolean shutdownHook;
+
+    /**
+     * The value of the property, read from memory and written to {@link PassProperty#CONFIG} behind
+     */
+    private volatile String value;
+
+    /**
+     * Loads the properties from {@link PassProperty#CONFIG}, the encrypted ones are decrypted at once.
+     * If there's no configuration yet, the properties are read from {@link PassProperty#LEGACY_PROPERTIES} and migrated.
+     *
+     * @param aes The {@link AES} object to decrypt the encrypted properties or {@code null} to just load non-encrypted ones
      */
     public static void load(AES aes) {
         Map<String, String> values = new HashMap<>();
         Arrays.stream(PassProperty.values()).forEach(prop -> values.put(prop.name(), prop.getDefault()));
-        try (BufferedReader br = new BufferedReader(new FileReader(PROPERTIES))) {
+        boolean migrate = false;
+        try {
+            if (aes == null) {
+                CONFIG.load();
+            } else if (!CONFIG.unlock(aes)) {
+                LOG.warn("Couldn't decrypt properties, they're kept as they are!");
+            }
+            if (CONFIG.exists()) {
+                CONFIG.getProperties().forEach((key, val) -> values.replace(key, val));
+            } else if (LEGACY_PROPERTIES.exists()) {
+                loadLegacy(aes, values);
+                migrate = aes != null && aes.passIsSet();
+            }
+        } catch (IOException e) {
+            LOG.error("Error while loading properties!", e);
+        }
+        for (PassProperty property : PassProperty.values()) {
+            property.setValue(values.get(property.name()));
+        }
+        if (migrate) {
+            store(aes);
+            if (!LEGACY_PROPERTIES.delete()) {
+                LEGACY_PROPERTIES.deleteOnExit();
+            }
+        }
+        LOG.info("Loaded properties!");
+    }
+
+    /**
+     * Loads the properties from {@link PassProperty#LEGACY_PROPERTIES}, where each line contains a property and its value.
+     * Keys that aren't a property's name are encrypted, so each line is decrypted at most once per key and value.
+     *
+     * @param aes    The {@link AES} object to decrypt the encrypted properties or {@code null} to just load non-encrypted ones
+     * @param values The map to put the read values into
+     * @throws IOException Error while reading
+     */
+    private static void loadLegacy(AES aes, Map<String, String> values) throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(LEGACY_PROPERTIES))) {
             br.lines().filter(line -> !line.startsWith("#")).forEach(line -> {
                 String[] split = line.split("#");
                 if (split.length < 2) {
                     split = line.split("=");
                 }
-                String val;
+                if (split.length < 2) {
+                    return;
+                }
+                String key = split[0], val = split[1];
                 try {
-                    try {
-                        val = aes.decrypt(split[1]);
-                    } catch (AES.WrongPasswordException | NullPointerException e) {
-                        val = split[1];
-                    }
-
-                    if (values.containsKey(split[0])) {
-                        // No encrypted key
-                        values.put(split[0], val);
-                    } else if (aes != null && values.containsKey(aes.decrypt(split[0]))) {
+                    if (values.containsKey(key)) {
+                        // No encrypted key -> the value is just encrypted, if the property has to be
+                        if (aes != null && valueOf(key).encrypt()) {
+                            try {
+                                val = aes.decrypt(val);
+                            } catch (AES.WrongPasswordException ignore) {
+                            }
+                        }
+                    } else if (aes != null) {
                         // Encrypted key
-                        values.put(aes.decrypt(split[0]), val);
+                        key = aes.decrypt(key);
+                        val = aes.decrypt(val);
+                    } else {
+                        return;
                     }
-                } catch (AES.WrongPasswordException | ArrayIndexOutOfBoundsException ignore) {
+                    if (values.containsKey(key)) {
+                        values.put(key, val);
+                    }
+                } catch (AES.WrongPasswordException ignore) {
 
                 }
             });
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        for (PassProperty property : PassProperty.values()) {
-            property.setValue(values.get(property.name()));
         }
-        LOG.info("Loaded properties!");
     }
 
     /**
-     * Stores the properties to {@link PassProperty#PROPERTIES}
+     * Stores the properties to {@link PassProperty#CONFIG} immediately. A pending store of {@link PassProperty#setValue(Object, AES)} is dropped,
+     * as all current values are stored anyway, so that it can't overwrite the file with an outdated {@link AES} object later.
+     *
+     * @param aes The AES object that will be used for encrypting the stored properties
      */
     public static void store(AES aes) {
-        List<PassProperty> props = Arrays.asList(PassProperty.values());
-        Collections.shuffle(props);
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(PROPERTIES))) {
-            for (PassProperty property : props) {
-                bw.write((property.encrypt() ? aes.encrypt(property.name()) : property.name()) + "#" + (property.encrypt() ? aes.encrypt(property.getValue()) : property.getValue()));
-                bw.newLine();
+        synchronized (LOCK) {
+            if (pendingStore != null) {
+                pendingStore.cancel(false);
+                pendingStore = null;
+                pendingAES = null;
+            }
+            write(aes);
+        }
+    }
+
+    /**
+     * Stores the changes of {@link PassProperty#setValue(Object, AES)} that weren't stored yet immediately.
+     * Is called on shutdown, so no change gets lost.
+     */
+    public static void flush() {
+        synchronized (LOCK) {
+            if (pendingStore != null) {
+                store(pendingAES);
+            }
+        }
+    }
+
+    /**
+     * Schedules storing the properties. All changes until the store is executed are stored together.
+     *
+     * @param aes The AES object that will be used for encrypting the stored properties
+     */
+    private static void scheduleStore(AES aes) {
+        synchronized (LOCK) {
+            pendingAES = aes;
+            if (pendingStore == null) {
+                if (!shutdownHook) {
+                    Runtime.getRuntime().addShutdownHook(new Thread(PassProperty::flush, "PassProperty flush"));
+                    shutdownHook = true;
+                }
+                pendingStore = WRITER.schedule(PassProperty::flush, STORE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
             }
+        }
+    }
+
+    private static void write(AES aes) {
+        Map<String, String> plain = new HashMap<>(), secret = new HashMap<>();
+        for (PassProperty property : PassProperty.values()) {
+            (property.encrypt() ? secret : plain).put(property.name(), property.getValue());
+        }
+        CONFIG.setProperties(plain, secret);
+        try {
+            CONFIG.write(aes);
         } catch (IOException e) {
             LOG.error("Error while saving properties!", e);
         }
@@ -94,18 +215,24 @@ public enum PassProperty {
     }
 
     /**
-     * Sets the value for this property via {@link PassProperty#setValue(Object)} and takes the given AES to store the properties encrypted via {@link PassProperty#store(AES)}
+     * Sets the value for this property via {@link PassProperty#setValue(Object)} and takes the given AES to store the properties encrypted.
+     * The properties aren't stored at once, but on a background thread after {@link PassProperty#STORE_DELAY_MILLIS},
+     * so that a series of changes (e.g. while dragging a slider) only rewrites the file once.
      *
      * @param value The value to be assigned to this property
      * @param aes   The AES object that will be used for encrypting the stored properties
      * @return A boolean that tells whether the input was matching to the property's specifications via {@link PassProperty#matches(String)}
+     * @see PassProperty#flush()
      */
     public boolean setValue(Object value, AES aes) {
+        String previous = this.value;
         boolean matches = setValue(value);
+        if (Objects.equals(previous, this.value))
+            return matches;
         if (matches)
             LOG.info("Changed property {}", name());
         if (aes.passIsSet())
-            store(aes);
+            scheduleStore(aes);
         return matches;
     }
 
@@ -154,6 +281,8 @@ public enum PassProperty {
                 return "30";
             case DRIVE_PASSWORD:
                 return "";
+            case FRECENCY:
+                return "{}";
         }
         return null;
     }
@@ -190,6 +319,8 @@ public enum PassProperty {
                     }
                 case DRIVE_PASSWORD:
                     return value != null;
+                case FRECENCY:
+                    return value.startsWith("{");
                 default:
                     return false;
             }
@@ -0,0 +1,158 @@
+package de.finnik.passvault.passwords;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.*;
+
+/**
+ * The ways the serialized passwords can be compressed before they are encrypted.
+ * The codec of a vault file is written into its {@link VaultHeader}.
+ */
+public enum Codec {
+    /**
+     * No compression
+     */
+    NONE {
+        @Override
+        public OutputStream compress(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return in;
+        }
+
+        @Override
+        public byte[] compress(byte[] bytes) {
+            return bytes;
+        }
+
+        @Override
+        public byte[] decompress(byte[] bytes) {
+            return bytes;
+        }
+    },
+    /**
+     * Compression via {@link Deflater}. Single records ({@link Codec#compress(byte[])}) are compressed with a preset dictionary
+     * of json keys and common values, as they're too short to contain much repetition on their own.
+     */
+    DEFLATE {
+        @Override
+        public OutputStream compress(OutputStream out) {
+            Deflater deflater = new Deflater(LEVEL);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            Inflater inflater = new Inflater();
+            return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public byte[] compress(byte[] bytes) {
+            Deflater deflater = DEFLATER.get();
+            deflater.reset();
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] buffer = BUFFER.get();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public byte[] decompress(byte[] bytes) throws IOException {
+            Inflater inflater = INFLATER.get();
+            inflater.reset();
+            inflater.setInput(bytes);
+            byte[] buffer = BUFFER.get();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+            try {
+                while (!inflater.finished()) {
+                    int length = inflater.inflate(buffer);
+                    if (length == 0) {
+                        if (inflater.needsDictionary()) {
+                            inflater.setDictionary(DICTIONARY);
+                        } else if (inflater.needsInput()) {
+                            throw new EOFException("Compressed record is incomplete");
+                        }
+                    }
+                    out.write(buffer, 0, length);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+            return out.toByteArray();
+        }
+    };
+
+    /**
+     * Prefers speed, as the json of passwords compresses well anyway
+     */
+    private static final int LEVEL = Deflater.BEST_SPEED;
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * The preset dictionary of single records. It's part of the format and mustn't be changed.
+     */
+    private static final byte[] DICTIONARY = ("[\"\",\"\"]{\"ID\":\"\",\"site\":\"\",\"user\":\"\",\"lastModified\":"
+            + "https://www..com.de.org.net@gmail.com@outlook.com@web.de").getBytes(StandardCharsets.UTF_8);
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(LEVEL));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    /**
+     * Wraps a stream, so that everything written to it is compressed
+     *
+     * @param out The stream the compressed bytes are written to
+     * @return The compressing stream
+     */
+    public abstract OutputStream compress(OutputStream out);
+
+    /**
+     * Wraps a stream that was written via {@link Codec#compress(OutputStream)}, so that everything read from it is decompressed
+     *
+     * @param in The stream of compressed bytes
+     * @return The decompressing stream
+     */
+    public abstract InputStream decompress(InputStream in);
+
+    /**
+     * Compresses a single record
+     *
+     * @param bytes The bytes of the record
+     * @return The compressed bytes
+     */
+    public abstract byte[] compress(byte[] bytes);
+
+    /**
+     * Decompresses a single record that was compressed via {@link Codec#compress(byte[])}
+     *
+     * @param bytes The compressed bytes
+     * @return The bytes of the record
+     * @throws IOException The bytes are no valid compressed record
+     */
+    public abstract byte[] decompress(byte[] bytes) throws IOException;
+}
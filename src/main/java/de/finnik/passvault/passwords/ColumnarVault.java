@@ -0,0 +1,324 @@
+package de.finnik.passvault.passwords;
+
+import de.finnik.AES.AES;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Stores passwords column by column instead of as one {@link Password} object each, which makes large vaults a lot smaller in memory:
+ * <ul>
+ *     <li>The site and user are dictionary-encoded, every distinct value is stored once and the entries only keep its number.</li>
+ *     <li>The id is stored as two longs instead of a string of 36 characters.</li>
+ *     <li>Sealed secrets ({@link SealedSecret}) only keep their sealed bytes, the {@link AES} object, key and codec are shared by all entries.</li>
+ * </ul>
+ * The entries are handed out as views via {@link ColumnarVault#get(int)}. A view is a {@link Password} that shares the stored strings
+ * and sealed bytes instead of copying them, and writes every change back into the columns. Views are cheap, so they aren't kept.
+ * <p>
+ * Values that don't fit into the columns (ids that aren't UUIDs, secrets that aren't sealed or sealed with another key) are stored
+ * in separate columns that are only created when they're needed. Distinct sites and users stay inside the dictionary even
+ * if no entry uses them anymore. Like an {@link ArrayList}, the vault isn't thread safe.
+ */
+public class ColumnarVault {
+    private int size;
+    private long[] idHigh = new long[16], idLow = new long[16];
+    /**
+     * The ids that can't be stored as two longs by their row
+     */
+    private final Map<Integer, PasswordId> irregularIds = new HashMap<>();
+    private int[] sites = new int[16], users = new int[16];
+    private long[] modified = new long[16];
+    /**
+     * The sealed bytes of the secrets that are opened like {@link ColumnarVault#sealedWith}
+     */
+    private byte[][] sealed = new byte[16][];
+    /**
+     * The first sealed secret that was stored, it provides the {@link AES} object, key and codec of all secrets inside {@link ColumnarVault#sealed}
+     */
+    private SealedSecret sealedWith;
+    /**
+     * The secrets that are sealed with another key and the secret parameters that aren't sealed, created when they're needed
+     */
+    private SealedSecret[] otherSecrets;
+    private String[] passes, others;
+    private final Dictionary dictionary = new Dictionary();
+
+    /**
+     * Creates an empty vault
+     */
+    public ColumnarVault() {
+    }
+
+    /**
+     * Creates a vault of the given passwords
+     *
+     * @param passwords The passwords
+     */
+    public ColumnarVault(Collection<Password> passwords) {
+        passwords.forEach(this::add);
+    }
+
+    /**
+     * Reads the passwords from a file one by one into a new vault, so they never exist as {@link Password} objects at once
+     *
+     * @param file The file
+     * @param aes  The {@link AES} object to decrypt
+     * @return The vault
+     * @throws IOException                Error while reading the file
+     * @throws AES.WrongPasswordException The main password is wrong or the file was modified
+     */
+    public static ColumnarVault read(File file, AES aes) throws IOException, AES.WrongPasswordException {
+        ColumnarVault vault = new ColumnarVault();
+        VaultFormat.read(file, aes, vault::add);
+        return vault;
+    }
+
+    /**
+     * Appends a password
+     *
+     * @param password The password
+     * @return The row of the password
+     */
+    public int add(Password password) {
+        if (size == idHigh.length) {
+            grow();
+        }
+        int row = size++;
+        store(row, password);
+        return row;
+    }
+
+    /**
+     * Replaces the password in a row
+     *
+     * @param row      The row
+     * @param password The new password
+     */
+    public void set(int row, Password password) {
+        checkRow(row);
+        store(row, password);
+    }
+
+    /**
+     * Returns a view of the password in a row, changes of the view are written back into the vault
+     *
+     * @param row The row
+     * @return The view
+     */
+    public Password get(int row) {
+        checkRow(row);
+        PasswordId id = irregularIds.isEmpty() ? null : irregularIds.get(row);
+        if (id == null) {
+            id = new PasswordId(idHigh[row], idLow[row]);
+        }
+        View view = new View(this, row, id, passes == null ? null : passes[row], dictionary.value(sites[row]), dictionary.value(users[row]),
+                others == null ? null : others[row], modified[row]);
+        if (sealed[row] != null) {
+            view.seal(sealedWith.withSealed(id.toString(), sealed[row]));
+        } else if (otherSecrets != null && otherSecrets[row] != null) {
+            view.seal(otherSecrets[row]);
+        }
+        return view;
+    }
+
+    /**
+     * @return The amount of passwords
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The amount of distinct sites and users that are stored
+     */
+    public int distinctValues() {
+        return dictionary.size();
+    }
+
+    /**
+     * @return The passwords as a list of views, which can be read, replaced and appended to
+     */
+    public List<Password> asList() {
+        return new ViewList();
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+    }
+
+    private void store(int row, Password password) {
+        PasswordId id = password.passwordId();
+        if (id.isUuid()) {
+            idHigh[row] = id.getHigh();
+            idLow[row] = id.getLow();
+            irregularIds.remove(row);
+        } else {
+            irregularIds.put(row, id);
+        }
+        // Passwords parsed from JSON without a site or user have null there, which is stored like an empty value
+        sites[row] = dictionary.code(password.getSite() == null ? "" : password.getSite());
+        users[row] = dictionary.code(password.getUser() == null ? "" : password.getUser());
+        modified[row] = password.lastModified();
+
+        SealedSecret secret = password.getSecret();
+        sealed[row] = null;
+        setOther(row, null, null, null);
+        if (secret != null && sealedWith == null) {
+            sealedWith = secret;
+        }
+        if (secret != null && secret.sharesKey(sealedWith)) {
+            sealed[row] = secret.getSealed();
+        } else {
+            // Only read if the password isn't sealed, so nothing is decrypted
+            setOther(row, secret, secret == null ? password.getPass() : null, secret == null ? password.getOther() : null);
+        }
+    }
+
+    /**
+     * Writes the optional columns of a row, they're only created when a value has to be stored
+     */
+    private void setOther(int row, SealedSecret secret, String pass, String other) {
+        if (secret != null && otherSecrets == null) {
+            otherSecrets = new SealedSecret[idHigh.length];
+        }
+        if (pass != null && passes == null) {
+            passes = new String[idHigh.length];
+            others = new String[idHigh.length];
+        }
+        if (otherSecrets != null) {
+            otherSecrets[row] = secret;
+        }
+        if (passes != null) {
+            passes[row] = pass;
+            others[row] = other;
+        }
+    }
+
+    private void grow() {
+        int capacity = idHigh.length * 2;
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        sites = Arrays.copyOf(sites, capacity);
+        users = Arrays.copyOf(users, capacity);
+        modified = Arrays.copyOf(modified, capacity);
+        sealed = Arrays.copyOf(sealed, capacity);
+        if (otherSecrets != null) {
+            otherSecrets = Arrays.copyOf(otherSecrets, capacity);
+        }
+        if (passes != null) {
+            passes = Arrays.copyOf(passes, capacity);
+            others = Arrays.copyOf(others, capacity);
+        }
+    }
+
+    /**
+     * Every distinct string gets a number, the first one that was stored is kept.
+     * The numbers are found via an open addressing hash table of ints, so there's no map entry or boxed number per string.
+     */
+    private static class Dictionary {
+        private String[] values = new String[16];
+        private int size;
+        /**
+         * The number of a string plus one at the position of its hash or behind, 0 for free positions
+         */
+        private int[] table = new int[32];
+
+        int code(String value) {
+            int mask = table.length - 1;
+            int position = mix(value.hashCode()) & mask;
+            while (table[position] != 0) {
+                int code = table[position] - 1;
+                if (values[code].equals(value)) {
+                    return code;
+                }
+                position = (position + 1) & mask;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            table[position] = ++size;
+            if (size * 2 > table.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        String value(int code) {
+            return values[code];
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int code = 0; code < size; code++) {
+                int position = mix(values[code].hashCode()) & mask;
+                while (table[position] != 0) {
+                    position = (position + 1) & mask;
+                }
+                table[position] = code + 1;
+            }
+        }
+
+        /**
+         * Spreads the bits of a hash code, so similar strings don't end up next to each other
+         */
+        private static int mix(int hash) {
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * A password inside a {@link ColumnarVault}. Every setter ends with {@link Password#updateModified()}, so the view is written back after it.
+     */
+    private static class View extends Password {
+        private final transient ColumnarVault vault;
+        private final transient int row;
+
+        View(ColumnarVault vault, int row, PasswordId id, String pass, String site, String user, String other, long lastModified) {
+            super(id, pass, site, user, other, lastModified);
+            this.vault = vault;
+            this.row = row;
+        }
+
+        @Override
+        public void updateModified() {
+            super.updateModified();
+            vault.store(row, this);
+        }
+    }
+
+    private class ViewList extends AbstractList<Password> implements RandomAccess {
+        @Override
+        public Password get(int index) {
+            return ColumnarVault.this.get(index);
+        }
+
+        @Override
+        public Password set(int index, Password element) {
+            Password previous = get(index);
+            ColumnarVault.this.set(index, element);
+            return previous;
+        }
+
+        @Override
+        public boolean add(Password password) {
+            ColumnarVault.this.add(password);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package de.finnik.passvault.passwords;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Finds passwords by their id ({@link PasswordId}) via binary search. The passwords are sorted by id once,
+ * passwords with the same id keep the order of the collection they came from, so the first one is always the first occurrence.
+ * The index is a snapshot, later changes of the collection aren't reflected.
+ */
+public class IdIndex {
+    private final Password[] sorted;
+    private final PasswordId[] ids;
+
+    /**
+     * Creates an index of the given passwords
+     *
+     * @param passwords The passwords
+     */
+    public IdIndex(Collection<Password> passwords) {
+        sorted = passwords.toArray(new Password[0]);
+        // Sorting objects is stable
+        Arrays.sort(sorted, Comparator.comparing(Password::passwordId));
+        ids = new PasswordId[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            ids[i] = sorted[i].passwordId();
+        }
+    }
+
+    /**
+     * Finds the position of the first password with an id inside the sorted passwords, all passwords with the id follow it
+     *
+     * @param id The id
+     * @return The position or -1 if no password has the id
+     */
+    public int position(PasswordId id) {
+        int from = 0, to = ids.length;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (ids[middle].compareTo(id) < 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from < ids.length && ids[from].equals(id) ? from : -1;
+    }
+
+    /**
+     * @param id The id
+     * @return The first password with the id or {@code null}
+     */
+    public Password get(PasswordId id) {
+        int position = position(id);
+        return position < 0 ? null : sorted[position];
+    }
+
+    /**
+     * @param id The id
+     * @return The amount of passwords with the id
+     */
+    public int count(PasswordId id) {
+        int position = position(id);
+        if (position < 0) {
+            return 0;
+        }
+        int end = position + 1;
+        while (end < ids.length && ids[end].equals(id)) {
+            end++;
+        }
+        return end - position;
+    }
+
+    /**
+     * @param id The id
+     * @return The password with the id that was modified the most recently, the first one if several were modified at the same time,
+     * or {@code null}
+     */
+    public Password newest(PasswordId id) {
+        int position = position(id);
+        if (position < 0) {
+            return null;
+        }
+        Password newest = sorted[position];
+        for (int i = position + 1; i < ids.length && ids[i].equals(id); i++) {
+            if (sorted[i].lastModified() > newest.lastModified()) {
+                newest = sorted[i];
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * @return The amount of passwords
+     */
+    public int size() {
+        return sorted.length;
+    }
+}
@@ -2,11 +2,10 @@ package de.finnik.passvault.passwords;
 
 import com.google.gson.Gson;
 import de.finnik.AES.AES;
-import de.finnik.AES.AESReader;
-import de.finnik.AES.AESWriter;
+import de.finnik.AES.Secret;
+import de.finnik.AES.SecretArena;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -18,11 +17,18 @@ import static de.finnik.gui.Var.LOG;
  * 2. The website to which the password belongs
  * 3. The email/username that is used among the password
  * 4. Other information that is useful to know among the password
+ * <p>
+ * Password and other information are secret: passwords read from a file written via {@link VaultFormat.Mode#ENTRY}
+ * keep them sealed and only decrypt them when {@link Password#getPass()} or {@link Password#getOther()} is called.
  */
 public class Password {
-    private final String ID;
+    private final PasswordId ID;
     private String pass, site, user, other;
     private long lastModified;
+    /**
+     * The sealed pass and other parameters or {@code null} if they're stored in plain
+     */
+    private transient SealedSecret secret;
 
     public Password(String pass, String site, String user, String other) {
         this.pass = pass;
@@ -30,7 +36,7 @@ public class Password {
         this.user = user;
         this.other = other;
         updateModified();
-        ID = UUID.randomUUID().toString();
+        ID = PasswordId.generate();
     }
 
     private Password() {
@@ -39,44 +45,82 @@ public class Password {
         user = "";
         other = "";
         updateModified();
-        ID = UUID.randomUUID().toString();
+        ID = PasswordId.generate();
     }
 
+    /**
+     * Creates a password from its stored parameters, its last modification is kept
+     *
+     * @param id           The id
+     * @param pass         The pass parameter, {@code null} if the password is sealed afterwards
+     * @param site         The site
+     * @param user         The user
+     * @param other        The other parameter, {@code null} if the password is sealed afterwards
+     * @param lastModified The last modification
+     */
+    Password(PasswordId id, String pass, String site, String user, String other, long lastModified) {
+        this.pass = pass;
+        this.site = site;
+        this.user = user;
+        this.other = other;
+        this.lastModified = lastModified;
+        ID = id;
+    }
+
+    /**
+     * Creates a copy of a given password whose secret parameters aren't sealed
+     *
+     * @param password The password to copy
+     */
     public Password(Password password) {
-        pass = password.pass;
+        pass = password.getPass();
         site = password.site;
         user = password.user;
-        other = password.other;
+        other = password.getOther();
         lastModified = password.lastModified;
         ID = password.ID;
     }
 
     /**
-     * Encrypts all {@link Password} objects with a given password and saves them in a given file,
+     * Encrypts all {@link Password} objects with a given password and saves them in a given file via {@link VaultFormat#write(Collection, OutputStream, AES)}
      *
      * @param passwords List of {@link Password} objects
      * @param file      The file to save the encrypted passwords to
      * @param aes       The aes to encrypt
      */
     public static void savePasswords(List<Password> passwords, File file, AES aes) {
-        try (AESWriter aesWriter = new AESWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), aes)) {
-            aesWriter.write(new Gson().toJson(passwords.toArray()));
+        savePasswords(passwords, file, aes, VaultFormat.Mode.STREAM);
+    }
+
+    /**
+     * Encrypts all {@link Password} objects with a given password and saves them in a given file via {@link VaultFormat#write(Collection, OutputStream, AES, VaultFormat.Mode)}
+     *
+     * @param passwords List of {@link Password} objects
+     * @param file      The file to save the encrypted passwords to
+     * @param aes       The aes to encrypt
+     * @param mode      How the passwords are encrypted
+     */
+    public static void savePasswords(List<Password> passwords, File file, AES aes, VaultFormat.Mode mode) {
+        try {
+            VaultFormat.write(passwords, new BufferedOutputStream(new FileOutputStream(file)), aes, mode);
         } catch (Exception e) {
             LOG.error("Error while saving passwords to {}!", file.getAbsolutePath(), e);
         }
     }
 
     /**
-     * This static method returns all passwords with all of their parameters that are saved to an encrypted file
+     * This static method returns all passwords with all of their parameters that are saved to an encrypted file.
+     * The file is mapped into memory and decrypted straight from there.
      *
      * @param file The encrypted file
      * @param aes  The aes to decrypt
      * @return The List of {@link Password} objects
+     * @see VaultFormat#read(File, AES)
      * @throws AES.WrongPasswordException If password is wrong
      */
     public static List<Password> readPasswords(File file, AES aes) throws AES.WrongPasswordException {
-        try (InputStream is = new FileInputStream(file)) {
-            return readPasswords(is, aes);
+        try {
+            return VaultFormat.read(file, aes);
         } catch (AES.WrongPasswordException w) {
             throw new AES.WrongPasswordException();
         } catch (IOException e) {
@@ -91,10 +135,11 @@ public class Password {
      * @param inputStream The encrypted inputStream
      * @param aes         The aes to decrypt
      * @return The List of {@link Password} objects
+     * @see VaultFormat#read(InputStream, AES)
      */
     public static List<Password> readPasswords(InputStream inputStream, AES aes) throws AES.WrongPasswordException, IOException {
-        try (AESReader aesReader = new AESReader(new InputStreamReader(inputStream), aes)) {
-            return new ArrayList<>(Arrays.asList(new Gson().fromJson(aesReader.readLine(), Password[].class)));
+        try (InputStream is = inputStream) {
+            return VaultFormat.read(is, aes);
         } catch (AES.WrongPasswordException e) {
             // Wrong password
             throw new AES.WrongPasswordException();
@@ -122,9 +167,9 @@ public class Password {
             out.append(password.user);
             out.append(separator);
         }
-        if (password.other.length() > 0) {
+        if (password.getOther().length() > 0) {
             out.append("other information: ");
-            out.append(password.other);
+            out.append(password.getOther());
             out.append(separator);
         }
         if (out.length() > 0) {
@@ -149,10 +194,11 @@ public class Password {
     }
 
     public String getPass() {
-        return pass;
+        return secret == null ? pass : secret.open()[0];
     }
 
     public void setPass(String pass) {
+        unseal();
         this.pass = pass;
         updateModified();
     }
@@ -176,19 +222,53 @@ public class Password {
     }
 
     public String getOther() {
-        return other;
+        return secret == null ? other : secret.open()[1];
     }
 
     public void setOther(String other) {
+        unseal();
         this.other = other;
         updateModified();
     }
 
+    /**
+     * Reveals the pass parameter as a {@link Secret}. If it is sealed, it is decrypted without creating a {@link String}.
+     *
+     * @param arena The arena the secret is allocated in
+     * @return The pass parameter
+     */
+    public Secret revealPass(SecretArena arena) {
+        return secret == null ? arena.allocate(pass) : secret.reveal(arena, 0);
+    }
+
+    /**
+     * Reveals the other parameter as a {@link Secret}. If it is sealed, it is decrypted without creating a {@link String}.
+     *
+     * @param arena The arena the secret is allocated in
+     * @return The other parameter
+     */
+    public Secret revealOther(SecretArena arena) {
+        return secret == null ? arena.allocate(other) : secret.reveal(arena, 1);
+    }
+
+    /**
+     * Sets the last modification to now, every setter calls it after the parameter was changed
+     */
     public void updateModified() {
         lastModified = System.currentTimeMillis();
     }
 
+    /**
+     * @return The id in its text form, like it is written to files
+     */
     public String id() {
+        return ID == null ? null : ID.toString();
+    }
+
+    /**
+     * @return The id, which can be compared without creating its text
+     */
+    public PasswordId passwordId() {
         return ID;
     }
 
@@ -196,13 +276,74 @@ public class Password {
         return lastModified;
     }
 
+    /**
+     * @return Whether the secret parameters are kept sealed, which is the case for passwords read from a file written
+     * via {@link VaultFormat.Mode#ENTRY} until one of them is changed
+     */
+    public boolean isSealed() {
+        return secret != null;
+    }
+
+    /**
+     * Returns the sealed secret parameters
+     *
+     * @return The sealed secret or {@code null} if the secret parameters are stored in plain
+     */
+    SealedSecret getSecret() {
+        return secret;
+    }
+
+    /**
+     * Replaces the secret parameters with their sealed form, which has to contain the same values
+     *
+     * @param secret The sealed secret
+     */
+    void seal(SealedSecret secret) {
+        this.secret = secret;
+        pass = null;
+        other = null;
+    }
+
+    /**
+     * Binds the sealed secret parameters to another {@link AES} object, see {@link SealedSecret#reseal(AES)}.
+     * It has to be called for every loaded password when the main password changes, so the old {@link AES} object can be wiped.
+     *
+     * @param aes The new {@link AES} object
+     */
+    public void reseal(AES aes) {
+        if (secret != null) {
+            secret = secret.reseal(aes);
+        }
+    }
+
+    /**
+     * Decrypts the secret parameters before one of them is changed
+     */
+    private void unseal() {
+        if (secret != null) {
+            String[] opened = secret.open();
+            pass = opened[0];
+            other = opened[1];
+            secret = null;
+        }
+    }
+
     /**
      * Returns a stream of all parameters
      *
      * @return A stream of all parameters
      */
     public Stream<String> getValues() {
-        return Stream.of(pass, site, user, other);
+        return Stream.of(getPass(), site, user, getOther());
+    }
+
+    /**
+     * Returns a stream of the parameters that aren't secret, so they never have to be decrypted
+     *
+     * @return A stream of site and user
+     */
+    public Stream<String> getMetadata() {
+        return Stream.of(site, user);
     }
 
     /**
@@ -211,31 +352,44 @@ public class Password {
      * @return {@code true} if every parameter is empty (equal to "") or {@code false} if not
      */
     public boolean isEmpty() {
-        return Stream.of(pass, site, user, other).filter(String::isEmpty).count() == 4;
+        return getValues().filter(String::isEmpty).count() == 4;
+    }
+
+    /**
+     * Checks whether the password was deleted via {@link de.finnik.passvault.utils.PassUtils#deletePassword(Password)}.
+     * Deleted passwords are kept as empty passwords, so that the deletion is synchronized with Drive.
+     * The secret parameters are only checked (and decrypted) if the site and user are empty.
+     *
+     * @return Whether the password was deleted
+     */
+    public boolean isDeleted() {
+        return getSite().isEmpty() && getUser().isEmpty() && isEmpty();
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (obj.getClass() == getClass()) {
+        if (obj instanceof Password) {
             Password password = (Password) obj;
-            return password.getPass().equals(getPass())
+            // The secret parameters are compared last, so they're only decrypted if everything else is equal
+            return Objects.equals(password.passwordId(), passwordId())
+                    && password.lastModified() == lastModified()
                     && password.getSite().equals(getSite())
                     && password.getUser().equals(getUser())
-                    && password.getOther().equals(getOther())
-                    && password.id().equals(id())
-                    && password.lastModified() == lastModified();
+                    && password.getPass().equals(getPass())
+                    && password.getOther().equals(getOther());
         }
         return false;
     }
 
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return new Gson().toJson(secret == null ? this : new Password(this));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(pass, site, user, other);
+        // The secret parameters aren't part of the hash code, so they don't have to be decrypted
+        return Objects.hash(site, user, ID);
     }
 
 }
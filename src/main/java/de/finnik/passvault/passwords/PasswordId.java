@@ -0,0 +1,250 @@
+package de.finnik.passvault.passwords;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The id of a {@link Password} as a 128-bit value. New ids are laid out like a version 7 UUID: the first 48 bits are the time
+ * of creation in milliseconds, the remaining bits besides version and variant are random. Ids therefore sort by the time they
+ * were created and can be sorted and binary searched instead of being compared as strings.
+ * <p>
+ * The random bits come from {@link ThreadLocalRandom}, so creating many passwords at once doesn't contend on the
+ * shared {@link java.security.SecureRandom} of {@link UUID#randomUUID()}. The ids don't have to be unpredictable, only unique.
+ * <p>
+ * Ids are written in the canonical form of a {@link UUID}, so files and sealed secrets ({@link SealedSecret}) stay readable
+ * by every version. Random ids written by older versions are read as they are. An id that isn't written like a UUID at all
+ * keeps its text, its bits are 0 and it sorts before all UUIDs by its text.
+ */
+@JsonAdapter(PasswordId.Adapter.class)
+public final class PasswordId implements Comparable<PasswordId> {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long high, low;
+    /**
+     * The id as it was read if it isn't written like a UUID, otherwise {@code null}
+     */
+    private final String text;
+
+    private PasswordId(long high, long low, String text) {
+        this.high = high;
+        this.low = low;
+        this.text = text;
+    }
+
+    /**
+     * Creates an id from its 128 bits
+     *
+     * @param high The most significant bits
+     * @param low  The least significant bits
+     */
+    public PasswordId(long high, long low) {
+        this(high, low, null);
+    }
+
+    /**
+     * Generates a new time-ordered id
+     *
+     * @return The id
+     */
+    public static PasswordId generate() {
+        return generate(System.currentTimeMillis());
+    }
+
+    /**
+     * Generates a new id that was created at a given time
+     *
+     * @param millis The time of creation in milliseconds
+     * @return The id
+     */
+    static PasswordId generate(long millis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high = (millis << 16) | 0x7000 | (random.nextInt() & 0xFFF);
+        long low = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new PasswordId(high, low);
+    }
+
+    /**
+     * Reads an id from its text
+     *
+     * @param id The text of the id
+     * @return The id
+     */
+    public static PasswordId parse(String id) {
+        if (!isCanonical(id)) {
+            return new PasswordId(0, 0, id);
+        }
+        long high = hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18);
+        long low = hex(id, 19, 23) << 48 | hex(id, 24, 36);
+        return new PasswordId(high, low);
+    }
+
+    /**
+     * Reads an id from its compact form
+     *
+     * @param bytes The 16 bytes of {@link PasswordId#toBytes()}
+     * @return The id
+     */
+    public static PasswordId fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("An id has 16 bytes, not " + bytes.length);
+        }
+        long high = 0, low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = high << 8 | (bytes[i] & 0xFF);
+            low = low << 8 | (bytes[i + 8] & 0xFF);
+        }
+        return new PasswordId(high, low);
+    }
+
+    /**
+     * @return The id as 16 bytes, most significant first
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[7 - i] = (byte) (high >>> i * 8);
+            bytes[15 - i] = (byte) (low >>> i * 8);
+        }
+        return bytes;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @return Whether the id is written like a UUID, only those ids are fully described by their bits and bytes
+     */
+    public boolean isUuid() {
+        return text == null;
+    }
+
+    /**
+     * @return The time the id was generated in milliseconds or -1 if it isn't time-ordered, e.g. because an older version created it
+     */
+    public long timestamp() {
+        return text == null && (high & 0xF000) == 0x7000 ? high >>> 16 : -1;
+    }
+
+    @Override
+    public int compareTo(PasswordId id) {
+        int compared = Long.compareUnsigned(high, id.high);
+        if (compared == 0) {
+            compared = Long.compareUnsigned(low, id.low);
+        }
+        if (compared == 0 && (text != null || id.text != null)) {
+            compared = text == null ? 1 : id.text == null ? -1 : text.compareTo(id.text);
+        }
+        return compared;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof PasswordId) {
+            PasswordId id = (PasswordId) obj;
+            return high == id.high && low == id.low && (text == null ? id.text == null : text.equals(id.text));
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        if (text != null) {
+            return text.hashCode();
+        }
+        long hash = high ^ low;
+        return (int) (hash >> 32) ^ (int) hash;
+    }
+
+    /**
+     * @return The id in the canonical form of a {@link UUID} or the text it was read from
+     */
+    @Override
+    public String toString() {
+        if (text != null) {
+            return text;
+        }
+        char[] chars = new char[36];
+        hex(chars, 0, high >>> 32, 8);
+        chars[8] = '-';
+        hex(chars, 9, high >>> 16, 4);
+        chars[13] = '-';
+        hex(chars, 14, high, 4);
+        chars[18] = '-';
+        hex(chars, 19, low >>> 48, 4);
+        chars[23] = '-';
+        hex(chars, 24, low, 12);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the lowest digits of a value as lower case hex digits
+     */
+    private static void hex(char[] chars, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = HEX[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * @return Whether a text is written like {@link UUID#toString()}
+     */
+    private static boolean isCanonical(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23 ? c != '-' : (c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads hex digits that were checked by {@link PasswordId#isCanonical(String)}
+     */
+    private static long hex(String text, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value << 4 | Character.digit(text.charAt(i), 16);
+        }
+        return value;
+    }
+
+    /**
+     * Writes ids as their text, so the JSON of a password looks the same as before ids were binary
+     */
+    static class Adapter extends TypeAdapter<PasswordId> {
+        @Override
+        public void write(JsonWriter out, PasswordId id) throws IOException {
+            if (id == null) {
+                out.nullValue();
+            } else {
+                out.value(id.toString());
+            }
+        }
+
+        @Override
+        public PasswordId read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return parse(in.nextString());
+        }
+    }
+}
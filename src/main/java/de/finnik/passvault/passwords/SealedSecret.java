@@ -0,0 +1,258 @@
+package de.finnik.passvault.passwords;
+
+import com.google.gson.Gson;
+import de.finnik.AES.AES;
+import de.finnik.AES.DataKey;
+import de.finnik.AES.KeySource;
+import de.finnik.AES.Secret;
+import de.finnik.AES.SecretArena;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The secret parameters (pass and other) of a {@link Password} in their sealed form ({@link AES#seal(byte[], byte[], KeySource)}).
+ * Passwords that were read from a file written via {@link VaultFormat.Mode#ENTRY} keep their secret like this
+ * and only decrypt it when it's needed.
+ * <p>
+ * The secret is bound to the id of its password, so it can't be moved to another one.
+ */
+class SealedSecret {
+    private static final Gson GSON = new Gson();
+
+    private final AES aes;
+    private final KeySource key;
+    private final Codec codec;
+    private final byte[] associatedData;
+    private final byte[] sealed;
+
+    SealedSecret(AES aes, KeySource key, Codec codec, String id, byte[] sealed) {
+        this.aes = aes;
+        this.key = key;
+        this.codec = codec;
+        this.associatedData = id.getBytes(StandardCharsets.UTF_8);
+        this.sealed = sealed;
+    }
+
+    /**
+     * @param other Another sealed secret
+     * @return Whether both secrets are opened with the same {@link AES} object, key and codec
+     */
+    boolean sharesKey(SealedSecret other) {
+        return aes == other.aes && key == other.key && codec == other.codec;
+    }
+
+    /**
+     * Creates a secret that is opened like this one, but belongs to another password
+     *
+     * @param id     The id of the password
+     * @param sealed The sealed bytes
+     * @return The secret
+     */
+    SealedSecret withSealed(String id, byte[] sealed) {
+        return new SealedSecret(aes, key, codec, id, sealed);
+    }
+
+    /**
+     * Binds the secret to another {@link AES} object, e.g. after the main password was changed.
+     * A secret sealed with the {@link DataKey} of the new object keeps its sealed bytes, any other secret is opened
+     * with the old object and sealed anew with the data key of the new one.
+     *
+     * @param aes The new {@link AES} object
+     * @return The secret that is opened with the new object
+     * @throws AES.WrongPasswordException The secret was modified or doesn't belong to the password
+     */
+    SealedSecret reseal(AES aes) throws AES.WrongPasswordException {
+        String id = new String(associatedData, StandardCharsets.UTF_8);
+        if (key instanceof DataKey && key.equals(aes.getDataKey())) {
+            return new SealedSecret(aes, key, codec, id, sealed);
+        }
+        String[] opened = open();
+        return seal(aes, aes.getDataKey(), codec, id, opened[0], opened[1]);
+    }
+
+    /**
+     * @return The sealed bytes, they mustn't be changed
+     */
+    byte[] getSealed() {
+        return sealed;
+    }
+
+    /**
+     * Seals the secret parameters of a password
+     *
+     * @param aes   The {@link AES} object to seal with
+     * @param key   The source of the key to use
+     * @param codec How the secret is compressed before sealing
+     * @param id    The id of the password
+     * @param pass  The pass parameter
+     * @param other The other parameter
+     * @return The sealed secret
+     */
+    static SealedSecret seal(AES aes, KeySource key, Codec codec, String id, String pass, String other) {
+        byte[] plain = codec.compress(GSON.toJson(new String[]{pass, other}).getBytes(StandardCharsets.UTF_8));
+        return new SealedSecret(aes, key, codec, id, aes.seal(plain, id.getBytes(StandardCharsets.UTF_8), key));
+    }
+
+    /**
+     * Decrypts the secret
+     *
+     * @return The pass and the other parameter
+     * @throws AES.WrongPasswordException The secret was modified or doesn't belong to the password
+     */
+    String[] open() throws AES.WrongPasswordException {
+        try {
+            return GSON.fromJson(new String(codec.decompress(aes.open(sealed, associatedData, key)), StandardCharsets.UTF_8), String[].class);
+        } catch (IOException e) {
+            // Authenticated, but not decompressable
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decrypts one of the parameters into a {@link SecretArena}. Unlike {@link SealedSecret#open()}, no {@link String} is created
+     * and the decrypted bytes and characters are overwritten right after they were copied into the arena.
+     *
+     * @param arena The arena to allocate the parameter in
+     * @param index 0 for the pass, 1 for the other parameter
+     * @return The parameter
+     * @throws AES.WrongPasswordException The secret was modified or doesn't belong to the password
+     */
+    Secret reveal(SecretArena arena, int index) throws AES.WrongPasswordException {
+        byte[] opened = aes.open(sealed, associatedData, key), json = null;
+        char[] chars = null;
+        try {
+            json = codec.decompress(opened);
+            CharBuffer decoded = CharBuffer.wrap(chars = new char[json.length]);
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(ByteBuffer.wrap(json), decoded, true);
+            return element(chars, decoded.position(), index, arena);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            Arrays.fill(opened, (byte) 0);
+            if (json != null) {
+                Arrays.fill(json, (byte) 0);
+            }
+            if (chars != null) {
+                Arrays.fill(chars, '\0');
+            }
+        }
+    }
+
+    /**
+     * Finds an element of a json array of strings, as it is written by {@link SealedSecret#seal(AES, KeySource, Codec, String, String, String)},
+     * and copies it into a {@link SecretArena}. Escaped characters are decoded inside the given array.
+     *
+     * @param json   The characters of the json array
+     * @param length The amount of characters
+     * @param index  The index of the wanted element
+     * @param arena  The arena to allocate the element in
+     * @return The element, {@code null} is returned as an empty secret
+     * @throws IOException The characters are no json array or it has too few elements
+     */
+    private static Secret element(char[] json, int length, int index, SecretArena arena) throws IOException {
+        int i = skipWhitespace(json, 0, length);
+        if (i == length || json[i++] != '[') {
+            throw new IOException("Secret is no json array");
+        }
+        for (int element = 0; ; element++) {
+            i = skipWhitespace(json, i, length);
+            int start = i + 1, end = start;
+            if (i + 4 <= length && json[i] == 'n' && json[i + 1] == 'u' && json[i + 2] == 'l' && json[i + 3] == 'l') {
+                start = end = i;
+                i += 4;
+            } else if (i < length && json[i] == '"') {
+                // Decodes the string in place, as escaped characters are never shorter than decoded ones
+                for (i = start; i < length && json[i] != '"'; i++) {
+                    if (json[i] != '\\') {
+                        json[end++] = json[i];
+                        continue;
+                    }
+                    if (++i == length) {
+                        break;
+                    }
+                    switch (json[i]) {
+                        case 'b':
+                            json[end++] = '\b';
+                            break;
+                        case 'f':
+                            json[end++] = '\f';
+                            break;
+                        case 'n':
+                            json[end++] = '\n';
+                            break;
+                        case 'r':
+                            json[end++] = '\r';
+                            break;
+                        case 't':
+                            json[end++] = '\t';
+                            break;
+                        case 'u':
+                            if (i + 4 >= length) {
+                                throw new IOException("Incomplete escape sequence in secret");
+                            }
+                            int c = 0;
+                            for (int j = 1; j <= 4; j++) {
+                                int digit = Character.digit(json[i + j], 16);
+                                if (digit < 0) {
+                                    throw new IOException("Malformed escape sequence in secret");
+                                }
+                                c = c << 4 | digit;
+                            }
+                            json[end++] = (char) c;
+                            i += 4;
+                            break;
+                        default:
+                            // \", \\ and \/
+                            json[end++] = json[i];
+                    }
+                }
+                if (i++ == length) {
+                    throw new IOException("Unterminated string in secret");
+                }
+            } else {
+                throw new IOException("Secret contains no string at element " + element);
+            }
+            if (element == index) {
+                return arena.allocate(json, start, end - start);
+            }
+            i = skipWhitespace(json, i, length);
+            if (i == length || json[i++] != ',') {
+                throw new IOException("Secret has no element " + index);
+            }
+        }
+    }
+
+    private static int skipWhitespace(char[] json, int i, int length) {
+        while (i < length && Character.isWhitespace(json[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Tells whether the secret was sealed with the key a file is going to be written with,
+     * so it can be written as it is without decrypting it
+     *
+     * @param aes   The {@link AES} object the file is written with
+     * @param key   The source of the key the file is written with
+     * @param codec The codec the file is written with
+     * @return Sealed with the same key and codec or not
+     */
+    boolean isSealedWith(AES aes, KeySource key, Codec codec) {
+        // A data key doesn't depend on the password of the AES object
+        return this.codec == codec && this.key.equals(key) && (this.aes == aes || key instanceof DataKey);
+    }
+
+    byte[] getBytes() {
+        return sealed;
+    }
+}
@@ -0,0 +1,506 @@
+package de.finnik.passvault.passwords;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import de.finnik.AES.*;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Describes how {@link Password} objects are stored inside an encrypted file.
+ * <p>
+ * A vault file starts with a plain {@link VaultHeader}, followed by the passwords in one of the {@link Mode}s:
+ * <ul>
+ *     <li>{@link Mode#STREAM}: The chunks of an {@link AESOutputStream}, bound to the header ({@link VaultHeader#associatedData()}).
+ *     The decrypted content is a sequence of records, each consisting of its length and a single password as UTF-8 encoded json.
+ *     The sequence ends with a zero length followed by the amount of records.</li>
+ *     <li>{@link Mode#ENTRY}: A sequence of records, each consisting of the sealed ({@link AES#seal(byte[], byte[], KeySource)}) metadata
+ *     of a password as json and its sealed secret ({@link SealedSecret}), both with their length in front.
+ *     The sequence ends with a zero length followed by the sealed amount of records, so that missing records are detected.</li>
+ * </ul>
+ * Before encrypting, the serialized passwords are compressed via the {@link Codec} of the header, in {@link Mode#ENTRY} each part on its own.
+ * Files that don't start with a header were written by older versions via {@link AESWriter} and are read via {@link AESReader}.
+ */
+public class VaultFormat {
+    private static final Gson GSON = new Gson();
+    private static final byte[] END_OF_RECORDS = "PassVault end of records".getBytes(StandardCharsets.UTF_8);
+    /**
+     * The maximum length of a single record, longer ones are rejected as corrupt
+     */
+    private static final int MAX_RECORD = 16 * 1024 * 1024;
+
+    /**
+     * The codec of all written files
+     */
+    public static final Codec CODEC = Codec.DEFLATE;
+
+    /**
+     * Calls {@link VaultFormat#write(Collection, OutputStream, AES, Mode)} with {@link Mode#STREAM}
+     *
+     * @param passwords The passwords to write
+     * @param out       The stream to write to, it'll be closed afterwards
+     * @param aes       The {@link AES} object to encrypt
+     * @throws IOException Error while writing
+     */
+    public static void write(Collection<Password> passwords, OutputStream out, AES aes) throws IOException {
+        write(passwords, out, aes, Mode.STREAM);
+    }
+
+    /**
+     * Writes all {@link Password} objects encrypted with a given {@link AES} object to a given stream.
+     * The passwords are serialized one at a time, so the whole vault never has to exist as a single string.
+     * <p>
+     * In {@link Mode#ENTRY}, the secret parameters of each password are sealed for the file only, the given passwords aren't changed.
+     * Secrets that are already sealed with the same key are written as they are, without decrypting them.
+     *
+     * @param passwords The passwords to write
+     * @param out       The stream to write to, it'll be closed afterwards
+     * @param aes       The {@link AES} object to encrypt
+     * @param mode      How the passwords are encrypted
+     * @throws IOException Error while writing
+     */
+    public static void write(Collection<Password> passwords, OutputStream out, AES aes, Mode mode) throws IOException {
+        write(passwords, out, aes, mode, CODEC);
+    }
+
+    /**
+     * Writes all {@link Password} objects encrypted with a given {@link AES} object and compressed with a given {@link Codec} to a given stream.
+     * The passwords are serialized one at a time, so the whole vault never has to exist as a single string.
+     * <p>
+     * In {@link Mode#ENTRY}, the secret parameters of each password are sealed for the file only, the given passwords aren't changed.
+     * Secrets that are already sealed with the same key and codec are written as they are, without decrypting them.
+     *
+     * @param passwords The passwords to write
+     * @param out       The stream to write to, it'll be closed afterwards
+     * @param aes       The {@link AES} object to encrypt
+     * @param mode      How the passwords are encrypted
+     * @param codec     How the passwords are compressed
+     * @throws IOException Error while writing
+     */
+    public static void write(Collection<Password> passwords, OutputStream out, AES aes, Mode mode, Codec codec) throws IOException {
+        VaultHeader header = VaultHeader.create(aes, mode, codec);
+        header.write(out);
+        KeySource key = aes.getDataKey();
+        if (mode == Mode.ENTRY) {
+            try (DataOutputStream records = new DataOutputStream(out)) {
+                for (Password password : passwords) {
+                    SealedSecret secret = password.getSecret();
+                    if (secret == null || !secret.isSealedWith(aes, key, codec)) {
+                        secret = SealedSecret.seal(aes, key, codec, password.id(), password.getPass(), password.getOther());
+                    }
+                    JsonObject metadata = GSON.toJsonTree(password).getAsJsonObject();
+                    metadata.remove("pass");
+                    metadata.remove("other");
+                    writeRecord(records, aes.seal(codec.compress(GSON.toJson(metadata).getBytes(StandardCharsets.UTF_8)), null, key));
+                    writeRecord(records, secret.getBytes());
+                }
+                records.writeInt(0);
+                writeRecord(records, aes.seal(ByteBuffer.allocate(4).putInt(passwords.size()).array(), END_OF_RECORDS, key));
+            }
+            return;
+        }
+        try (DataOutputStream records = new DataOutputStream(new BufferedOutputStream(codec.compress(new AESOutputStream(out, aes, key, header.associatedData()))))) {
+            int count = 0;
+            for (Password password : passwords) {
+                // Sealed secrets have to be written in plain
+                writeRecord(records, GSON.toJson(password.getSecret() == null ? password : new Password(password)).getBytes(StandardCharsets.UTF_8));
+                count++;
+            }
+            records.writeInt(0);
+            records.writeInt(count);
+        }
+    }
+
+    /**
+     * Reads all {@link Password} objects from a given stream that was either written via {@link VaultFormat#write(Collection, OutputStream, AES)}
+     * or by an older version of PassVault.
+     * A wrong password is detected via {@link VaultHeader#unlock(AES)} before anything is decrypted, files of older versions
+     * will be written with the current header on the next save.
+     *
+     * @param in  The stream to read from
+     * @param aes The {@link AES} object to decrypt
+     * @return The read passwords
+     * @throws IOException                Error while reading or unknown format version
+     * @throws AES.WrongPasswordException Wrong password
+     */
+    public static List<Password> read(InputStream in, AES aes) throws IOException, AES.WrongPasswordException {
+        List<Password> passwords = new ArrayList<>();
+        read(in, aes, passwords::add);
+        return passwords;
+    }
+
+    /**
+     * Reads the {@link Password} objects from a given stream like {@link VaultFormat#read(InputStream, AES)}, but hands them over
+     * one at a time instead of collecting them, so that they don't have to be kept in memory at once.
+     * Missing records of a file written via {@link Mode#ENTRY} are only detected after all passwords were handed over.
+     *
+     * @param in       The stream to read from
+     * @param aes      The {@link AES} object to decrypt
+     * @param consumer Gets every read password
+     * @throws IOException                Error while reading or unknown format version
+     * @throws AES.WrongPasswordException Wrong password
+     */
+    public static void read(InputStream in, AES aes, Consumer<Password> consumer) throws IOException, AES.WrongPasswordException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(16);
+        VaultHeader header = VaultHeader.read(buffered);
+        if (header == null) {
+            buffered.reset();
+            readLegacy(buffered, aes, consumer);
+            return;
+        }
+        KeySource key = header.unlock(aes);
+        if (header.getMode() == Mode.ENTRY) {
+            readEntries(buffered, aes, key, header.getCodec(), consumer);
+            return;
+        }
+        readStream(new AESInputStream(buffered, aes, key, header.associatedData()), header.getCodec(), consumer);
+    }
+
+    /**
+     * Reads passwords from the remaining bytes of a buffer, e.g. a file mapped via {@link java.nio.channels.FileChannel#map}.
+     * In {@link Mode#STREAM}, the chunks are decrypted straight out of the buffer ({@link AESInputStream#AESInputStream(ByteBuffer, AES, KeySource, byte[])}),
+     * so the encrypted file isn't copied onto the heap. The read passwords don't reference the buffer, so it may be released afterwards.
+     *
+     * @param buffer The buffer to read from, its position isn't changed
+     * @param aes    The {@link AES} object to decrypt
+     * @return The read passwords
+     * @throws IOException                Error while reading or unknown format version
+     * @throws AES.WrongPasswordException Wrong password
+     */
+    public static List<Password> read(ByteBuffer buffer, AES aes) throws IOException, AES.WrongPasswordException {
+        List<Password> passwords = new ArrayList<>();
+        read(buffer, aes, passwords::add);
+        return passwords;
+    }
+
+    /**
+     * Reads the {@link Password} objects from the remaining bytes of a buffer like {@link VaultFormat#read(ByteBuffer, AES)},
+     * but hands them over one at a time, see {@link VaultFormat#read(InputStream, AES, Consumer)}
+     *
+     * @param buffer   The buffer to read from, its position isn't changed
+     * @param aes      The {@link AES} object to decrypt
+     * @param consumer Gets every read password
+     * @throws IOException                Error while reading or unknown format version
+     * @throws AES.WrongPasswordException Wrong password
+     */
+    public static void read(ByteBuffer buffer, AES aes, Consumer<Password> consumer) throws IOException, AES.WrongPasswordException {
+        ByteBuffer data = buffer.duplicate();
+        VaultHeader header = VaultHeader.read(new ByteBufferInputStream(data));
+        if (header == null) {
+            ((Buffer) data).position(buffer.position());
+            readLegacy(new ByteBufferInputStream(data), aes, consumer);
+            return;
+        }
+        KeySource key = header.unlock(aes);
+        if (header.getMode() == Mode.ENTRY) {
+            // The records are copied anyway, as the passwords keep their sealed secrets
+            readEntries(new ByteBufferInputStream(data), aes, key, header.getCodec(), consumer);
+            return;
+        }
+        readStream(new AESInputStream(data, aes, key, header.associatedData()), header.getCodec(), consumer);
+    }
+
+    /**
+     * Reads all {@link Password} objects from a file. The file is mapped into memory and decrypted straight from there
+     * via {@link VaultFormat#read(ByteBuffer, AES)}.
+     *
+     * @param file The file to read from
+     * @param aes  The {@link AES} object to decrypt
+     * @return The read passwords
+     * @throws IOException                Error while reading or unknown format version
+     * @throws AES.WrongPasswordException Wrong password
+     */
+    public static List<Password> read(File file, AES aes) throws IOException, AES.WrongPasswordException {
+        List<Password> passwords = new ArrayList<>();
+        read(file, aes, passwords::add);
+        return passwords;
+    }
+
+    /**
+     * Reads the {@link Password} objects from a file like {@link VaultFormat#read(File, AES)}, but hands them over one at a time,
+     * see {@link VaultFormat#read(InputStream, AES, Consumer)}
+     *
+     * @param file     The file to read from
+     * @param aes      The {@link AES} object to decrypt
+     * @param consumer Gets every read password
+     * @throws IOException                Error while reading or unknown format version
+     * @throws AES.WrongPasswordException Wrong password
+     */
+    public static void read(File file, AES aes, Consumer<Password> consumer) throws IOException, AES.WrongPasswordException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                read(mapped, aes, consumer);
+            } finally {
+                // Otherwise the file stays mapped until the next garbage collection and couldn't be overwritten on Windows
+                unmap(mapped);
+            }
+        }
+    }
+
+    /**
+     * Releases the memory of a direct {@link ByteBuffer} or the mapping of a {@link java.nio.MappedByteBuffer} immediately instead of waiting
+     * for the garbage collector, e.g. because a mapped file can't be overwritten on Windows as long as it is mapped.
+     * The buffer and all of its views mustn't be used afterwards.
+     *
+     * @param buffer The buffer to release
+     */
+    private static void unmap(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return;
+        }
+        try {
+            try {
+                // Java 9+
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception ignored) {
+            // Not supported by this JVM -> the garbage collector releases the buffer
+        }
+    }
+
+    /**
+     * Reads the records of a file that was written via {@link Mode#STREAM}.
+     * The chunks are checked by {@link AESInputStream}, the amount of records at the end detects records that are missing anyway.
+     *
+     * @param in       The stream of decrypted chunks
+     * @param codec    The codec the records were compressed with
+     * @param consumer Gets every read password
+     * @throws IOException                Error while reading, invalid or missing records
+     * @throws AES.WrongPasswordException Modified chunks
+     */
+    private static void readStream(AESInputStream in, Codec codec, Consumer<Password> consumer) throws IOException, AES.WrongPasswordException {
+        try (DataInputStream records = new DataInputStream(new BufferedInputStream(codec.decompress(in)))) {
+            byte[] record = new byte[0];
+            int count = 0;
+            try {
+                int length;
+                while ((length = readLength(records)) != 0) {
+                    if (record.length < length) {
+                        record = new byte[length];
+                    }
+                    records.readFully(record, 0, length);
+                    consumer.accept(GSON.fromJson(new String(record, 0, length, StandardCharsets.UTF_8), Password.class));
+                    count++;
+                }
+                if (records.readInt() != count) {
+                    throw new IOException("Vault file is incomplete");
+                }
+            } catch (EOFException e) {
+                throw new IOException("Vault file is incomplete", e);
+            }
+        }
+    }
+
+    /**
+     * Changes the password of a vault file by only rewriting its header with the {@link DataKey} wrapped by a given {@link AES} object.
+     * This only works if the file is encrypted with the object's {@link AES#getDataKey()}, otherwise the file has to be written completely.
+     * <p>
+     * The header holds the only copy of the wrapped data key, so it isn't overwritten in place: the new header and the unchanged passwords
+     * are written to a temporary file, which replaces the file atomically once it's synced, so the file is never left without a valid header.
+     *
+     * @param file The vault file
+     * @param aes  The {@link AES} object with the new password, it has to know the data key of the file already
+     * @return Whether the header could be rewritten
+     * @throws IOException Error while reading or writing the file
+     */
+    public static boolean rekey(File file, AES aes) throws IOException {
+        VaultHeader header;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            header = VaultHeader.read(in);
+        }
+        if (header == null || aes.findDataKey(header.getDataKeyId()) == null) {
+            return false;
+        }
+        long position = header.toByteArray().length;
+
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (FileChannel body = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 FileOutputStream out = new FileOutputStream(temp)) {
+                VaultHeader.create(aes, header.getMode(), header.getCodec()).write(out);
+                while (position < body.size()) {
+                    position += body.transferTo(position, body.size() - position, out.getChannel());
+                }
+                out.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        return true;
+    }
+
+    /**
+     * Reads the records of a file written via {@link Mode#ENTRY}.
+     * Only the metadata is decrypted, the secrets stay sealed inside the passwords.
+     *
+     * @param in    The stream to read from, positioned after the header
+     * @param aes   The {@link AES} object to decrypt
+     * @param key   The key of the passwords, see {@link VaultHeader#unlock(AES)}
+     * @param codec    The codec of the file
+     * @param consumer Gets every read password
+     * @throws IOException                Error while reading or missing records
+     * @throws AES.WrongPasswordException Wrong password or modified records
+     */
+    private static void readEntries(InputStream in, AES aes, KeySource key, Codec codec, Consumer<Password> consumer) throws IOException, AES.WrongPasswordException {
+        try (DataInputStream records = new DataInputStream(in)) {
+            int count = 0;
+            byte[] metadata;
+            while ((metadata = readRecord(records)) != null) {
+                Password password = GSON.fromJson(new String(codec.decompress(aes.open(metadata, null, key)), StandardCharsets.UTF_8), Password.class);
+                byte[] secret = readRecord(records);
+                if (secret == null) {
+                    throw new IOException("Vault file is incomplete");
+                }
+                password.seal(new SealedSecret(aes, key, codec, password.id(), secret));
+                consumer.accept(password);
+                count++;
+            }
+            byte[] end = readRecord(records);
+            if (end == null || ByteBuffer.wrap(aes.open(end, END_OF_RECORDS, key)).getInt() != count) {
+                throw new IOException("Vault file is incomplete");
+            }
+        }
+    }
+
+    /**
+     * Reads the length of the next record
+     *
+     * @param in The stream to read from
+     * @return The length, 0 marks the end of the records
+     * @throws IOException Error while reading or the length is invalid
+     */
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_RECORD) {
+            throw new IOException("Invalid record length " + length);
+        }
+        return length;
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] record) throws IOException {
+        out.writeInt(record.length);
+        out.write(record);
+    }
+
+    /**
+     * Reads a record that was written via {@link VaultFormat#writeRecord(DataOutputStream, byte[])}
+     *
+     * @param in The stream to read from
+     * @return The record or {@code null} if its length is zero
+     * @throws IOException Error while reading or the length is invalid
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        in.readFully(record);
+        return record;
+    }
+
+    /**
+     * Reads passwords that were written as a single encrypted line by {@link AESWriter}
+     *
+     * @param in       The stream to read from
+     * @param aes      The {@link AES} object to decrypt
+     * @param consumer Gets every read password
+     * @throws IOException                Error while reading
+     * @throws AES.WrongPasswordException Wrong password
+     */
+    private static void readLegacy(InputStream in, AES aes, Consumer<Password> consumer) throws IOException, AES.WrongPasswordException {
+        try (AESReader aesReader = new AESReader(new InputStreamReader(in, StandardCharsets.UTF_8), aes)) {
+            Arrays.asList(GSON.fromJson(aesReader.readLine(), Password[].class)).forEach(consumer);
+        }
+    }
+
+    /**
+     * An {@link InputStream} reading the remaining bytes of a {@link ByteBuffer}
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            ((Buffer) buffer).position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * The ways the passwords can be encrypted inside a vault file
+     */
+    public enum Mode {
+        /**
+         * All passwords are encrypted as a single stream of authenticated chunks, which is compact and fast to read, but has to be decrypted completely
+         */
+        STREAM,
+        /**
+         * Each password is encrypted on its own with an authenticated cipher, so that its secret parameters
+         * only have to be decrypted when they're needed
+         */
+        ENTRY
+    }
+}
@@ -0,0 +1,198 @@
+package de.finnik.passvault.passwords;
+
+import de.finnik.AES.AES;
+import de.finnik.AES.DataKey;
+import de.finnik.AES.KeyDerivation;
+import de.finnik.AES.KeySource;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * The plain header at the beginning of every vault file.
+ * <p>
+ * It tells which format version, mode ({@link VaultFormat.Mode}), compression ({@link Codec}) and key derivation (including salt and cost, see {@link KeyDerivation}) were used to write the file.
+ * The passwords are encrypted with a random {@link DataKey}, which is stored inside the header wrapped
+ * ({@link AES#seal(byte[], byte[], KeySource)}) with the key derived from the password, so that a wrong password is detected
+ * before anything else has to be decrypted and changing the password only means rewriting the header.
+ * Files of older versions don't have a header at all, see {@link VaultHeader#read(InputStream)}.
+ */
+public class VaultHeader {
+    /**
+     * The current version of the format
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The bytes every vault file starts with
+     */
+    private static final byte[] MAGIC = {'P', 'V', 'L', 'T'};
+
+    private final VaultFormat.Mode mode;
+    private final Codec codec;
+    private final KeyDerivation keyDerivation;
+    private final byte[] dataKeyId;
+    private final byte[] wrappedDataKey;
+
+    private VaultHeader(VaultFormat.Mode mode, Codec codec, KeyDerivation keyDerivation, byte[] dataKeyId, byte[] wrappedDataKey) {
+        this.mode = mode;
+        this.codec = codec;
+        this.keyDerivation = keyDerivation;
+        this.dataKeyId = dataKeyId;
+        this.wrappedDataKey = wrappedDataKey;
+    }
+
+    /**
+     * Creates the header for a file that will be encrypted with a given {@link AES} object.
+     * The file will be encrypted with the object's {@link AES#getDataKey()}, which is wrapped with its {@link AES#getKeyDerivation()}.
+     *
+     * @param aes   The {@link AES} object that will be used to encrypt the file
+     * @param mode  How the passwords will be encrypted
+     * @param codec How the passwords will be compressed
+     * @return The header
+     */
+    public static VaultHeader create(AES aes, VaultFormat.Mode mode, Codec codec) {
+        KeyDerivation keyDerivation = aes.getKeyDerivation();
+        DataKey dataKey = aes.getDataKey();
+        byte[] id = dataKey.getId();
+        return new VaultHeader(mode, codec, keyDerivation, id, aes.seal(dataKey.getEncoded(), id, keyDerivation));
+    }
+
+    /**
+     * Reads the header from the beginning of a given stream
+     *
+     * @param in The stream to read from
+     * @return The read header or {@code null} if the stream doesn't start with the magic bytes, like the headerless files of older versions
+     * @throws IOException Error while reading or unsupported version, mode, codec or key derivation
+     */
+    public static VaultHeader read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        if (data.read(magic) != MAGIC.length || !Arrays.equals(magic, MAGIC)) {
+            return null;
+        }
+
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported vault format version " + version);
+        }
+
+        String modeName = data.readUTF();
+        VaultFormat.Mode mode;
+        try {
+            mode = VaultFormat.Mode.valueOf(modeName);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported mode " + modeName, e);
+        }
+        String name = data.readUTF();
+        Codec codec;
+        try {
+            codec = Codec.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported codec " + name, e);
+        }
+        KeyDerivation keyDerivation = KeyDerivation.read(data);
+        byte[] dataKeyId = readBytes(data);
+        return new VaultHeader(mode, codec, keyDerivation, dataKeyId, readBytes(data));
+    }
+
+    private static byte[] readBytes(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readUnsignedByte()];
+        data.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes the header to a given stream
+     *
+     * @param out The stream to write to
+     * @throws IOException Error while writing
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        data.writeUTF(mode.name());
+        data.writeUTF(codec.name());
+        keyDerivation.write(data);
+        data.writeByte(dataKeyId.length);
+        data.write(dataKeyId);
+        data.writeByte(wrappedDataKey.length);
+        data.write(wrappedDataKey);
+        data.flush();
+    }
+
+    /**
+     * @return The header as it is written via {@link VaultHeader#write(OutputStream)}
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the parts of the header the encrypted passwords are bound to: everything besides the key derivation and the wrapped {@link DataKey},
+     * which change when the password is changed via {@link VaultFormat#rekey(java.io.File, AES)}
+     *
+     * @return The bytes to use as associated data
+     */
+    public byte[] associatedData() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(out)) {
+            data.write(MAGIC);
+            data.writeByte(VERSION);
+            data.writeUTF(mode.name());
+            data.writeUTF(codec.name());
+            data.writeByte(dataKeyId.length);
+            data.write(dataKeyId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the key the passwords of the file are encrypted with.
+     * If the given {@link AES} object already knows the {@link DataKey} of the file, it is used without unwrapping, so that files can be read
+     * even if they were written before the password was changed.
+     * Otherwise the data key is unwrapped and the object will use it and the already derived key of this file for writing
+     * ({@link AES#adoptDataKey(DataKey)}, {@link AES#adoptKeyDerivation(KeyDerivation)}).
+     *
+     * @param aes The {@link AES} object to decrypt the file
+     * @return The key of the passwords
+     * @throws AES.WrongPasswordException The {@link AES} object contains the wrong password
+     */
+    public KeySource unlock(AES aes) throws AES.WrongPasswordException {
+        DataKey dataKey = aes.findDataKey(dataKeyId);
+        if (dataKey == null) {
+            dataKey = DataKey.of(dataKeyId, aes.open(wrappedDataKey, dataKeyId, keyDerivation));
+            aes.adoptKeyDerivation(keyDerivation);
+            aes.adoptDataKey(dataKey);
+        }
+        return dataKey;
+    }
+
+    public VaultFormat.Mode getMode() {
+        return mode;
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    public KeyDerivation getKeyDerivation() {
+        return keyDerivation;
+    }
+
+    /**
+     * @return The id of the {@link DataKey} of the file
+     */
+    public byte[] getDataKeyId() {
+        return dataKeyId;
+    }
+}
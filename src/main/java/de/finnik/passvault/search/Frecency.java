@@ -0,0 +1,101 @@
+package de.finnik.passvault.search;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Counts how often and how recently each password was used (its password was copied).
+ * Every use adds 1 to the score of a password, which then halves every {@link Frecency#HALF_LIFE_MILLIS}.
+ * Only the score and the time of the last use are stored per password id, as json via {@link Frecency#toJson()}.
+ */
+public class Frecency {
+    /**
+     * The time after which a use only counts half
+     */
+    public static final long HALF_LIFE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+    /**
+     * The most passwords whose uses are stored, the ones with the lowest scores are dropped first
+     */
+    private static final int MAX_ENTRIES = 1000;
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The score at the time of the last use and the time of the last use per password id
+     */
+    private final Map<String, double[]> uses;
+
+    /**
+     * Creates a frecency without any uses
+     */
+    public Frecency() {
+        this(new HashMap<>());
+    }
+
+    private Frecency(Map<String, double[]> uses) {
+        this.uses = uses;
+    }
+
+    /**
+     * Reads the uses from json, as written by {@link Frecency#toJson()}
+     *
+     * @param json The json, may be {@code null}
+     * @return The frecency, without any uses if the json isn't valid
+     */
+    public static Frecency parse(String json) {
+        try {
+            Map<String, double[]> uses = json == null ? null : GSON.fromJson(json, new TypeToken<Map<String, double[]>>() {
+            }.getType());
+            if (uses != null) {
+                uses.values().removeIf(use -> use == null || use.length != 2);
+                return new Frecency(uses);
+            }
+        } catch (JsonParseException ignored) {
+        }
+        return new Frecency();
+    }
+
+    /**
+     * Records a use of a password
+     *
+     * @param id  The id of the password
+     * @param now The time of the use in milliseconds
+     */
+    public synchronized void record(String id, long now) {
+        uses.put(id, new double[]{score(id, now) + 1, now});
+    }
+
+    /**
+     * @param id  The id of a password
+     * @param now The current time in milliseconds
+     * @return The decayed score of the uses of the password, 0 if it was never used
+     */
+    public synchronized double score(String id, long now) {
+        double[] use = uses.get(id);
+        if (use == null) {
+            return 0;
+        }
+        return use[0] * Math.pow(0.5, Math.max(0, now - use[1]) / (double) HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * Writes the uses as json. If there are more than {@link Frecency#MAX_ENTRIES}, the lowest scores are dropped.
+     *
+     * @return The json
+     */
+    public synchronized String toJson() {
+        if (uses.size() > MAX_ENTRIES) {
+            long now = System.currentTimeMillis();
+            uses.keySet().stream()
+                    .sorted((one, two) -> Double.compare(score(one, now), score(two, now)))
+                    .limit(uses.size() - MAX_ENTRIES)
+                    .collect(Collectors.toList())
+                    .forEach(uses::remove);
+        }
+        return GSON.toJson(uses);
+    }
+}
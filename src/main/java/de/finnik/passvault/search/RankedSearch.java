@@ -0,0 +1,64 @@
+package de.finnik.passvault.search;
+
+import de.finnik.passvault.passwords.Password;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the best matching passwords of a {@link TrigramIndex} ranked via a {@link Ranking}.
+ * The passwords that contain the query are found via a {@link SearchSession}, so typing stays cheap.
+ * If they're fewer than the wanted results, the passwords sharing most trigrams with the query are scored as well,
+ * as they may contain the query with a typo. Only the best results are kept ({@link TopK}), the others are never sorted.
+ */
+public class RankedSearch {
+    private final SearchSession session;
+    private final Frecency frecency;
+
+    /**
+     * @param index    The index to search
+     * @param frecency The uses of the passwords, may be {@code null}
+     */
+    public RankedSearch(TrigramIndex index, Frecency frecency) {
+        this.session = new SearchSession(index);
+        this.frecency = frecency;
+    }
+
+    /**
+     * Finds the best matching passwords
+     *
+     * @param key The query
+     * @param top The most results
+     * @return The matching passwords, the best first
+     */
+    public List<Password> search(String key, int top) {
+        String lowerKey = key.toLowerCase();
+        Ranking ranking = new Ranking(key, frecency, System.currentTimeMillis());
+        TopK<Password> best = new TopK<>(top);
+        TrigramIndex index = session.getIndex();
+        synchronized (index) {
+            int[] exact = session.slots(lowerKey);
+            for (int slot : exact) {
+                best.offer(index.password(slot), ranking.score(index.password(slot), index.texts(slot)));
+            }
+            if (exact.length < top && lowerKey.length() >= Ranking.TYPO_MIN_LENGTH) {
+                for (int slot : index.similarSlots(lowerKey, 1)) {
+                    if (Arrays.binarySearch(exact, slot) < 0) {
+                        int score = ranking.score(index.password(slot), index.texts(slot));
+                        if (score > 0) {
+                            best.offer(index.password(slot), score);
+                        }
+                    }
+                }
+            }
+        }
+        return best.result();
+    }
+
+    /**
+     * @return The index this search uses
+     */
+    public TrigramIndex getIndex() {
+        return session.getIndex();
+    }
+}
@@ -0,0 +1,132 @@
+package de.finnik.passvault.search;
+
+import de.finnik.passvault.passwords.Password;
+
+/**
+ * Scores how well a password matches a query. A password matches if its site or user contains the query, ignoring the case,
+ * or, for queries of at least {@link Ranking#TYPO_MIN_LENGTH} characters, contains it with a single typo
+ * (one character is missing, added or replaced or two neighbouring characters are swapped). The score of the best matching field counts:
+ * <ul>
+ *     <li>Matches inside the site count more than matches inside the user.</li>
+ *     <li>Matches at the start of a field or of a word inside it (e.g. behind "www.") count more than matches further behind.</li>
+ *     <li>A field that equals the query counts even more, a typo counts less.</li>
+ * </ul>
+ * Passwords that were used recently and often get a boost via their {@link Frecency}.
+ * The secret parameters aren't scored, so they never have to be decrypted.
+ */
+public class Ranking {
+    /**
+     * The least length of queries that are matched with a typo
+     */
+    public static final int TYPO_MIN_LENGTH = 4;
+
+    private static final int[] FIELD_WEIGHTS = {300, 200};
+    private static final int START_BONUS = 60, WORD_BONUS = 40, EQUAL_BONUS = 50, TYPO_PENALTY = 150;
+    private static final double FRECENCY_WEIGHT = 40, MAX_FRECENCY_BOOST = 150;
+
+    private final String lowerKey;
+    private final Frecency frecency;
+    private final long now;
+
+    /**
+     * @param key      The query
+     * @param frecency The uses of the passwords, may be {@code null}
+     * @param now      The current time in milliseconds
+     */
+    public Ranking(String key, Frecency frecency, long now) {
+        this.lowerKey = key.toLowerCase();
+        this.frecency = frecency;
+        this.now = now;
+    }
+
+    /**
+     * @param password The password to score
+     * @return The score, 0 if the password doesn't match
+     */
+    public int score(Password password) {
+        return score(password, password.getMetadata().map(String::toLowerCase).toArray(String[]::new));
+    }
+
+    /**
+     * @param password   The password, its id is only created if it matches
+     * @param lowerTexts The lower case site and user of the password
+     * @return The score, 0 if the password doesn't match
+     */
+    int score(Password password, String[] lowerTexts) {
+        int best = 0;
+        for (int field = 0; field < lowerTexts.length && field < FIELD_WEIGHTS.length; field++) {
+            best = Math.max(best, score(lowerTexts[field], FIELD_WEIGHTS[field], lowerTexts[field].indexOf(lowerKey), 0));
+        }
+        // Typos are only searched if no field contains the query, as a typo never counts more than an exact match of another field
+        for (int field = 0; best == 0 && lowerKey.length() >= TYPO_MIN_LENGTH && field < lowerTexts.length && field < FIELD_WEIGHTS.length; field++) {
+            best = Math.max(best, score(lowerTexts[field], FIELD_WEIGHTS[field], matchWithTypo(lowerTexts[field]), 1));
+        }
+        if (best == 0) {
+            return 0;
+        }
+        if (frecency != null) {
+            best += (int) Math.min(MAX_FRECENCY_BOOST, FRECENCY_WEIGHT * Math.log1p(frecency.score(password.id(), now)));
+        }
+        return best;
+    }
+
+    /**
+     * @param text     The lower case field
+     * @param weight   The weight of the field
+     * @param position The position of the match inside the field, -1 if there's none
+     * @param typos    The amount of typos of the match
+     * @return The score of the match, 0 if there's none
+     */
+    private int score(String text, int weight, int position, int typos) {
+        if (position < 0) {
+            return 0;
+        }
+        int score = weight - typos * TYPO_PENALTY;
+        if (position == 0) {
+            score += START_BONUS;
+        } else if (!Character.isLetterOrDigit(text.charAt(position - 1))) {
+            score += WORD_BONUS;
+        } else {
+            score += Math.max(0, 20 - position);
+        }
+        if (typos == 0 && text.length() == lowerKey.length()) {
+            score += EQUAL_BONUS;
+        }
+        return Math.max(1, score);
+    }
+
+    /**
+     * Searches the query inside a text with at most one typo (Sellers' algorithm with transpositions)
+     *
+     * @param text The lower case text
+     * @return The approximate position of the match or -1
+     */
+    private int matchWithTypo(String text) {
+        int m = lowerKey.length();
+        // The edit distances between the first i characters of the query and any substring ending at the current, the last and the
+        // second last position of the text
+        int[] current = new int[m + 1], last = new int[m + 1], secondLast = new int[m + 1];
+        for (int i = 0; i <= m; i++) {
+            current[i] = i;
+        }
+        for (int j = 0; j < text.length(); j++) {
+            int[] swap = secondLast;
+            secondLast = last;
+            last = current;
+            current = swap;
+            char c = text.charAt(j);
+            current[0] = 0;
+            for (int i = 1; i <= m; i++) {
+                int distance = Math.min(Math.min(current[i - 1] + 1, last[i] + 1), last[i - 1] + (lowerKey.charAt(i - 1) == c ? 0 : 1));
+                if (i > 1 && j > 0 && lowerKey.charAt(i - 1) == text.charAt(j - 1) && lowerKey.charAt(i - 2) == c) {
+                    distance = Math.min(distance, secondLast[i - 2] + 1);
+                }
+                current[i] = distance;
+            }
+            if (current[m] <= 1) {
+                return Math.max(0, j - m + 1);
+            }
+        }
+        return -1;
+    }
+}
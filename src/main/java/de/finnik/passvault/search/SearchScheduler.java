@@ -0,0 +1,176 @@
+package de.finnik.passvault.search;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs searches on a background thread, so that typing never waits for them.
+ * A search starts only after the query didn't change for a moment (debounce). Every new search supersedes all former ones:
+ * Superseded searches that didn't start yet are cancelled, the results of the ones that were already running are dropped,
+ * so only the result of the newest search is ever published.
+ * <p>
+ * The scheduler counts the searches and measures their latency from the submit until the result is published.
+ *
+ * @param <T> The type of the results
+ */
+public class SearchScheduler<T> {
+    private final long debounceMillis;
+    /**
+     * Hands the results over to the thread they're used on, e.g. the event dispatch thread
+     */
+    private final Consumer<Runnable> publisher;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The number of the newest search
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong(), published = new AtomicLong(), dropped = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong(), maxNanos = new AtomicLong(), searchNanos = new AtomicLong();
+    private ScheduledFuture<?> pending;
+    /**
+     * Set by either the pending search when it starts or by the next search when it cancels the pending one
+     */
+    private AtomicBoolean pendingClaimed;
+
+    /**
+     * @param debounceMillis How long a query has to stay unchanged before it's searched
+     * @param publisher      Runs the publishing of the results, e.g. {@code SwingUtilities::invokeLater}
+     */
+    public SearchScheduler(long debounceMillis, Consumer<Runnable> publisher) {
+        this.debounceMillis = debounceMillis;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Schedules a search after the debounce delay, all former searches are superseded
+     *
+     * @param search   The search
+     * @param onResult Handles the result on the thread of the {@link SearchScheduler#publisher}
+     */
+    public void submit(Supplier<T> search, Consumer<T> onResult) {
+        schedule(search, onResult, debounceMillis);
+    }
+
+    /**
+     * Schedules a search without any delay, all former searches are superseded
+     *
+     * @param search   The search
+     * @param onResult Handles the result on the thread of the {@link SearchScheduler#publisher}
+     */
+    public void submitNow(Supplier<T> search, Consumer<T> onResult) {
+        schedule(search, onResult, 0);
+    }
+
+    private synchronized void schedule(Supplier<T> search, Consumer<T> onResult, long delayMillis) {
+        long start = System.nanoTime();
+        long number = generation.incrementAndGet();
+        submitted.incrementAndGet();
+        if (pending != null && pendingClaimed.compareAndSet(false, true)) {
+            // The pending search didn't start yet
+            pending.cancel(false);
+            dropped.incrementAndGet();
+        }
+        AtomicBoolean claimed = new AtomicBoolean();
+        pendingClaimed = claimed;
+        pending = executor.schedule(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            if (number != generation.get()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            T result;
+            long searchStart = System.nanoTime();
+            try {
+                result = search.get();
+            } catch (RuntimeException e) {
+                // Thrown where the search would have run without the scheduler
+                publisher.accept(() -> {
+                    throw e;
+                });
+                return;
+            }
+            long searchTime = System.nanoTime() - searchStart;
+            publisher.accept(() -> {
+                if (number != generation.get()) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                long nanos = System.nanoTime() - start;
+                published.incrementAndGet();
+                totalNanos.addAndGet(nanos);
+                searchNanos.addAndGet(searchTime);
+                maxNanos.accumulateAndGet(nanos, Math::max);
+                onResult.accept(result);
+            });
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread, searches that are submitted afterwards are rejected
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The amount of submitted searches
+     */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * @return The amount of searches whose results were published
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * @return The amount of searches that were cancelled or whose results were dropped, because a newer search was submitted
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return The mean time from submitting a search to publishing its result in microseconds, including the debounce delay
+     */
+    public long getMeanLatencyMicros() {
+        long count = published.get();
+        return count == 0 ? 0 : totalNanos.get() / count / 1000;
+    }
+
+    /**
+     * @return The mean time the published searches themselves took in microseconds
+     */
+    public long getMeanSearchMicros() {
+        long count = published.get();
+        return count == 0 ? 0 : searchNanos.get() / count / 1000;
+    }
+
+    /**
+     * @return The longest time from submitting a search to publishing its result in microseconds, including the debounce delay
+     */
+    public long getMaxLatencyMicros() {
+        return maxNanos.get() / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d searches, %d published, %d dropped, latency mean %d us, max %d us, search mean %d us",
+                getSubmitted(), getPublished(), getDropped(), getMeanLatencyMicros(), getMaxLatencyMicros(), getMeanSearchMicros());
+    }
+}
@@ -0,0 +1,108 @@
+package de.finnik.passvault.search;
+
+import de.finnik.passvault.passwords.Password;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Searches a {@link TrigramIndex} while the user types and remembers the results of the latest queries:
+ * <ul>
+ *     <li>If a query contains a former one (e.g. it was extended by a character), only the results of the former query are checked.</li>
+ *     <li>If a query was searched shortly before (e.g. after a backspace), its results are returned again.</li>
+ * </ul>
+ * So a keystroke costs only as much as there are results of the former query, independent of the size of the vault.
+ * The remembered results are dropped as soon as the index changes.
+ */
+public class SearchSession {
+    /**
+     * The amount of queries whose results are remembered
+     */
+    private static final int HISTORY = 16;
+
+    private final TrigramIndex index;
+    /**
+     * The latest queries, the newest first
+     */
+    private final Deque<Result> history = new ArrayDeque<>();
+    private long modifications;
+
+    /**
+     * @param index The index to search
+     */
+    public SearchSession(TrigramIndex index) {
+        this.index = index;
+        this.modifications = index.getModifications();
+    }
+
+    /**
+     * Finds all passwords whose site or user contain a given {@link String}, ignoring the case
+     *
+     * @param key The keyword to be searched
+     * @return The matching passwords in the order they were indexed
+     * @see TrigramIndex#search(String)
+     */
+    public List<Password> search(String key) {
+        synchronized (index) {
+            return index.passwords(slots(key.toLowerCase()));
+        }
+    }
+
+    /**
+     * Finds the slots of all passwords matching a query
+     *
+     * @param lowerKey The lower case keyword
+     * @return The sorted slots of the matching passwords, they mustn't be changed
+     */
+    int[] slots(String lowerKey) {
+        synchronized (index) {
+            if (index.getModifications() != modifications) {
+                history.clear();
+                modifications = index.getModifications();
+            }
+
+            Result narrowest = null;
+            for (Iterator<Result> iterator = history.iterator(); iterator.hasNext(); ) {
+                Result result = iterator.next();
+                if (result.key.equals(lowerKey)) {
+                    iterator.remove();
+                    history.addFirst(result);
+                    return result.slots;
+                }
+                // Every password matching the query also matches all queries it contains
+                if (lowerKey.contains(result.key) && (narrowest == null || result.slots.length < narrowest.slots.length)) {
+                    narrowest = result;
+                }
+            }
+
+            int[] slots = narrowest != null ? index.refine(narrowest.slots, narrowest.slots.length, lowerKey) : index.slots(lowerKey);
+            history.addFirst(new Result(lowerKey, slots));
+            if (history.size() > HISTORY) {
+                history.removeLast();
+            }
+            return slots;
+        }
+    }
+
+    /**
+     * @return The index this session searches
+     */
+    public TrigramIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * The matching slots of a former query
+     */
+    private static class Result {
+        final String key;
+        final int[] slots;
+
+        Result(String key, int[] slots) {
+            this.key = key;
+            this.slots = slots;
+        }
+    }
+}
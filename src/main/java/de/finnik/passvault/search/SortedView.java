@@ -0,0 +1,181 @@
+package de.finnik.passvault.search;
+
+import de.finnik.passvault.passwords.Password;
+
+import java.util.*;
+
+/**
+ * Keeps passwords sorted by their site, their user or their last modification.
+ * The view is sorted once when it's built and then kept sorted via {@link SortedView#add(Password)}, {@link SortedView#update(Password)}
+ * and {@link SortedView#remove(Password)}, each of them costs O(log n). Reading the passwords in order never sorts them
+ * and never changes the list they came from.
+ * <p>
+ * Deleted passwords, which are kept as empty passwords ({@link Password#isEmpty()}), aren't part of the view.
+ */
+public class SortedView {
+    /**
+     * The orders of a {@link SortedView}
+     */
+    public enum Order {
+        /**
+         * By site, passwords with the same site by user
+         */
+        SITE(Comparator.<Entry, String>comparing(entry -> entry.site).thenComparing(entry -> entry.user)),
+        /**
+         * By user, passwords with the same user by site
+         */
+        USER(Comparator.<Entry, String>comparing(entry -> entry.user).thenComparing(entry -> entry.site)),
+        /**
+         * By last modification, the newest first
+         */
+        MODIFIED(Comparator.<Entry>comparingLong(entry -> entry.modified).reversed());
+
+        private final Comparator<Entry> comparator;
+
+        Order(Comparator<Entry> comparator) {
+            // Equal passwords keep the order they were added in
+            this.comparator = comparator.thenComparingLong(entry -> entry.number);
+        }
+
+        /**
+         * @param name The name of an order, ignoring the case
+         * @return The order
+         * @throws IllegalArgumentException If there's no order with this name
+         */
+        public static Order of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final Order order;
+    private final TreeSet<Entry> entries;
+    /**
+     * The entry of each password in the view, holding the keys the password was sorted by
+     */
+    private final Map<Password, Entry> passwords = new IdentityHashMap<>();
+    private long added;
+    /**
+     * The passwords in order, {@code null} if they changed since they were last read
+     */
+    private List<Password> sorted;
+
+    /**
+     * Creates an empty view
+     *
+     * @param order The order of the view
+     */
+    public SortedView(Order order) {
+        this.order = order;
+        this.entries = new TreeSet<>(order.comparator);
+    }
+
+    /**
+     * Creates a view of the given passwords
+     *
+     * @param order     The order of the view
+     * @param passwords The passwords
+     */
+    public SortedView(Order order, Collection<Password> passwords) {
+        this(order);
+        passwords.forEach(this::add);
+    }
+
+    /**
+     * Adds a password to the view. Passwords that are part of the view already are updated instead.
+     *
+     * @param password The password
+     */
+    public synchronized void add(Password password) {
+        if (passwords.containsKey(password)) {
+            update(password);
+        } else if (!password.isDeleted()) {
+            Entry entry = new Entry(password, added++);
+            passwords.put(password, entry);
+            entries.add(entry);
+            sorted = null;
+        }
+    }
+
+    /**
+     * Moves a password to its new position after it was changed. Passwords that were deleted are removed from the view.
+     *
+     * @param password The changed password
+     */
+    public synchronized void update(Password password) {
+        Entry entry = passwords.get(password);
+        if (entry == null) {
+            add(password);
+            return;
+        }
+        entries.remove(entry);
+        if (password.isDeleted()) {
+            passwords.remove(password);
+        } else {
+            Entry updated = new Entry(password, entry.number);
+            passwords.put(password, updated);
+            entries.add(updated);
+        }
+        sorted = null;
+    }
+
+    /**
+     * Removes a password from the view
+     *
+     * @param password The password
+     */
+    public synchronized void remove(Password password) {
+        Entry entry = passwords.remove(password);
+        if (entry != null) {
+            entries.remove(entry);
+            sorted = null;
+        }
+    }
+
+    /**
+     * @return The passwords in order, the list can't be modified
+     */
+    public synchronized List<Password> passwords() {
+        if (sorted == null) {
+            List<Password> list = new ArrayList<>(entries.size());
+            entries.forEach(entry -> list.add(entry.password));
+            sorted = Collections.unmodifiableList(list);
+        }
+        return sorted;
+    }
+
+    /**
+     * @return The order of the view
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * @return The amount of passwords in the view
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The keys of a password at the time it was added to the view. They must not change while the entry is inside the tree,
+     * that's why changed passwords get a new entry.
+     */
+    private static class Entry {
+        final Password password;
+        final String site, user;
+        final long modified;
+        /**
+         * The number of the password in the order it was added to the view
+         */
+        final long number;
+
+        Entry(Password password, long number) {
+            this.password = password;
+            this.site = password.getSite();
+            this.user = password.getUser();
+            this.modified = password.lastModified();
+            this.number = number;
+        }
+    }
+}
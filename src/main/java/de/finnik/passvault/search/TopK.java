@@ -0,0 +1,74 @@
+package de.finnik.passvault.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the elements with the highest scores out of any amount of offered elements. It never holds more than {@code k} elements,
+ * so finding the best results out of n costs O(n log k) instead of sorting all of them.
+ * Elements with the same score keep the order they were offered in.
+ *
+ * @param <T> The type of the elements
+ */
+public class TopK<T> {
+    private final int k;
+    /**
+     * The kept elements, the worst one at the head
+     */
+    private final PriorityQueue<Entry<T>> heap;
+    private long offered;
+
+    /**
+     * @param k The amount of elements to keep
+     */
+    public TopK(int k) {
+        this.k = k;
+        Comparator<Entry<T>> worstFirst = Comparator.<Entry<T>>comparingInt(entry -> entry.score)
+                .thenComparing(Comparator.<Entry<T>>comparingLong(entry -> entry.order).reversed());
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), worstFirst);
+    }
+
+    /**
+     * Offers an element, it's kept if it's better than the worst kept element
+     *
+     * @param element The element
+     * @param score   The score of the element
+     */
+    public void offer(T element, int score) {
+        long order = offered++;
+        if (k <= 0) {
+            return;
+        }
+        if (heap.size() < k) {
+            heap.add(new Entry<>(element, score, order));
+        } else if (score > heap.peek().score) {
+            heap.poll();
+            heap.add(new Entry<>(element, score, order));
+        }
+    }
+
+    /**
+     * @return The kept elements, the best first
+     */
+    public List<T> result() {
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort(heap.comparator().reversed());
+        List<T> result = new ArrayList<>(entries.size());
+        entries.forEach(entry -> result.add(entry.element));
+        return result;
+    }
+
+    private static class Entry<T> {
+        final T element;
+        final int score;
+        final long order;
+
+        Entry(T element, int score, long order) {
+            this.element = element;
+            this.score = score;
+            this.order = order;
+        }
+    }
+}
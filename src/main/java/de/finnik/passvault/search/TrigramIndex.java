@@ -0,0 +1,376 @@
+package de.finnik.passvault.search;
+
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.utils.PassUtils;
+
+import java.util.*;
+
+/**
+ * An inverted index of the trigrams (all substrings of three characters) of the site and user of passwords.
+ * It answers the same queries as {@link PassUtils#getAllMatchingPasswords(String, List)}, but instead of scanning all passwords,
+ * only the passwords that contain every trigram of the query are checked. These are found by intersecting the sorted posting lists
+ * of the trigrams, starting with the shortest one.
+ * <p>
+ * Every indexed password gets a slot in the order it was added, so the results keep the order of the indexed list.
+ * The index is built once and then kept up to date via {@link TrigramIndex#add(Password)}, {@link TrigramIndex#update(Password)}
+ * and {@link TrigramIndex#remove(Password)}.
+ * <p>
+ * Like {@link PassUtils#getAllMatchingPasswords(String, List)}, the secret parameters aren't indexed, so they never have to be decrypted
+ * and don't remain in memory as plain text.
+ */
+public class TrigramIndex {
+    /**
+     * The length of the n-grams
+     */
+    public static final int N = 3;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Password, Integer> slots = new IdentityHashMap<>();
+    private Password[] passwords = new Password[16];
+    /**
+     * The lower case site and user of the password in each slot, as they were indexed
+     */
+    private String[][] texts = new String[16][];
+    private int next;
+    private long modifications;
+
+    /**
+     * Creates an empty index
+     */
+    public TrigramIndex() {
+    }
+
+    /**
+     * Creates an index of the given passwords
+     *
+     * @param passwords The passwords to index
+     */
+    public TrigramIndex(Collection<Password> passwords) {
+        passwords.forEach(this::add);
+    }
+
+    /**
+     * Indexes a password, it's appended behind all other passwords. Passwords that are indexed already are updated instead.
+     *
+     * @param password The password to index
+     */
+    public synchronized void add(Password password) {
+        if (slots.containsKey(password)) {
+            update(password);
+            return;
+        }
+        if (next == passwords.length) {
+            passwords = Arrays.copyOf(passwords, next * 2);
+            texts = Arrays.copyOf(texts, next * 2);
+        }
+        int slot = next++;
+        slots.put(password, slot);
+        passwords[slot] = password;
+        index(slot, password);
+        modifications++;
+    }
+
+    /**
+     * Indexes the site and user of a password anew after they were changed
+     *
+     * @param password The changed password
+     */
+    public synchronized void update(Password password) {
+        Integer slot = slots.get(password);
+        if (slot == null) {
+            add(password);
+            return;
+        }
+        unindex(slot);
+        index(slot, password);
+        modifications++;
+    }
+
+    /**
+     * Removes a password from the index
+     *
+     * @param password The password to remove
+     */
+    public synchronized void remove(Password password) {
+        Integer slot = slots.remove(password);
+        if (slot == null) {
+            return;
+        }
+        unindex(slot);
+        passwords[slot] = null;
+        texts[slot] = null;
+        modifications++;
+    }
+
+    /**
+     * Finds all indexed passwords whose site or user contain a given {@link String}, ignoring the case.
+     * Queries that are shorter than {@link TrigramIndex#N} can't use the index, they're answered by checking all passwords.
+     *
+     * @param key The keyword to be searched
+     * @return The matching passwords in the order they were added
+     */
+    public synchronized List<Password> search(String key) {
+        return passwords(slots(key.toLowerCase()));
+    }
+
+    /**
+     * Finds the slots of all passwords matching a query
+     *
+     * @param lowerKey The lower case keyword
+     * @return The sorted slots
+     */
+    synchronized int[] slots(String lowerKey) {
+        if (lowerKey.length() < N) {
+            int[] candidates = new int[next];
+            int size = 0;
+            for (int slot = 0; slot < next; slot++) {
+                if (passwords[slot] != null) {
+                    candidates[size++] = slot;
+                }
+            }
+            return refine(candidates, size, lowerKey);
+        }
+
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + N <= lowerKey.length(); i++) {
+            trigrams.add(trigram(lowerKey, i));
+        }
+        List<Postings> lists = new ArrayList<>(trigrams.size());
+        for (long trigram : trigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        Postings shortest = lists.get(0);
+        int[] candidates = Arrays.copyOf(shortest.slots, shortest.size);
+        int size = candidates.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = lists.get(i).retain(candidates, size);
+        }
+        // The trigrams of the query may appear in another order or in different fields
+        return refine(candidates, size, lowerKey);
+    }
+
+    /**
+     * Keeps only the candidates whose password matches a query
+     *
+     * @param candidates The sorted slots to check
+     * @param count      The amount of candidates
+     * @param lowerKey   The lower case keyword
+     * @return The sorted slots of the matching passwords
+     */
+    synchronized int[] refine(int[] candidates, int count, String lowerKey) {
+        int[] matching = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (matches(candidates[i], lowerKey)) {
+                matching[size++] = candidates[i];
+            }
+        }
+        return size == matching.length ? matching : Arrays.copyOf(matching, size);
+    }
+
+    /**
+     * @param slots Slots of indexed passwords
+     * @return The passwords in these slots
+     */
+    synchronized List<Password> passwords(int[] slots) {
+        List<Password> result = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            result.add(passwords[slot]);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the slots of all passwords that may contain a query with a given amount of typos.
+     * Every typo changes at most {@link TrigramIndex#N} trigrams of the query, so these passwords share all other trigrams with it.
+     * At least one trigram has to be shared, so short queries with typos in the middle aren't found.
+     *
+     * @param lowerKey The lower case keyword
+     * @param typos    The most typos
+     * @return The sorted slots
+     */
+    synchronized int[] similarSlots(String lowerKey, int typos) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + N <= lowerKey.length(); i++) {
+            trigrams.add(trigram(lowerKey, i));
+        }
+        int minShared = Math.max(1, trigrams.size() - typos * N);
+        List<Postings> lists = new ArrayList<>(trigrams.size());
+        int total = 0;
+        for (long trigram : trigrams) {
+            Postings list = postings.get(trigram);
+            if (list != null) {
+                lists.add(list);
+                total += list.size;
+            }
+        }
+        if (lists.size() < minShared) {
+            return new int[0];
+        }
+
+        // Each list contains a slot at most once, so the length of a run is the amount of shared trigrams
+        int[] all = new int[total];
+        int position = 0;
+        for (Postings list : lists) {
+            System.arraycopy(list.slots, 0, all, position, list.size);
+            position += list.size;
+        }
+        Arrays.sort(all);
+        int size = 0;
+        for (int start = 0, end; start < total; start = end) {
+            end = start + 1;
+            while (end < total && all[end] == all[start]) {
+                end++;
+            }
+            if (end - start >= minShared) {
+                all[size++] = all[start];
+            }
+        }
+        return Arrays.copyOf(all, size);
+    }
+
+    /**
+     * @param slot The slot of an indexed password
+     * @return The password
+     */
+    synchronized Password password(int slot) {
+        return passwords[slot];
+    }
+
+    /**
+     * @param slot The slot of an indexed password
+     * @return The lower case site and user of the password
+     */
+    synchronized String[] texts(int slot) {
+        return texts[slot];
+    }
+
+    /**
+     * @return The amount of indexed passwords
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * @return A number that changes with every change of the index
+     */
+    public synchronized long getModifications() {
+        return modifications;
+    }
+
+    private boolean matches(int slot, String lowerKey) {
+        for (String text : texts[slot]) {
+            if (text.contains(lowerKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void index(int slot, Password password) {
+        String[] text = password.getMetadata().map(String::toLowerCase).toArray(String[]::new);
+        texts[slot] = text;
+        for (String field : text) {
+            for (int i = 0; i + N <= field.length(); i++) {
+                postings.computeIfAbsent(trigram(field, i), trigram -> new Postings()).add(slot);
+            }
+        }
+    }
+
+    private void unindex(int slot) {
+        for (String field : texts[slot]) {
+            for (int i = 0; i + N <= field.length(); i++) {
+                long trigram = trigram(field, i);
+                Postings list = postings.get(trigram);
+                if (list != null && list.remove(slot) && list.size == 0) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs the three characters at a given position into a single number
+     */
+    private static long trigram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    /**
+     * The sorted slots of all passwords that contain a trigram
+     */
+    private static class Postings {
+        int[] slots = new int[2];
+        int size;
+
+        void add(int slot) {
+            // While the index is built, slots only grow
+            if (size > 0 && slots[size - 1] >= slot) {
+                int position = Arrays.binarySearch(slots, 0, size, slot);
+                if (position >= 0) {
+                    return;
+                }
+                insert(-position - 1, slot);
+                return;
+            }
+            insert(size, slot);
+        }
+
+        private void insert(int position, int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, position, slots, position + 1, size - position);
+            slots[position] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            int position = Arrays.binarySearch(slots, 0, size, slot);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Keeps only the candidates that are contained in this list
+         *
+         * @param candidates Sorted slots, they're overwritten with the intersection
+         * @param count      The amount of candidates
+         * @return The amount of remaining candidates
+         */
+        int retain(int[] candidates, int count) {
+            int kept = 0, position = 0;
+            for (int i = 0; i < count && position < size; i++) {
+                int candidate = candidates[i];
+                if (size > count * 8) {
+                    // Far longer lists are searched instead of walked through
+                    int found = Arrays.binarySearch(slots, position, size, candidate);
+                    position = found >= 0 ? found + 1 : -found - 1;
+                    if (found >= 0) {
+                        candidates[kept++] = candidate;
+                    }
+                } else {
+                    while (position < size && slots[position] < candidate) {
+                        position++;
+                    }
+                    if (position < size && slots[position] == candidate) {
+                        candidates[kept++] = candidate;
+                        position++;
+                    }
+                }
+            }
+            return kept;
+        }
+    }
+}
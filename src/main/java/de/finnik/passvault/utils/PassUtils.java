@@ -23,19 +23,33 @@ import static de.finnik.gui.Var.*;
 public class PassUtils {
 
     /**
-     * Takes a {@link String} object and a list of {@link Password} objects and finds all passwords that contain the given {@link String}
+     * Takes a {@link String} object and a list of {@link Password} objects and finds all passwords whose site or user contain the given {@link String}.
+     * The secret parameters aren't searched, so they don't have to be decrypted.
      *
      * @param key       The keyword to be searched
      * @param passwords The list of {@link Password} objects
      * @return A list of {@link Password} objects containing the input information
-     * @see Password#getValues()
+     * @see Password#getMetadata()
      */
     public static List<Password> getAllMatchingPasswords(String key, List<Password> passwords) {
-        return passwords.stream().filter(pass -> pass.getValues().anyMatch(arg -> arg.toLowerCase().contains(key.toLowerCase()))).collect(Collectors.toList());
+        return passwords.stream().filter(pass -> matches(pass, key)).collect(Collectors.toList());
     }
 
     /**
-     * Deletes a given {@link Password} by clearing all parameters to ""
+     * Checks whether the site or user of a {@link Password} contains a given {@link String}, ignoring the case
+     *
+     * @param password The {@link Password} object
+     * @param key      The keyword to be searched
+     * @return Whether the password matches
+     * @see PassUtils#getAllMatchingPasswords(String, List)
+     */
+    public static boolean matches(Password password, String key) {
+        String lowerKey = key.toLowerCase();
+        return password.getMetadata().anyMatch(arg -> arg.toLowerCase().contains(lowerKey));
+    }
+
+    /**
+     * Deletes a given {@link Password} by clearing all parameters to "", see {@link Password#isDeleted()}
      *
      * @param password The {@link Password} to delete
      */
@@ -47,19 +61,19 @@ public class PassUtils {
     }
 
     /**
-     * Copies a given {@link String} to the user's clipboard via {@link Utils#copyToClipboard(String)}
+     * Copies a given {@link CharSequence} to the user's clipboard via {@link Utils#copyToClipboard(CharSequence)}
      * <p>
      * Windows: If the user uses a Windows system, the first time this method is called, he will be warned
      * that Windows 10 has a feature that saves your clipboard and for this application your passwords
      *
      * @param owner  The {@link Window} object that would own the dialog with the warning
-     * @param string The {@link String} to be copied to the clipboard
+     * @param string The {@link CharSequence} to be copied to the clipboard, e.g. a {@link de.finnik.AES.Secret}
      * @throws IOException Error while triggering the hint
-     * @see Utils#copyToClipboard(String)
+     * @see Utils#copyToClipboard(CharSequence)
      * @see de.finnik.gui.hints.Hints#triggerHint(String, Consumer)
      * @see HintBrowser#show(Window, String, String)
      */
-    public static void copyToClipboard(Window owner, String string) throws IOException {
+    public static void copyToClipboard(Window owner, CharSequence string) throws IOException {
         if (!HINTS.triggerHint("hints.windows.clipboardHistory", t -> {
             if (System.getProperty("os.name").toLowerCase().contains("win")) {
                 if (DIALOG.confirm(owner, LANG.getString(t))) {
@@ -1,7 +1,9 @@
 package de.finnik.passvault.utils;
 
+import de.finnik.AES.Secret;
+
 import java.awt.*;
-import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URI;
@@ -60,15 +62,85 @@ public class Utils {
     }
 
     /**
-     * Copies a string to the clipboard
+     * Copies a string to the clipboard.
+     * A {@link Secret} is only converted when another application pastes it, which isn't possible anymore once it is wiped.
+     * The clipboard takes over the secret: it's wiped as soon as something else is copied or the clipboard is cleared,
+     * so it should be allocated for the clipboard only, e.g. inside an arena of its own.
      *
      * @param string string to copy
+     * @see Utils#clearClipboard()
      */
-    public static void copyToClipboard(String string) {
-        StringSelection stringSelection = new StringSelection(string);
+    public static void copyToClipboard(CharSequence string) {
+        SecretSelection previous = SecretSelection.owner;
+        if (previous != null) {
+            previous.secret.wipe();
+        }
+        if (string instanceof Secret) {
+            SecretSelection secretSelection = new SecretSelection((Secret) string);
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(secretSelection, secretSelection);
+            return;
+        }
+        StringSelection stringSelection = new StringSelection(string.toString());
         Toolkit.getDefaultToolkit().getSystemClipboard().setContents(stringSelection, stringSelection);
     }
 
+    /**
+     * Empties the clipboard and wipes the {@link Secret} if it still contains one copied via {@link Utils#copyToClipboard(CharSequence)}
+     */
+    public static void clearClipboard() {
+        SecretSelection owner = SecretSelection.owner;
+        if (owner != null) {
+            owner.secret.wipe();
+            StringSelection empty = new StringSelection("");
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(empty, empty);
+            SecretSelection.owner = null;
+        }
+    }
+
+    /**
+     * The contents of the clipboard for a {@link Secret}, only provides the characters as long as the secret isn't wiped.
+     * The secret is wiped when another application takes over the clipboard.
+     */
+    private static class SecretSelection implements Transferable, ClipboardOwner {
+        /**
+         * The selection that currently owns the clipboard
+         */
+        private static volatile SecretSelection owner;
+
+        private final Secret secret;
+
+        SecretSelection(Secret secret) {
+            this.secret = secret;
+            owner = this;
+        }
+
+        @Override
+        public DataFlavor[] getTransferDataFlavors() {
+            return new DataFlavor[]{DataFlavor.stringFlavor};
+        }
+
+        @Override
+        public boolean isDataFlavorSupported(DataFlavor flavor) {
+            return DataFlavor.stringFlavor.equals(flavor);
+        }
+
+        @Override
+        public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException {
+            if (!isDataFlavorSupported(flavor)) {
+                throw new UnsupportedFlavorException(flavor);
+            }
+            return secret.isWiped() ? "" : secret.toString();
+        }
+
+        @Override
+        public void lostOwnership(Clipboard clipboard, Transferable contents) {
+            secret.wipe();
+            if (owner == this) {
+                owner = null;
+            }
+        }
+    }
+
     /**
      * Opens URLs cross-platform
      */
@@ -1,7 +1,19 @@
 import de.finnik.AES.AES;
+import de.finnik.AES.KeyDerivation;
+import de.finnik.AES.Secret;
+import de.finnik.AES.SecretArena;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
 
 public class AESTest {
     @Test
@@ -18,6 +30,90 @@ public class AESTest {
         assertEquals(string, de.decrypt(en.encrypt(string)));
     }
 
+    @Test
+    public void decryptBytesAndBuffers() {
+        byte[] bytes = randomString(100).getBytes(StandardCharsets.UTF_8);
+        AES aes = new AES(randomString(15));
+        assertArrayEquals(bytes, aes.decrypt(aes.encrypt(bytes, KeyDerivation.SHA_256), KeyDerivation.SHA_256));
+
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(AES.encryptedSize(bytes.length));
+        aes.encrypt(ByteBuffer.wrap(bytes), encrypted, KeyDerivation.SHA_256);
+        encrypted.flip();
+        ByteBuffer decrypted = ByteBuffer.allocate(encrypted.remaining());
+        aes.decrypt(encrypted, decrypted, KeyDerivation.SHA_256);
+        assertArrayEquals(bytes, Arrays.copyOf(decrypted.array(), decrypted.position()));
+    }
+
+    @Test
+    public void decryptAfterWrongPass() {
+        String string = randomString(8);
+        AES aes = new AES(randomString(15));
+        for (int i = 0; i < 10; i++) {
+            try {
+                aes.decrypt(new AES(randomString(14)).encrypt(string));
+            } catch (AES.WrongPasswordException ignored) {
+            }
+        }
+        // The failed attempt mustn't break the reused cipher
+        assertEquals(string, aes.decrypt(aes.encrypt(string)));
+    }
+
+    @Test
+    public void readRejectsUnsafeParameters() throws IOException {
+        KeyDerivation derivation = KeyDerivation.pbkdf2(new byte[16], KeyDerivation.MIN_ITERATIONS);
+        assertEquals(derivation, read(derivation));
+        for (KeyDerivation invalid : Arrays.asList(KeyDerivation.pbkdf2(new byte[16], 0), KeyDerivation.pbkdf2(new byte[16], -1),
+                KeyDerivation.pbkdf2(new byte[16], Integer.MAX_VALUE), KeyDerivation.pbkdf2(new byte[4], KeyDerivation.MIN_ITERATIONS))) {
+            try {
+                read(invalid);
+                fail();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void passMatchesSecret() {
+        String pass = randomString(15);
+        char[] chars = pass.toCharArray();
+        AES aes = new AES(chars);
+        Arrays.fill(chars, '\0');
+        assertTrue(aes.passMatches(pass));
+        assertFalse(aes.passMatches(pass + "x"));
+        // The same keys as with the String constructor
+        assertEquals("text", new AES(pass).decrypt(aes.encrypt("text")));
+    }
+
+    @Test
+    public void wipeSecrets() {
+        SecretArena arena = new SecretArena();
+        Secret small = arena.allocate("secret"), large = arena.allocate(randomString(SecretArena.BLOCK_CHARS + 1));
+        assertEquals("secret", small.toString());
+        assertEquals("cre", small.subSequence(2, 5).toString());
+        assertTrue(small.contentEquals("secret"));
+
+        Secret single = Secret.of("single");
+        single.wipe();
+        assertTrue(single.isWiped());
+        assertFalse(small.isWiped());
+
+        arena.wipe();
+        assertTrue(small.isWiped());
+        assertTrue(large.isWiped());
+        try {
+            small.charAt(0);
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+        assertEquals("new", arena.allocate("new").toString());
+    }
+
+    private static KeyDerivation read(KeyDerivation derivation) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        derivation.write(new DataOutputStream(out));
+        return KeyDerivation.read(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    }
+
     private String randomString(int length) {
         char[] pass = new char[length];
         for (int i = 0; i < pass.length; i++) {
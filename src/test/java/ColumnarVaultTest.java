@@ -0,0 +1,71 @@
+import de.finnik.AES.AES;
+import de.finnik.passvault.passwords.ColumnarVault;
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.VaultFormat;
+import com.google.gson.Gson;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ColumnarVaultTest {
+    @Test
+    public void testReadAndSaveSealedVault() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            passwords.add(new Password("pass" + i, "site" + i % 10, "user" + i % 7, i % 3 == 0 ? "" : "other" + i));
+        }
+        File temp = File.createTempFile("passvault", "bin");
+        temp.deleteOnExit();
+        AES aes = new AES("main pass");
+        Password.savePasswords(passwords, temp, aes, VaultFormat.Mode.ENTRY);
+
+        ColumnarVault vault = ColumnarVault.read(temp, aes);
+        assertEquals(passwords.size(), vault.size());
+        // Every distinct site and user is stored once
+        assertEquals(17, vault.distinctValues());
+        assertEquals(passwords, vault.asList());
+        assertEquals(passwords.get(42).id(), vault.get(42).id());
+
+        // Saving the views writes the same vault again
+        Password.savePasswords(vault.asList(), temp, aes, VaultFormat.Mode.ENTRY);
+        assertEquals(passwords, Password.readPasswords(temp, aes));
+    }
+
+    @Test
+    public void testViewsWriteBack() {
+        List<Password> passwords = new ArrayList<>();
+        passwords.add(new Password("pass", "gmail.com", "john", "other"));
+        passwords.add(new Password("pass2", "github.com", "jane", ""));
+        ColumnarVault vault = new ColumnarVault(passwords);
+
+        Password view = vault.get(1);
+        view.setSite("gitlab.com");
+        view.setPass("changed");
+        assertEquals("gitlab.com", vault.get(1).getSite());
+        assertEquals("changed", vault.get(1).getPass());
+        assertEquals(view.lastModified(), vault.get(1).lastModified());
+        assertEquals("gmail.com", vault.get(0).getSite());
+
+        vault.asList().add(new Password("pass3", "web.de", "john", ""));
+        assertEquals(3, vault.size());
+        assertEquals("web.de", vault.get(2).getSite());
+    }
+
+    @Test
+    public void testMissingSiteAndUser() {
+        List<Password> passwords = new ArrayList<>();
+        passwords.add(new Gson().fromJson("{\"pass\":\"pass\",\"other\":\"\"}", Password.class));
+        passwords.add(new Password("pass2", "", "john", ""));
+        ColumnarVault vault = new ColumnarVault(passwords);
+
+        assertEquals("", vault.get(0).getSite());
+        assertEquals("", vault.get(0).getUser());
+        assertEquals("john", vault.get(1).getUser());
+        assertEquals(2, vault.distinctValues());
+    }
+}
@@ -0,0 +1,99 @@
+import de.finnik.AES.AES;
+import de.finnik.AES.KeyDerivation;
+import de.finnik.passvault.ConfigStore;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ConfigStoreTest {
+    @Test
+    public void testWriteAndLoad() throws IOException {
+        File dir = Files.createTempDirectory("passvault").toFile();
+        File file = new File(dir, "config");
+        AES aes = new AES("main pass");
+        aes.adoptKeyDerivation(KeyDerivation.pbkdf2(new byte[16], KeyDerivation.MIN_ITERATIONS));
+
+        ConfigStore config = new ConfigStore(file, new File(dir, "hints"));
+        config.load();
+        config.setProperties(Collections.singletonMap("LANG", "de"), Collections.singletonMap("DRIVE_PASSWORD", "drive pass"));
+        config.addHint("hint");
+        config.write(aes);
+
+        // Before the main password is known
+        ConfigStore read = new ConfigStore(file, new File(dir, "hints"));
+        read.load();
+        assertTrue(read.exists());
+        assertTrue(read.isHintTriggered("hint"));
+        assertEquals("de", read.getProperties().get("LANG"));
+        assertNull(read.getProperties().get("DRIVE_PASSWORD"));
+
+        assertFalse(read.unlock(new AES("wrong pass")));
+        assertTrue(read.unlock(new AES("main pass")));
+        assertEquals("drive pass", read.getProperties().get("DRIVE_PASSWORD"));
+
+        file.deleteOnExit();
+        dir.deleteOnExit();
+    }
+
+    @Test
+    public void testWriteWithoutPasswordKeepsEncryptedProperties() throws IOException {
+        File dir = Files.createTempDirectory("passvault").toFile();
+        File file = new File(dir, "config");
+        AES aes = new AES("main pass");
+        aes.adoptKeyDerivation(KeyDerivation.pbkdf2(new byte[16], KeyDerivation.MIN_ITERATIONS));
+
+        ConfigStore config = new ConfigStore(file, new File(dir, "hints"));
+        config.load();
+        config.setProperties(Collections.emptyMap(), Collections.singletonMap("DRIVE_PASSWORD", "drive pass"));
+        config.write(aes);
+
+        ConfigStore locked = new ConfigStore(file, new File(dir, "hints"));
+        locked.load();
+        locked.addHint("hint");
+        locked.write();
+
+        ConfigStore read = new ConfigStore(file, new File(dir, "hints"));
+        assertTrue(read.unlock(aes));
+        assertTrue(read.isHintTriggered("hint"));
+        assertEquals("drive pass", read.getProperties().get("DRIVE_PASSWORD"));
+
+        file.deleteOnExit();
+        dir.deleteOnExit();
+    }
+
+    @Test
+    public void testFailedUnlockKeepsEncryptedProperties() throws IOException {
+        File dir = Files.createTempDirectory("passvault").toFile();
+        File file = new File(dir, "config");
+        AES aes = new AES("main pass");
+        aes.adoptKeyDerivation(KeyDerivation.pbkdf2(new byte[16], KeyDerivation.MIN_ITERATIONS));
+
+        ConfigStore config = new ConfigStore(file, new File(dir, "hints"));
+        config.load();
+        config.setProperties(Collections.emptyMap(), Collections.singletonMap("DRIVE_PASSWORD", "drive pass"));
+        config.write(aes);
+
+        // The defaults are stored after the encrypted properties couldn't be decrypted
+        AES wrong = new AES("wrong pass");
+        wrong.adoptKeyDerivation(KeyDerivation.pbkdf2(new byte[16], KeyDerivation.MIN_ITERATIONS));
+        ConfigStore locked = new ConfigStore(file, new File(dir, "hints"));
+        assertFalse(locked.unlock(wrong));
+        locked.setProperties(Collections.singletonMap("LANG", "de"), Collections.singletonMap("DRIVE_PASSWORD", ""));
+        assertNull(locked.getProperties().get("DRIVE_PASSWORD"));
+        locked.write(wrong);
+
+        ConfigStore read = new ConfigStore(file, new File(dir, "hints"));
+        assertFalse(read.unlock(wrong));
+        assertTrue(read.unlock(aes));
+        assertEquals("de", read.getProperties().get("LANG"));
+        assertEquals("drive pass", read.getProperties().get("DRIVE_PASSWORD"));
+
+        file.deleteOnExit();
+        dir.deleteOnExit();
+    }
+}
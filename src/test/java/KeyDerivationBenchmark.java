@@ -0,0 +1,29 @@
+import de.finnik.AES.KeyDerivation;
+
+/**
+ * Prints how long a {@link KeyDerivation#PBKDF2} derivation takes on the current machine for different costs
+ * and which cost {@link KeyDerivation#calibratedIterations()} picks for new vaults.
+ * <p>
+ * Run it via {@code mvn test-compile exec:java -Dexec.mainClass=KeyDerivationBenchmark -Dexec.classpathScope=test}
+ */
+public class KeyDerivationBenchmark {
+    private static final int[] ITERATIONS = {10_000, 50_000, 100_000, 200_000, 500_000, 1_000_000};
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        // Warm up
+        for (int i = 0; i < RUNS; i++) {
+            KeyDerivation.measure(ITERATIONS[0]);
+        }
+
+        System.out.printf("%12s %12s%n", "iterations", "ms/derive");
+        for (int iterations : ITERATIONS) {
+            long nanos = 0;
+            for (int i = 0; i < RUNS; i++) {
+                nanos += KeyDerivation.measure(iterations);
+            }
+            System.out.printf("%12d %12.1f%n", iterations, nanos / RUNS / 1e6);
+        }
+        System.out.printf("Calibrated iterations for %d ms: %d%n", KeyDerivation.TARGET_MILLIS, KeyDerivation.calibratedIterations());
+    }
+}
@@ -0,0 +1,79 @@
+import com.google.gson.Gson;
+import de.finnik.drive.CompareVaults;
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.passwords.PasswordId;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class PasswordIdTest {
+    @Test
+    public void testGeneratedIdsAreTimeOrderedUuids() throws InterruptedException {
+        PasswordId first = PasswordId.generate();
+        Thread.sleep(2);
+        PasswordId second = PasswordId.generate();
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.timestamp() >= first.timestamp() + 2);
+
+        UUID uuid = UUID.fromString(second.toString());
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(second, new PasswordId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+        assertEquals(second, PasswordId.fromBytes(second.toBytes()));
+    }
+
+    @Test
+    public void testOldIdsAreReadAsTheyAre() {
+        String random = UUID.randomUUID().toString();
+        PasswordId id = PasswordId.parse(random);
+        assertTrue(id.isUuid());
+        assertEquals(random, id.toString());
+        assertEquals(UUID.fromString(random).getMostSignificantBits(), id.getHigh());
+        assertEquals(-1, id.timestamp());
+
+        for (String text : Arrays.asList("custom id", "", random.toUpperCase())) {
+            PasswordId irregular = PasswordId.parse(text);
+            assertFalse(irregular.isUuid());
+            assertEquals(text, irregular.toString());
+            assertEquals(irregular, PasswordId.parse(text));
+        }
+
+        Password password = new Gson().fromJson("{\"ID\":\"" + random + "\",\"pass\":\"pass\",\"site\":\"site\",\"user\":\"user\",\"other\":\"\"}", Password.class);
+        assertEquals(random, password.id());
+        assertTrue(password.toString().contains("\"ID\":\"" + random + "\""));
+    }
+
+    @Test
+    public void testCompareKeepsNewestVersions() throws InterruptedException {
+        List<Password> local = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            local.add(new Password("pass" + i, "site" + i, "user", ""));
+        }
+        // Ids are binary searched, so the order of the lists must not matter
+        Collections.shuffle(local);
+        List<Password> remote = new ArrayList<>();
+        for (Password password : local) {
+            remote.add(new Password(password));
+        }
+        Thread.sleep(2);
+        remote.get(10).setSite("changed");
+        remote.add(new Password("new", "new", "user", ""));
+
+        List<Password> compared = CompareVaults.compare(local, remote);
+        assertEquals(101, compared.size());
+        assertSame(local.get(0), compared.get(0));
+        assertSame(remote.get(10), compared.get(10));
+        assertSame(remote.get(100), compared.get(100));
+
+        String[] changeLog = CompareVaults.changeLog(local, compared);
+        assertEquals(2, changeLog.length);
+        assertTrue(changeLog[0].contains("Changed 'site' to 'changed'"));
+        assertTrue(changeLog[1].contains("Created password"));
+    }
+}
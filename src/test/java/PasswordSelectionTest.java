@@ -0,0 +1,78 @@
+import de.finnik.gui.mainFrame.PasswordSelection;
+import de.finnik.passvault.passwords.Password;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PasswordSelectionTest {
+    private static List<Password> passwords(int count) {
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            passwords.add(new Password("pass", "site" + i, "user", ""));
+        }
+        return passwords;
+    }
+
+    @Test
+    public void testMultiSelect() {
+        List<Password> rows = passwords(10);
+        PasswordSelection selection = new PasswordSelection();
+        selection.setRows(rows);
+        assertNull(selection.getLeadPassword());
+
+        selection.select(2);
+        selection.toggle(5);
+        assertEquals(Arrays.asList(rows.get(2), rows.get(5)), selection.getSelected());
+        assertEquals(rows.get(5), selection.getLeadPassword());
+
+        // A range starts at the last clicked row
+        selection.extend(3);
+        assertEquals(Arrays.asList(rows.get(3), rows.get(4), rows.get(5)), selection.getSelected());
+        assertEquals(3, selection.getLead());
+
+        selection.toggle(4);
+        assertFalse(selection.isSelected(rows.get(4)));
+        assertEquals(2, selection.size());
+        assertEquals(7, selection.rowOf(rows.get(7).passwordId()));
+    }
+
+    @Test
+    public void testKeyboardNavigation() {
+        List<Password> rows = passwords(1000);
+        PasswordSelection selection = new PasswordSelection();
+        selection.setRows(rows);
+
+        assertEquals(0, selection.move(1, false));
+        assertEquals(1, selection.move(1, false));
+        assertEquals(999, selection.move(5000, false));
+        assertEquals(995, selection.move(-4, true));
+        assertEquals(5, selection.size());
+        assertEquals(0, selection.move(-1000, false));
+        assertEquals(1, selection.size());
+    }
+
+    @Test
+    public void testSelectionSurvivesRefresh() {
+        List<Password> rows = passwords(10);
+        PasswordSelection selection = new PasswordSelection();
+        selection.setRows(rows);
+        selection.select(8);
+        selection.toggle(9);
+
+        // Only the still displayed passwords stay selected, at their new rows
+        List<Password> refreshed = new ArrayList<>(rows.subList(5, 9));
+        selection.setRows(refreshed);
+        assertEquals(Arrays.asList(rows.get(8)), selection.getSelected());
+        assertEquals(-1, selection.getLead());
+        assertNull(selection.getLeadPassword());
+
+        selection.select(3);
+        selection.setRows(rows);
+        assertEquals(8, selection.getLead());
+        assertEquals(rows.get(8), selection.getLeadPassword());
+    }
+}
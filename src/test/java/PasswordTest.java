@@ -1,11 +1,26 @@
+import com.google.gson.Gson;
 import de.finnik.AES.AES;
+import de.finnik.AES.AESWriter;
+import de.finnik.AES.Secret;
+import de.finnik.AES.SecretArena;
+import de.finnik.passvault.passwords.Codec;
 import de.finnik.passvault.passwords.Password;
 import de.finnik.passvault.passwords.PasswordGenerator;
+import de.finnik.passvault.passwords.VaultFormat;
+import de.finnik.passvault.passwords.VaultHeader;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -29,6 +44,310 @@ public class PasswordTest {
         temp.deleteOnExit();
     }
 
+    @Test
+    public void testWriteAndReadPasswordsSpanningMultipleChunks() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        PasswordGenerator generator = new PasswordGenerator();
+        for (int i = 0; i < 5000; i++) {
+            passwords.add(new Password(generator.generatePassword(12, 18, PasswordGenerator.PassChars.values()), "site" + i, "user" + i, "\u00e4\u00f6\u00fc\u20ac" + i));
+        }
+
+        File temp = File.createTempFile("passvault", "bin");
+        AES aes = new AES("main pass");
+
+        // Uncompressed, so that the records really span multiple chunks
+        VaultFormat.write(passwords, new FileOutputStream(temp), aes, VaultFormat.Mode.STREAM, Codec.NONE);
+        assertEquals(passwords, Password.readPasswords(temp, aes));
+
+        temp.deleteOnExit();
+    }
+
+    @Test
+    public void testWriteAndReadCompressedPasswords() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            passwords.add(new Password("pass" + i, "https://www.site" + i + ".com", "user" + i + "@gmail.com", ""));
+        }
+        AES aes = new AES("main pass");
+
+        for (VaultFormat.Mode mode : VaultFormat.Mode.values()) {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream(), compressed = new ByteArrayOutputStream();
+            VaultFormat.write(passwords, plain, aes, mode, Codec.NONE);
+            VaultFormat.write(passwords, compressed, aes, mode, Codec.DEFLATE);
+            assertTrue(compressed.size() < plain.size());
+            assertEquals(passwords, VaultFormat.read(new ByteArrayInputStream(plain.toByteArray()), aes));
+            assertEquals(passwords, VaultFormat.read(new ByteArrayInputStream(compressed.toByteArray()), aes));
+        }
+    }
+
+    @Test
+    public void testWriteAndReadPasswordsPerEntry() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            passwords.add(new Password("pass" + i, "site" + i, "user" + i, "\u00e4\u00f6\u00fc\u20ac" + i));
+        }
+
+        File temp = File.createTempFile("passvault", "bin");
+        temp.deleteOnExit();
+        AES aes = new AES("main pass");
+
+        List<Password> copies = new ArrayList<>();
+        passwords.forEach(password -> copies.add(new Password(password)));
+        Password.savePasswords(passwords, temp, aes, VaultFormat.Mode.ENTRY);
+        // Saving doesn't change the passwords, only the read ones are sealed
+        assertEquals(copies, passwords);
+        assertFalse(passwords.get(0).isSealed());
+        List<Password> read = Password.readPasswords(temp, aes);
+        assertEquals(passwords, read);
+        assertTrue(read.get(0).isSealed());
+
+        // Writing again reuses the sealed secrets, changed ones are sealed anew
+        read.get(0).setPass("changed");
+        assertFalse(read.get(0).isSealed());
+        Password.savePasswords(read, temp, aes, VaultFormat.Mode.ENTRY);
+        List<Password> reread = Password.readPasswords(temp, new AES("main pass"));
+        assertEquals(read, reread);
+        assertEquals("changed", reread.get(0).getPass());
+
+        // Backups are written in plain stream mode
+        Password.savePasswords(reread, temp, aes);
+        assertEquals(read, Password.readPasswords(temp, aes));
+    }
+
+    @Test
+    public void testResealAfterMainPassChange() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            passwords.add(new Password("pass" + i, "site" + i, "user" + i, "other" + i));
+        }
+        AES aes = new AES("main pass");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaultFormat.write(passwords, out, aes, VaultFormat.Mode.ENTRY);
+        List<Password> read = VaultFormat.read(new ByteArrayInputStream(out.toByteArray()), aes);
+        List<Password> other = VaultFormat.read(new ByteArrayInputStream(out.toByteArray()), aes);
+
+        // Keeps the data key, so the sealed bytes stay the same
+        AES changed = new AES("new pass");
+        changed.adoptDataKey(aes.getDataKey());
+        read.forEach(password -> password.reseal(changed));
+        // Another data key, so the secrets are sealed anew
+        AES unrelated = new AES("other pass");
+        other.forEach(password -> password.reseal(unrelated));
+        aes.wipe();
+        assertFalse(aes.passIsSet());
+
+        assertEquals(passwords, read);
+        assertEquals(passwords, other);
+        assertTrue(other.get(0).isSealed());
+    }
+
+    @Test
+    public void testRejectUnknownHeaderVersion() throws IOException {
+        AES aes = new AES("main pass");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaultFormat.write(Collections.singletonList(new Password("pass", "site", "user", "other")), out, aes);
+        byte[] file = out.toByteArray();
+        // The version follows the four magic bytes
+        assertEquals(VaultHeader.VERSION, file[4]);
+        file[4] = VaultHeader.VERSION + 1;
+        try {
+            VaultFormat.read(new ByteArrayInputStream(file), aes);
+            fail();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test
+    public void testDetectModifiedStream() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            passwords.add(new Password("pass" + i, "site" + i, "user" + i, "other" + i));
+        }
+        AES aes = new AES("main pass");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(), other = new ByteArrayOutputStream();
+        VaultFormat.write(passwords, out, aes, VaultFormat.Mode.STREAM, Codec.NONE);
+        VaultFormat.write(passwords, other, aes, VaultFormat.Mode.STREAM, Codec.NONE);
+        byte[] file = out.toByteArray();
+        List<int[]> chunks = chunks(file), otherChunks = chunks(other.toByteArray());
+        assertTrue(chunks.size() > 2);
+        assertEquals(passwords, VaultFormat.read(new ByteArrayInputStream(file), aes));
+
+        // Without the last chunk
+        int[] last = chunks.get(chunks.size() - 1);
+        assertRejected(Arrays.copyOf(file, last[0]), aes);
+        // The second chunk of another vault with the same key
+        byte[] spliced = file.clone();
+        System.arraycopy(other.toByteArray(), otherChunks.get(1)[0], spliced, chunks.get(1)[0], chunks.get(1)[1]);
+        assertRejected(spliced, aes);
+        // The first two chunks swapped, both are full chunks of the same length
+        byte[] swapped = file.clone();
+        System.arraycopy(file, chunks.get(1)[0], swapped, chunks.get(0)[0], chunks.get(0)[1]);
+        System.arraycopy(file, chunks.get(0)[0], swapped, chunks.get(1)[0], chunks.get(1)[1]);
+        assertRejected(swapped, aes);
+    }
+
+    @Test
+    public void testRejectInvalidRecordLengths() throws IOException {
+        AES aes = new AES("main pass");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaultFormat.write(Collections.singletonList(new Password("pass", "site", "user", "other")), out, aes, VaultFormat.Mode.ENTRY);
+        byte[] file = out.toByteArray();
+        int first = VaultHeader.read(new ByteArrayInputStream(file)).toByteArray().length;
+        for (int length : new int[]{-1, Integer.MAX_VALUE}) {
+            byte[] corrupt = file.clone();
+            ByteBuffer.wrap(corrupt).putInt(first, length);
+            assertRejected(corrupt, aes);
+        }
+    }
+
+    /**
+     * @return The offset and length of every chunk of a vault written via {@link VaultFormat.Mode#STREAM}, including its flag and length
+     */
+    private static List<int[]> chunks(byte[] file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(file);
+        buffer.position(VaultHeader.read(new ByteArrayInputStream(file)).toByteArray().length + 16);
+        List<int[]> chunks = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            int offset = buffer.position();
+            buffer.get();
+            int length = buffer.getInt();
+            buffer.position(buffer.position() + length);
+            chunks.add(new int[]{offset, buffer.position() - offset});
+        }
+        return chunks;
+    }
+
+    private static void assertRejected(byte[] file, AES aes) {
+        try {
+            VaultFormat.read(new ByteArrayInputStream(file), aes);
+            fail();
+        } catch (IOException | AES.WrongPasswordException ignored) {
+        }
+    }
+
+    @Test
+    public void testReadPasswordsOneByOne() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            passwords.add(new Password("pass" + i, "site" + i, "user" + i, "other" + i));
+        }
+
+        AES aes = new AES("main pass");
+        for (VaultFormat.Mode mode : VaultFormat.Mode.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            VaultFormat.write(passwords, out, aes, mode);
+
+            List<Password> read = new ArrayList<>();
+            VaultFormat.read(new ByteArrayInputStream(out.toByteArray()), aes, read::add);
+            assertEquals(passwords, read);
+        }
+    }
+
+    @Test
+    public void testReadLegacyPasswords() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        passwords.add(new Password("pass", "site", "user", "other"));
+        passwords.add(new Password("pass2", "site2", "user2", "other2"));
+
+        File temp = File.createTempFile("passvault", "bin");
+        AES aes = new AES("main pass");
+
+        try (AESWriter aesWriter = new AESWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8), aes)) {
+            aesWriter.write(new Gson().toJson(passwords.toArray()));
+        }
+        assertEquals(passwords, Password.readPasswords(temp, aes));
+
+        temp.deleteOnExit();
+    }
+
+    @Test
+    public void testReadPasswordsAdoptsKeyDerivation() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        passwords.add(new Password("pass", "site", "user", "other"));
+
+        File temp = File.createTempFile("passvault", "bin");
+        temp.deleteOnExit();
+
+        AES aes = new AES("main pass");
+        Password.savePasswords(passwords, temp, aes);
+        assertTrue(aes.getKeyDerivation().isSalted());
+
+        // The session reading the file keeps writing with its salt, so the key doesn't have to be derived again
+        AES session = new AES("main pass");
+        Password.readPasswords(temp, session);
+        assertEquals(aes.getKeyDerivation(), session.getKeyDerivation());
+    }
+
+    @Test
+    public void testRekeyPasswords() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        passwords.add(new Password("pass", "site", "user", "other"));
+
+        File temp = File.createTempFile("passvault", "bin"), backup = File.createTempFile("passvault", "bin");
+        temp.deleteOnExit();
+        backup.deleteOnExit();
+
+        AES old = new AES("old pass");
+        Password.savePasswords(passwords, temp, old, VaultFormat.Mode.ENTRY);
+        Password.savePasswords(passwords, backup, old);
+        long length = temp.length();
+
+        AES rotated = new AES("new pass");
+        rotated.adoptDataKey(old.getDataKey());
+        assertTrue(VaultFormat.rekey(temp, rotated));
+        assertEquals(length, temp.length());
+        assertEquals(passwords, Password.readPasswords(temp, new AES("new pass")));
+        try {
+            Password.readPasswords(temp, new AES("old pass"));
+            fail();
+        } catch (AES.WrongPasswordException ignored) {
+        }
+
+        // The backup is still wrapped with the old password, but encrypted with the same data key
+        assertEquals(passwords, Password.readPasswords(backup, rotated));
+        assertTrue(VaultFormat.rekey(backup, rotated));
+        assertEquals(passwords, Password.readPasswords(backup, new AES("new pass")));
+
+        // The files were replaced by their temporary copies
+        File[] left = temp.getParentFile().listFiles((dir, name) -> name.endsWith(".tmp")
+                && (name.startsWith(temp.getName()) || name.startsWith(backup.getName())));
+        assertEquals(0, left.length);
+    }
+
+    @Test(expected = AES.WrongPasswordException.class)
+    public void testReadPasswordsWithWrongPass() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        passwords.add(new Password("pass", "site", "user", "other"));
+
+        File temp = File.createTempFile("passvault", "bin");
+        temp.deleteOnExit();
+
+        Password.savePasswords(passwords, temp, new AES("main pass"));
+        Password.readPasswords(temp, new AES("wrong pass"));
+    }
+
+    @Test
+    public void testRevealSealedSecrets() throws IOException {
+        List<Password> passwords = new ArrayList<>();
+        passwords.add(new Password("p\"a\\s/s<\u00e4\u20ac\ud83d\ude00>", "site", "user", "line\nbreak\ttab='&'"));
+        passwords.add(new Password("", "site2", "user2", null));
+
+        AES aes = new AES("main pass");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaultFormat.write(passwords, out, aes, VaultFormat.Mode.ENTRY);
+        List<Password> read = VaultFormat.read(new ByteArrayInputStream(out.toByteArray()), aes);
+
+        SecretArena arena = new SecretArena();
+        Secret pass = read.get(0).revealPass(arena);
+        assertEquals(passwords.get(0).getPass(), pass.toString());
+        assertEquals(passwords.get(0).getOther(), read.get(0).revealOther(arena).toString());
+        assertEquals(0, read.get(1).revealPass(arena).length());
+        assertEquals(0, read.get(1).revealOther(arena).length());
+
+        arena.wipe();
+        assertTrue(pass.isWiped());
+    }
+
     @Test
     public void testLog() {
         Password password = new Password("pass", "site", "user", "other");
@@ -0,0 +1,68 @@
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.search.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RankedSearchTest {
+    @Test
+    public void testRanking() {
+        Password user = new Password("pass", "example.com", "github-user", "");
+        Password inside = new Password("pass", "mygithub.com", "john", "");
+        Password word = new Password("pass", "https://www.github.com", "john", "");
+        Password start = new Password("pass", "github.com", "john", "");
+        Password typo = new Password("pass", "githbu.com", "john", "");
+        Password other = new Password("pass", "gmail.com", "john", "");
+        RankedSearch search = new RankedSearch(new TrigramIndex(Arrays.asList(user, inside, word, start, typo, other)), null);
+
+        assertEquals(Arrays.asList(start, word, inside, user, typo), search.search("github", 10));
+        assertEquals(Arrays.asList(start, word), search.search("GitHub", 2));
+    }
+
+    @Test
+    public void testFrecency() {
+        Password one = new Password("pass", "one.github.com", "john", "");
+        Password two = new Password("pass", "two.github.com", "john", "");
+        Frecency frecency = new Frecency();
+        RankedSearch search = new RankedSearch(new TrigramIndex(Arrays.asList(one, two)), frecency);
+        assertEquals(Arrays.asList(one, two), search.search("github", 10));
+
+        long now = System.currentTimeMillis();
+        frecency.record(two.id(), now);
+        assertEquals(Arrays.asList(two, one), search.search("github", 10));
+
+        // Old uses count less
+        Frecency read = Frecency.parse(frecency.toJson());
+        read.record(one.id(), now);
+        read.record(one.id(), now);
+        assertTrue(read.score(one.id(), now) > read.score(two.id(), now));
+        assertEquals(1, read.score(two.id(), now + Frecency.HALF_LIFE_MILLIS) * 2, 1e-9);
+        assertEquals(0, Frecency.parse("invalid").score(one.id(), now), 0);
+    }
+
+    @Test
+    public void testTypos() {
+        Ranking ranking = new Ranking("gmial", null, 0);
+        assertTrue(ranking.score(new Password("pass", "gmail.com", "john", "")) > 0);
+        assertTrue(ranking.score(new Password("pass", "gmal.com", "john", "")) > 0);
+        assertTrue(ranking.score(new Password("pass", "my.gmiall.com", "john", "")) > 0);
+        assertEquals(0, ranking.score(new Password("pass", "gmx.de", "john", "")));
+        assertEquals(0, new Ranking("gmi", null, 0).score(new Password("pass", "gm.de", "john", "")));
+    }
+
+    @Test
+    public void testTopK() {
+        TopK<Integer> top = new TopK<>(3);
+        List<Integer> scores = Arrays.asList(5, 1, 9, 5, 7, 3, 9);
+        for (int i = 0; i < scores.size(); i++) {
+            top.offer(i, scores.get(i));
+        }
+        // Equal scores keep their order
+        assertEquals(Arrays.asList(2, 6, 4), top.result());
+        assertEquals(new ArrayList<>(), new TopK<Integer>(0).result());
+    }
+}
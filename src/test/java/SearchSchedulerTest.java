@@ -0,0 +1,65 @@
+import de.finnik.passvault.search.SearchScheduler;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SearchSchedulerTest {
+    @Test
+    public void testOnlyNewestIsPublished() throws InterruptedException {
+        SearchScheduler<String> scheduler = new SearchScheduler<>(50, Runnable::run);
+        List<String> published = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        // Typing within the debounce delay
+        for (String query : new String[]{"git", "gith", "githu"}) {
+            scheduler.submit(() -> query, published::add);
+        }
+        scheduler.submit(() -> "github", result -> {
+            published.add(result);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, published.size());
+        assertEquals("github", published.get(0));
+        assertEquals(4, scheduler.getSubmitted());
+        assertEquals(1, scheduler.getPublished());
+        assertEquals(3, scheduler.getDropped());
+        assertTrue(scheduler.getMeanLatencyMicros() >= 50_000);
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testRunningSearchIsDropped() throws InterruptedException {
+        SearchScheduler<String> scheduler = new SearchScheduler<>(0, Runnable::run);
+        List<String> published = new CopyOnWriteArrayList<>();
+        CountDownLatch running = new CountDownLatch(1), release = new CountDownLatch(1), done = new CountDownLatch(1);
+
+        scheduler.submitNow(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow";
+        }, published::add);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        scheduler.submitNow(() -> "fast", result -> {
+            published.add(result);
+            done.countDown();
+        });
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, published.size());
+        assertEquals("fast", published.get(0));
+        assertEquals(1, scheduler.getDropped());
+        scheduler.shutdown();
+    }
+}
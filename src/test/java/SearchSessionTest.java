@@ -0,0 +1,44 @@
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.search.SearchSession;
+import de.finnik.passvault.search.TrigramIndex;
+import de.finnik.passvault.utils.PassUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchSessionTest {
+    @Test
+    public void testTyping() {
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            passwords.add(new Password("pass", i + ".github.com", "user" + i + "@gmail.com", ""));
+        }
+        SearchSession session = new SearchSession(new TrigramIndex(passwords));
+
+        // Typing, deleting and typing again
+        for (String query : Arrays.asList("g", "gi", "git", "gith", "github", "githu", "gith", "gitl", "gi", "gma", "1.git", "mail.c", "ail")) {
+            assertEquals(query, PassUtils.getAllMatchingPasswords(query, passwords), session.search(query));
+        }
+    }
+
+    @Test
+    public void testChangedIndex() {
+        Password gmail = new Password("pass", "gmail.com", "john", "");
+        TrigramIndex index = new TrigramIndex(Arrays.asList(gmail));
+        SearchSession session = new SearchSession(index);
+        assertEquals(Arrays.asList(gmail), session.search("mail"));
+
+        Password mail = new Password("pass", "mail.com", "jane", "");
+        index.add(mail);
+        assertEquals(Arrays.asList(gmail, mail), session.search("mail"));
+        assertEquals(Arrays.asList(gmail, mail), session.search("mail.com"));
+
+        gmail.setSite("gmx.de");
+        index.update(gmail);
+        assertEquals(Arrays.asList(mail), session.search("mail.com"));
+    }
+}
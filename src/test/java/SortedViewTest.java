@@ -0,0 +1,71 @@
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.search.SortedView;
+import de.finnik.passvault.utils.PassUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SortedViewTest {
+    @Test
+    public void testUpdatesKeepOrder() {
+        Random random = new Random(42);
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            passwords.add(new Password("pass", "site" + random.nextInt(50), "user" + random.nextInt(50), ""));
+        }
+        List<Password> original = new ArrayList<>(passwords);
+        SortedView view = new SortedView(SortedView.Order.SITE, passwords);
+
+        for (int i = 0; i < 200; i++) {
+            Password password = passwords.get(random.nextInt(passwords.size()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    password.setSite("site" + random.nextInt(50));
+                    view.update(password);
+                    break;
+                case 1:
+                    Password added = new Password("pass", "site" + random.nextInt(50), "user", "");
+                    passwords.add(added);
+                    original.add(added);
+                    view.add(added);
+                    break;
+                default:
+                    PassUtils.deletePassword(password);
+                    view.update(password);
+            }
+        }
+
+        List<Password> expected = new ArrayList<>(passwords);
+        expected.removeIf(Password::isEmpty);
+        expected.sort(Comparator.comparing(Password::getSite).thenComparing(Password::getUser));
+        assertEquals(expected, view.passwords());
+        assertEquals(expected.size(), view.size());
+        // The list the view was built of isn't sorted
+        assertEquals(original, passwords);
+    }
+
+    @Test
+    public void testOrders() {
+        Password one = new Password("pass", "b.com", "anna", "");
+        Password two = new Password("pass", "a.com", "carl", "");
+        Password three = new Password("pass", "a.com", "bert", "");
+        List<Password> passwords = Arrays.asList(one, two, three);
+
+        assertEquals(Arrays.asList(three, two, one), new SortedView(SortedView.Order.SITE, passwords).passwords());
+        assertEquals(Arrays.asList(one, three, two), new SortedView(SortedView.Order.USER, passwords).passwords());
+
+        SortedView modified = new SortedView(SortedView.Order.of("modified"), passwords);
+        List<Password> byModification = new ArrayList<>(passwords);
+        byModification.sort(Comparator.comparingLong(Password::lastModified).reversed());
+        assertEquals(byModification, modified.passwords());
+
+        modified.remove(two);
+        assertFalse(modified.passwords().contains(two));
+    }
+}
@@ -0,0 +1,59 @@
+import de.finnik.passvault.passwords.Password;
+import de.finnik.passvault.search.TrigramIndex;
+import de.finnik.passvault.utils.PassUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrigramIndexTest {
+    private static final String[] SITES = {"google.com", "GitHub.com", "amazon.de", "web.de", "netflix.com"};
+    private static final String[] QUERIES = {"", "g", "oo", "goo", "GITHUB", "hub.com", ".de", "user1", "ser12@", "n.d", "missing", "com"};
+
+    @Test
+    public void testSearchMatchesScan() {
+        Random random = new Random(42);
+        List<Password> passwords = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            passwords.add(new Password("pass" + i, i + "." + SITES[random.nextInt(SITES.length)], "user" + random.nextInt(100) + "@web.de", "other"));
+        }
+
+        TrigramIndex index = new TrigramIndex(passwords);
+        assertEquals(passwords.size(), index.size());
+        for (String query : QUERIES) {
+            assertEquals(query, PassUtils.getAllMatchingPasswords(query, passwords), index.search(query));
+        }
+    }
+
+    @Test
+    public void testUpdates() {
+        Password gmail = new Password("pass", "gmail.com", "john", "");
+        Password github = new Password("pass", "github.com", "jane", "");
+        TrigramIndex index = new TrigramIndex(Arrays.asList(gmail, github));
+        assertEquals(Arrays.asList(gmail, github), index.search("com"));
+
+        // The site and user aren't searched together
+        assertTrue(index.search("comjohn").isEmpty());
+
+        gmail.setUser("jane");
+        index.update(gmail);
+        assertEquals(Arrays.asList(gmail, github), index.search("jane"));
+        assertTrue(index.search("john").isEmpty());
+
+        PassUtils.deletePassword(github);
+        index.update(github);
+        assertEquals(Arrays.asList(gmail), index.search("com"));
+
+        Password added = new Password("pass", "mail.com", "john", "");
+        index.add(added);
+        assertEquals(Arrays.asList(gmail, added), index.search("mail"));
+
+        index.remove(gmail);
+        assertEquals(Arrays.asList(added), index.search("mail"));
+        assertEquals(2, index.size());
+    }
+}